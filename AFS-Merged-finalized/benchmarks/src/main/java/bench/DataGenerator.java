@@ -0,0 +1,180 @@
+package bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a synthetic copy of all 13 data/*.txt files, sized by student count.
+ *
+ * For N students: N users + students + registrations, 3N grades,
+ * 1.5N feedback rows, N/10 comments, and one module per 200 students
+ * (min 10) with 2 classes, 3 assessments and 1 lecturer each.
+ *
+ *   java -cp out bench.DataGenerator <dir> [students]
+ */
+public class DataGenerator {
+
+    public static final int STUDENTS_PER_MODULE = 200;
+    public static final int ASSESSMENTS_PER_MODULE = 3;
+
+    private final int students;
+    private final int modules;
+    private final int leaders;
+
+    public DataGenerator(int students) {
+        this.students = students;
+        this.modules = Math.max(10, students / STUDENTS_PER_MODULE);
+        this.leaders = Math.max(1, modules / 5);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "bench-data");
+        int n = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        new DataGenerator(n).writeAll(dir);
+        System.out.printf("wrote %d students to %s%n", n, dir.toAbsolutePath());
+    }
+
+    public int getStudents() { return students; }
+    public int getModules() { return modules; }
+
+    public static String studentId(int i) { return String.format("TP%07d", i); }
+    public static String studentUserId(int i) { return String.format("S%07d", i); }
+    public static String studentUsername(int i) { return "student" + i; }
+    public static String moduleId(int m) { return String.format("M%05d", m); }
+    public static String assessmentId(int m, int a) { return String.format("ASS%05d_%d", m, a); }
+    public static String lecturerId(int m) { return String.format("T%05d", m); }
+    public static String leaderId(int l) { return String.format("L%04d", l); }
+
+    public int moduleOf(int student) {
+        return student % modules;
+    }
+
+    public void writeAll(Path dir) throws IOException {
+        Files.createDirectories(dir);
+
+        List<String> users = new ArrayList<>();
+        List<String> lecturers = new ArrayList<>();
+        List<String> leaderLecturer = new ArrayList<>();
+        List<String> modulesTxt = new ArrayList<>();
+        List<String> classes = new ArrayList<>();
+        List<String> assessments = new ArrayList<>();
+
+        users.add("A001|admin|1234|Admin|Male|admin@afs.test|0100000000|30|ADMIN");
+        for (int l = 0; l < leaders; l++) {
+            users.add(leaderId(l) + "|leader" + l + "|pw" + l + "|Leader " + l + "|Female|leader" + l
+                    + "@afs.test|0110000000|45|LEADER");
+        }
+
+        leaderLecturer.add("LeaderID|LecturerID");
+        for (int m = 0; m < modules; m++) {
+            String lec = lecturerId(m);
+            String leader = leaderId(m % leaders);
+            users.add(lec + "|lecturer" + m + "|pw" + m + "|Lecturer " + m + "|Male|lecturer" + m
+                    + "@afs.test|0120000000|40|LECTURER");
+            lecturers.add("lecturer" + m + "|pw" + m + "|Lecturer " + m + "|Male|lecturer" + m
+                    + "@afs.test|0120000000|40|" + moduleId(m) + "|" + leader);
+            leaderLecturer.add(leader + "|" + lec);
+            modulesTxt.add(moduleId(m) + "|Module " + m + "|CT" + m + "-3-2|4|" + leader + "|" + lec);
+            classes.add("C" + m + "A|Module " + m + " Class A|" + moduleId(m));
+            classes.add("C" + m + "B|Module " + m + " Class B|" + moduleId(m));
+            for (int a = 0; a < ASSESSMENTS_PER_MODULE; a++) {
+                assessments.add(assessmentId(m, a) + "|" + moduleId(m) + "|Assessment " + a + "|Assignment|100.0|"
+                        + (a == ASSESSMENTS_PER_MODULE - 1 ? "40.0" : "30.0") + "|" + lec);
+            }
+        }
+
+        List<String> studentsTxt = new ArrayList<>(students);
+        List<String> studentClasses = new ArrayList<>(students);
+        List<String> grades = new ArrayList<>(students * ASSESSMENTS_PER_MODULE);
+        List<String> feedback = new ArrayList<>(students * ASSESSMENTS_PER_MODULE / 2 + 1);
+        List<String> comments = new ArrayList<>(students / 10 + 1);
+
+        for (int i = 0; i < students; i++) {
+            int m = moduleOf(i);
+            String sid = studentId(i);
+            users.add(studentUserId(i) + "|" + studentUsername(i) + "|pw" + i + "|Student " + i + "|"
+                    + (i % 2 == 0 ? "Male" : "Female") + "|s" + i + "@afs.test|0130000000|20|STUDENT");
+            studentsTxt.add(sid + "|" + studentUserId(i));
+            studentClasses.add(sid + "|C" + m + (i % 2 == 0 ? "A" : "B"));
+
+            for (int a = 0; a < ASSESSMENTS_PER_MODULE; a++) {
+                int marks = 35 + (int) (((long) i * 31 + a * 17) % 65);
+                grades.add("GRD" + i + "_" + a + "|" + assessmentId(m, a) + "|" + sid + "|" + marks + ".0|"
+                        + letter(marks) + "|" + lecturerId(m) + "|2026-02-10");
+                if ((i + a) % 2 == 0) {
+                    feedback.add("FDB" + i + "_" + a + "|" + assessmentId(m, a) + "|" + sid + "|" + lecturerId(m)
+                            + "|Generated feedback " + i + "|2026-02-11");
+                }
+            }
+            if (i % 10 == 0) {
+                comments.add("CMT" + i + "|" + sid + "|" + lecturerId(m) + "|" + moduleId(m)
+                        + "|Generated comment|2026-02-12");
+            }
+        }
+
+        write(dir, "users.txt", users);
+        write(dir, "lecturers.txt", lecturers);
+        write(dir, "students.txt", studentsTxt);
+        write(dir, "modules.txt", modulesTxt);
+        write(dir, "classes.txt", classes);
+        write(dir, "student_classes.txt", studentClasses);
+        write(dir, "assessments.txt", assessments);
+        write(dir, "grades.txt", grades);
+        write(dir, "feedback.txt", feedback);
+        write(dir, "comments.txt", comments);
+        write(dir, "leader_lecturer.txt", leaderLecturer);
+        write(dir, "grading.txt", gradingScale());
+        write(dir, "grading_system.txt", gradingSystem());
+    }
+
+    private static String letter(int marks) {
+        if (marks >= 80) return "A";
+        if (marks >= 70) return "B";
+        if (marks >= 60) return "C";
+        if (marks >= 50) return "D";
+        return "F";
+    }
+
+    private static List<String> gradingScale() {
+        List<String> out = new ArrayList<>();
+        out.add("A+|97|100");
+        out.add("A|90|96");
+        out.add("B+|87|89");
+        out.add("B|83|86");
+        out.add("B-|80|82");
+        out.add("C+|77|79");
+        out.add("C|73|76");
+        out.add("C-|70|72");
+        out.add("D+|67|69");
+        out.add("D|63|66");
+        out.add("D-|60|62");
+        out.add("F+|57|59");
+        out.add("F|53|56");
+        out.add("F-|0|52");
+        return out;
+    }
+
+    private static List<String> gradingSystem() {
+        List<String> out = new ArrayList<>();
+        out.add("A+|90|100");
+        out.add("A|80|89");
+        out.add("A-|75|79");
+        out.add("B+|70|74");
+        out.add("B|65|69");
+        out.add("B-|60|64");
+        out.add("C+|55|59");
+        out.add("C|50|54");
+        out.add("D|40|49");
+        out.add("F|0|39");
+        return out;
+    }
+
+    private static void write(Path dir, String name, List<String> lines) throws IOException {
+        Files.write(dir.resolve(name), lines, StandardCharsets.UTF_8);
+    }
+}
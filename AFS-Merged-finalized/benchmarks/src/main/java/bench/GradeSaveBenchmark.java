@@ -0,0 +1,75 @@
+package bench;
+
+import controller.FileHandler;
+import model.Grade;
+import repository.DataStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Save time for one mark sheet against cohort size.
+ * Compares the per-row path (saveOrUpdateGrade in a loop) with the
+ * batch path (saveGrades: one merge, one atomic rewrite).
+ *
+ * Runs against a throw-away data folder, never the real data/ directory:
+ *   java -cp out bench.GradeSaveBenchmark [backgroundRows]
+ */
+public class GradeSaveBenchmark {
+
+    private static final int[] COHORTS = {50, 100, 300, 1000, 3000};
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int background = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+
+        File dir = Files.createTempDirectory("afs-bench").toFile();
+        // Must be set before Constants is first touched.
+        System.setProperty("afs.dataDir", dir.getAbsolutePath());
+
+        FileHandler fileHandler = new FileHandler();
+        seedBackground(background);
+
+        System.out.printf("background rows: %d, data dir: %s%n", background, dir);
+        System.out.printf("%-8s %14s %14s%n", "cohort", "per-row (ms)", "batch (ms)");
+
+        for (int cohort : COHORTS) {
+            double perRow = 0;
+            double batch = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                List<Grade> sheet = markSheet("ASSB" + cohort + "R" + round, cohort);
+
+                long t0 = System.nanoTime();
+                for (Grade g : sheet) fileHandler.saveOrUpdateGrade(g);
+                DataStore.grades().compact();
+                perRow += (System.nanoTime() - t0) / 1e6;
+
+                long t1 = System.nanoTime();
+                fileHandler.saveGrades(sheet);
+                batch += (System.nanoTime() - t1) / 1e6;
+            }
+            System.out.printf("%-8d %14.2f %14.2f%n", cohort, perRow / ROUNDS, batch / ROUNDS);
+        }
+    }
+
+    private static void seedBackground(int rows) {
+        List<String> lines = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            lines.add("GRD" + i + "|ASSX" + (i / 500) + "|TP" + String.format("%06d", i % 500)
+                    + "|50.0|C|T001|2026-01-01");
+        }
+        DataStore.grades().writeAll(lines);
+    }
+
+    private static List<Grade> markSheet(String assessmentId, int cohort) {
+        List<Grade> sheet = new ArrayList<>(cohort);
+        for (int i = 0; i < cohort; i++) {
+            sheet.add(new Grade("GRD" + assessmentId + i, assessmentId, String.format("TP%06d", i),
+                    40 + (i % 60), "B", "T001", "2026-02-01"));
+        }
+        return sheet;
+    }
+}
@@ -0,0 +1,66 @@
+package bench;
+
+import java.util.Arrays;
+
+/**
+ * Minimal JMH-style runner: warmup iterations, then measured iterations of
+ * a fixed duration, reporting average time per operation.
+ * Results are consumed into a volatile sink so the JIT cannot drop the call.
+ */
+public final class Harness {
+
+    public interface Op {
+        Object run(long i) throws Exception;
+    }
+
+    private static volatile Object sink;
+
+    private final int warmupIterations;
+    private final int measureIterations;
+    private final long iterationNanos;
+
+    public Harness(int warmupIterations, int measureIterations, long iterationMillis) {
+        this.warmupIterations = warmupIterations;
+        this.measureIterations = measureIterations;
+        this.iterationNanos = iterationMillis * 1_000_000L;
+    }
+
+    public static void printHeader() {
+        System.out.printf("%-34s %8s %14s %14s %14s%n", "benchmark", "ops", "avg (us/op)", "min (us/op)", "max (us/op)");
+    }
+
+    public void run(String name, Op op) throws Exception {
+        long counter = 0;
+        for (int w = 0; w < warmupIterations; w++) {
+            counter = iteration(op, counter, null);
+        }
+
+        double[] perIteration = new double[measureIterations];
+        long totalOps = 0;
+        long[] ops = new long[1];
+        for (int m = 0; m < measureIterations; m++) {
+            long start = System.nanoTime();
+            counter = iteration(op, counter, ops);
+            long elapsed = System.nanoTime() - start;
+            perIteration[m] = elapsed / 1000.0 / ops[0];
+            totalOps += ops[0];
+        }
+
+        double avg = Arrays.stream(perIteration).average().orElse(0);
+        double min = Arrays.stream(perIteration).min().orElse(0);
+        double max = Arrays.stream(perIteration).max().orElse(0);
+        System.out.printf("%-34s %8d %14.2f %14.2f %14.2f%n", name, totalOps, avg, min, max);
+    }
+
+    // Runs op until the iteration time is used up (at least once).
+    private long iteration(Op op, long counter, long[] opsOut) throws Exception {
+        long deadline = System.nanoTime() + iterationNanos;
+        long n = 0;
+        do {
+            sink = op.run(counter++);
+            n++;
+        } while (System.nanoTime() < deadline);
+        if (opsOut != null) opsOut[0] = n;
+        return counter;
+    }
+}
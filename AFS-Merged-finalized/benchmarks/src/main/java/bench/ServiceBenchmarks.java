@@ -0,0 +1,95 @@
+package bench;
+
+import controller.FileHandler;
+import model.Grade;
+import repository.DataStore;
+import repository.Row;
+import service.AuthService;
+import service.RegradeService;
+import service.ReportService;
+import service.StudentService;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Hot paths of the file-backed services against generated data.
+ *
+ *   java -cp out bench.ServiceBenchmarks [students] [filterRegex]
+ *
+ * students defaults to 10000 (about 80k rows across the 13 files);
+ * runs against a temp data folder, never the real data/ directory.
+ */
+public class ServiceBenchmarks {
+
+    public static void main(String[] args) throws Exception {
+        int students = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Pattern filter = Pattern.compile(args.length > 1 ? args[1] : ".*");
+
+        File dir = Files.createTempDirectory("afs-bench").toFile();
+        // Must be set before Constants is first touched.
+        System.setProperty("afs.dataDir", dir.getAbsolutePath());
+
+        DataGenerator gen = new DataGenerator(students);
+        gen.writeAll(dir.toPath());
+        System.out.printf("students: %d, modules: %d, data dir: %s%n", students, gen.getModules(), dir);
+
+        Harness harness = new Harness(3, 5, 500);
+        FileHandler fileHandler = new FileHandler();
+        List<Row> assessments = DataStore.assessments().rows();
+
+        Harness.printHeader();
+
+        if (filter.matcher("login").find()) {
+            harness.run("login", i -> {
+                int s = (int) (i % students);
+                return AuthService.login(DataGenerator.studentUsername(s), "pw" + s);
+            });
+        }
+
+        if (filter.matcher("loadStudents").find()) {
+            harness.run("loadStudents", i -> fileHandler.loadStudents());
+        }
+
+        if (filter.matcher("saveOrUpdateGrade").find()) {
+            harness.run("saveOrUpdateGrade", i -> {
+                int s = (int) (i % students);
+                int m = gen.moduleOf(s);
+                fileHandler.saveOrUpdateGrade(new Grade("GRDB" + i, DataGenerator.assessmentId(m, 0),
+                        DataGenerator.studentId(s), 40 + (i % 60), "B", DataGenerator.lecturerId(m), "2026-03-01"));
+                return null;
+            });
+            DataStore.grades().compact();
+        }
+
+        if (filter.matcher("getMyResults").find()) {
+            harness.run("getMyResults", i -> StudentService.getMyResults(DataGenerator.studentId((int) (i % students))));
+        }
+
+        if (filter.matcher("reports").find()) {
+            // Warm: aggregates already built, each call reads every assessment and a student.
+            harness.run("reports (warm)", i -> {
+                double sum = 0;
+                for (Row a : assessments) sum += ReportService.getAssessmentStats(a.get(0)).getAverage();
+                sum += ReportService.getStudentStats(DataGenerator.studentId((int) (i % students))).size();
+                return sum;
+            });
+
+            // Cold: grades.txt reloaded from disk and aggregates rebuilt every call.
+            harness.run("reports (cold rebuild)", i -> {
+                DataStore.grades().invalidate();
+                return ReportService.getAssessmentStats(assessments.get(0).get(0));
+            });
+        }
+
+        if (filter.matcher("regrade").find()) {
+            // Letters already match the generated marks, so only the first call rewrites the file.
+            RegradeService.Result first = RegradeService.regradeAll();
+            System.out.printf("regrade (first run): %d rows, %d changed, %d ms%n",
+                    first.getScanned(), first.getChanged(), first.getMillis());
+            harness.run("regradeAll (no changes)", i -> RegradeService.regradeAll());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+import repository.CommitLog;
+import repository.DataStore;
+import server.Json;
+import service.IntegrityService;
+import service.LeaderReportService;
+import service.RegradeService;
+import service.SequenceService;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Headless entry point for scheduled jobs; never loads Swing/AWT.
+ *
+ *   java Batch report [name...|all] [--leader ID]... [--all-leaders | --by-module]
+ *   java Batch regrade
+ *   java Batch check
+ *
+ * Common options: --format csv|json (default csv), --out DIR (default stdout),
+ * --threads N (default: number of CPUs).
+ * Reports (LeaderReportService.NAMES) run in parallel, one job per report and
+ * scope; output keeps the order they were asked for. Without a scope option
+ * a report covers every module. On stdout, CSV sections start with a
+ * "# report scope" line and JSON is one object per line; with --out each
+ * job gets its own file, e.g. grade-distribution-L001.csv.
+ * Exit code: 0 ok, 1 usage or I/O error, 2 check found issues.
+ */
+public class Batch {
+
+    private static final String ALL = "all";
+
+    private final String format;
+    private final Path outDir;
+    private final int threads;
+    private final PrintStream stdout = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+
+    private Batch(String format, Path outDir, int threads) {
+        this.format = format;
+        this.outDir = outDir;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        System.setProperty("java.awt.headless", "true");
+        int code;
+        try {
+            code = run(Arrays.asList(args));
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: Batch report [name...|all] [--leader ID]... [--all-leaders | --by-module]"
+                    + " | regrade | check  [--format csv|json] [--out DIR] [--threads N]");
+            code = 1;
+        } catch (Exception e) {
+            e.printStackTrace();
+            code = 1;
+        }
+        System.exit(code);
+    }
+
+    private static int run(List<String> args) throws Exception {
+        if (args.isEmpty()) throw new IllegalArgumentException("No command given.");
+
+        String command = args.get(0);
+        List<String> names = new ArrayList<>();
+        List<String> leaders = new ArrayList<>();
+        boolean allLeaders = false;
+        boolean byModule = false;
+        String format = "csv";
+        Path outDir = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 1; i < args.size(); i++) {
+            String a = args.get(i);
+            switch (a) {
+                case "--leader": leaders.add(value(args, ++i, a)); break;
+                case "--all-leaders": allLeaders = true; break;
+                case "--by-module": byModule = true; break;
+                case "--format": format = value(args, ++i, a).toLowerCase(); break;
+                case "--out": outDir = Paths.get(value(args, ++i, a)); break;
+                case "--threads": threads = number(value(args, ++i, a), a); break;
+                default:
+                    if (a.startsWith("--")) throw new IllegalArgumentException("Unknown option: " + a);
+                    names.add(a);
+            }
+        }
+        if (!format.equals("csv") && !format.equals("json")) {
+            throw new IllegalArgumentException("Unknown format: " + format);
+        }
+
+        recover();
+        Batch batch = new Batch(format, outDir, Math.max(1, threads));
+        switch (command) {
+            case "report":
+                return batch.reports(names, leaders, allLeaders, byModule);
+            case "regrade":
+                return batch.regrade();
+            case "check":
+                return batch.check();
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    // Same start-up and shutdown work as Main, so a job leaves the files as the app would.
+    private static void recover() {
+        try {
+            CommitLog.recover();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            DataStore.compactAll();
+            SequenceService.release();
+        }));
+    }
+
+    // --------------------------
+    // Commands
+    // --------------------------
+
+    private int reports(List<String> names, List<String> leaders, boolean allLeaders, boolean byModule)
+            throws IOException, InterruptedException {
+        List<String> reports = names.isEmpty() || names.contains(ALL) ? LeaderReportService.NAMES : names;
+        for (String name : reports) LeaderReportService.columns(name);  // rejects unknown names up front
+
+        // scope label -> module ids (null = every module)
+        Map<String, Set<String>> scopes = new LinkedHashMap<>();
+        if (allLeaders) leaders = LeaderReportService.leaderIds();
+        for (String leader : leaders) scopes.put(leader, LeaderReportService.moduleIdsOfLeader(leader));
+        if (byModule) {
+            for (Object[] m : LeaderReportService.moduleOverview(null)) {
+                String id = String.valueOf(m[0]);
+                scopes.put(id, Collections.singleton(id));
+            }
+        }
+        if (scopes.isEmpty()) scopes.put(ALL, null);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<LeaderReportService.Report>> jobs = new ArrayList<>();
+            List<String> labels = new ArrayList<>();
+            for (Map.Entry<String, Set<String>> scope : scopes.entrySet()) {
+                for (String name : reports) {
+                    Set<String> modules = scope.getValue();
+                    jobs.add(pool.submit(() -> LeaderReportService.build(name, modules)));
+                    labels.add(scope.getKey());
+                }
+            }
+            for (int i = 0; i < jobs.size(); i++) {
+                LeaderReportService.Report r = get(jobs.get(i));
+                emit(r.getName(), labels.get(i), r.getColumns(), r.getRows());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return 0;
+    }
+
+    private int regrade() throws IOException {
+        RegradeService.Result r = RegradeService.regradeAll();
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{r.getScanned(), r.getChanged(), r.getSkipped(), r.getUncovered(), r.getMillis()});
+        emit("regrade", ALL, new String[]{"Scanned", "Changed", "Skipped", "Uncovered", "Millis"}, rows);
+        return 0;
+    }
+
+    private int check() throws IOException {
+        List<IntegrityService.Issue> issues = IntegrityService.checkAll();
+        List<Object[]> rows = new ArrayList<>();
+        for (IntegrityService.Issue i : issues) {
+            rows.add(new Object[]{i.getCheck(), i.getFile(), i.getRow(), i.getDetail()});
+        }
+        emit("check", ALL, new String[]{"Check", "File", "Row", "Detail"}, rows);
+        return issues.isEmpty() ? 0 : 2;
+    }
+
+    // --------------------------
+    // Output
+    // --------------------------
+
+    private void emit(String name, String scope, String[] columns, List<Object[]> rows) throws IOException {
+        if (outDir == null) {
+            Writer w = new OutputStreamWriter(stdout, StandardCharsets.UTF_8);
+            if (format.equals("csv")) w.write("# " + name + " " + scope + "\n");
+            write(w, name, scope, columns, rows);
+            w.flush();
+            return;
+        }
+        Files.createDirectories(outDir);
+        String file = name + (scope.equals(ALL) ? "" : "-" + scope.replaceAll("[^A-Za-z0-9_.-]", "_")) + "." + format;
+        try (BufferedWriter w = Files.newBufferedWriter(outDir.resolve(file), StandardCharsets.UTF_8)) {
+            write(w, name, scope, columns, rows);
+        }
+    }
+
+    private void write(Writer w, String name, String scope, String[] columns, List<Object[]> rows) throws IOException {
+        if (format.equals("json")) {
+            List<Object> records = new ArrayList<>();
+            for (Object[] row : rows) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                for (int c = 0; c < columns.length && c < row.length; c++) m.put(columns[c], row[c]);
+                records.add(m);
+            }
+            Map<String, Object> out = new LinkedHashMap<>();
+            out.put("report", name);
+            out.put("scope", scope);
+            out.put("rows", records);
+            w.write(Json.write(out));
+            w.write("\n");
+            return;
+        }
+        w.write(csvLine(columns));
+        for (Object[] row : rows) w.write(csvLine(row));
+        if (outDir == null) w.write("\n");
+    }
+
+    private static String csvLine(Object[] cells) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < cells.length; i++) {
+            if (i > 0) sb.append(',');
+            String s = cells[i] == null ? "" : cells[i].toString();
+            if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0) {
+                sb.append('"').append(s.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(s);
+            }
+        }
+        return sb.append('\n').toString();
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private static <T> T get(Future<T> job) throws InterruptedException {
+        try {
+            return job.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static String value(List<String> args, int i, String option) {
+        if (i >= args.size()) throw new IllegalArgumentException(option + " needs a value.");
+        return args.get(i);
+    }
+
+    private static int number(String s, String option) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(option + " needs a number.");
+        }
+    }
+}
@@ -1,12 +1,80 @@
 import javax.swing.SwingUtilities;
+import repository.CommitLog;
+import repository.DataStore;
+import repository.DataWatcher;
+import server.ApiServer;
+import server.MetricsEndpoint;
+import service.SequenceService;
 import ui.LoginFrame;
 import ui.Theme;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class Main {
+    /**
+     * No arguments: the Swing app.
+     * --server [port]: the JSON API only (default port 8080, see ApiServer).
+     * --server [port] --ui: both, sharing one in-memory data store.
+     * -Dafs.metrics.port=N without --server: serve /metrics on its own port.
+     */
     public static void main(String[] args) {
+        List<String> argList = Arrays.asList(args);
+        boolean server = argList.contains("--server");
+        boolean ui = !server || argList.contains("--ui");
+
+        // Finish any multi-file save that a crash interrupted.
+        try {
+            CommitLog.recover();
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+
+        // Fold pending grade/feedback log records back into the .txt files on exit,
+        // and save how far the ID sequences got.
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            DataStore.compactAll();
+            SequenceService.release();
+        }));
+
+        // Pick up edits made by other copies of the app or by hand while running.
+        DataWatcher.start();
+
+        if (server) {
+            try {
+                ApiServer api = new ApiServer(port(args));
+                api.start();
+                Runtime.getRuntime().addShutdownHook(new Thread(api::stop));
+            } catch (Exception e) {
+                System.err.println("Could not start the API server: " + e.getMessage());
+                System.exit(1);
+            }
+        } else if (Integer.getInteger("afs.metrics.port") != null) {
+            try {
+                MetricsEndpoint.start(Integer.getInteger("afs.metrics.port"));
+            } catch (Exception e) {
+                System.err.println("Could not start the metrics endpoint: " + e.getMessage());
+            }
+        }
+        if (!ui) return;
+
         SwingUtilities.invokeLater(() -> {
             Theme.applyDarkTheme();
             new LoginFrame().setVisible(true);
         });
     }
+
+    // The argument after --server, if it is a number.
+    private static int port(String[] args) {
+        for (int i = 0; i + 1 < args.length; i++) {
+            if ("--server".equals(args[i])) {
+                try {
+                    return Integer.parseInt(args[i + 1]);
+                } catch (NumberFormatException ignored) {
+                    break;
+                }
+            }
+        }
+        return 8080;
+    }
 }
@@ -1,72 +1,68 @@
 package controller;
 
+import event.EventBus;
+import event.FeedbackSaved;
+import event.GradeSaved;
 import model.Assessment;
 import model.Feedback;
 import model.Grade;
 import model.Lecturer;
 import model.Student;
+import repository.DataStore;
+import repository.KeyedTable;
+import repository.Locks;
+import repository.Row;
+import repository.Transaction;
+import service.GradingService;
+import service.SequenceService;
 import util.Constants;
 
-import util.FileManager;
-
-import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
 public class FileHandler {
     public void saveLecturer(Lecturer lecturer) {
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
-                new FileWriter(Constants.LECTURERS_FILE, true)))) {
-            writer.println(lecturer.toFileString());
-        } catch (IOException e) {
-            throw new RuntimeException("Error saving lecturer", e);
+        try {
+            DataStore.lecturers().append(lecturer.toFileString());
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Error saving lecturer", e.getCause());
         }
     }
 
     public List<Lecturer> loadLecturers() {
         List<Lecturer> lecturers = new ArrayList<>();
-        File file = new File(Constants.LECTURERS_FILE);
-        if (!file.exists()) {
-            return lecturers;
-        }
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] data = line.split("\\|");
-                if (data.length < 9) {
-                    continue;
-                }
-                Lecturer lecturer = new Lecturer();
-                lecturer.setUsername(data[0]);
-                lecturer.setPassword(data[1]);
-                lecturer.setName(data[2]);
-                lecturer.setGender(data[3]);
-                lecturer.setEmail(data[4]);
-                lecturer.setPhone(data[5]);
-                lecturer.setAge(Integer.parseInt(data[6]));
-                lecturer.setAssignedModuleId(data[7]);
-                lecturer.setAcademicLeaderId(data[8]);
-                lecturers.add(lecturer);
+        for (Row data : DataStore.lecturers().rows()) {
+            if (data.size() < 9) {
+                continue;
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Error reading lecturers", e);
+            Lecturer lecturer = new Lecturer();
+            lecturer.setUsername(data.get(0));
+            lecturer.setPassword(data.get(1));
+            lecturer.setName(data.get(2));
+            lecturer.setGender(data.get(3));
+            lecturer.setEmail(data.get(4));
+            lecturer.setPhone(data.get(5));
+            lecturer.setAge(Integer.parseInt(data.get(6)));
+            lecturer.setAssignedModuleId(data.get(7));
+            lecturer.setAcademicLeaderId(data.get(8));
+            lecturers.add(lecturer);
         }
         return lecturers;
     }
 
     public void updateLecturer(Lecturer updatedLecturer) {
         if (updatedLecturer == null) return;
+        Locks.write(Arrays.asList(DataStore.users(), DataStore.lecturers()), () -> saveLecturerProfile(updatedLecturer));
+    }
+
+    private void saveLecturerProfile(Lecturer updatedLecturer) {
 
         String userId = safe(updatedLecturer.getUserId());
         String username = safe(updatedLecturer.getUsername());
@@ -74,12 +70,10 @@ public class FileHandler {
         String previousUsername = "";
         String previousPassword = "";
 
-        List<String> lines = FileManager.readAll(Constants.USERS_FILE);
         List<String> out = new ArrayList<>();
         boolean updatedUser = false;
 
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
+        for (String line : DataStore.users().lines()) {
             String[] parts = line.split("\\|");
 
             if (parts.length >= 9) {
@@ -119,16 +113,11 @@ public class FileHandler {
                     safe(updatedLecturer.getEmail()) + "|" + safe(updatedLecturer.getPhone()) + "|" +
                     updatedLecturer.getAge() + "|LECTURER");
         }
-        FileManager.writeAll(Constants.USERS_FILE, out);
-
-
-        List<String> lecLines = FileManager.readAll(Constants.LECTURERS_FILE);
         List<String> lecOut = new ArrayList<>();
         boolean updatedLecturerRow = false;
         String finalPassword = safe(updatedLecturer.getPassword()).isEmpty() ? previousPassword : safe(updatedLecturer.getPassword());
 
-        for (String line : lecLines) {
-            if (line == null || line.trim().isEmpty()) continue;
+        for (String line : DataStore.lecturers().lines()) {
             String[] parts = line.split("\\|");
             boolean byCurrentUsername = !username.isEmpty() && parts.length >= 9 && safe(parts[0]).equalsIgnoreCase(username);
             boolean byPreviousUsername = !previousUsername.isEmpty() && parts.length >= 9 && safe(parts[0]).equalsIgnoreCase(previousUsername);
@@ -163,7 +152,15 @@ public class FileHandler {
                     safe(updatedLecturer.getAcademicLeaderId())
             );
         }
-        FileManager.writeAll(Constants.LECTURERS_FILE, lecOut);
+        // users.txt and lecturers.txt change together or not at all.
+        try {
+            Transaction.begin()
+                    .writeAll(DataStore.users(), out)
+                    .writeAll(DataStore.lecturers(), lecOut)
+                    .commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save lecturer profile: " + e.getMessage(), e);
+        }
     }
 
     private static String safe(String s) {
@@ -171,44 +168,24 @@ public class FileHandler {
     }
 
     public void saveAssessment(Assessment assessment) {
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
-                new FileWriter(Constants.ASSESSMENTS_FILE, true)))) {
-            writer.println(assessment.toFileString());
-        } catch (IOException e) {
-            throw new RuntimeException("Error saving assessment", e);
+        checkAssessment(assessment);
+        if (safe(assessment.getAssessmentId()).isEmpty()) {
+            assessment.setAssessmentId(SequenceService.next(SequenceService.Kind.ASSESSMENT));
+        }
+        try {
+            DataStore.assessments().append(assessment.toFileString());
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException("Error saving assessment", e.getCause());
         }
     }
 
     public List<Assessment> loadAssessments() {
-        List<Assessment> assessments = new ArrayList<>();
-        File file = new File(Constants.ASSESSMENTS_FILE);
-        if (!file.exists()) {
-            return assessments;
-        }
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] data = line.split("\\|");
-                if (data.length < 7) {
-                    continue;
-                }
-                Assessment assessment = new Assessment(
-                        data[0], data[1], data[2], data[3],
-                        Double.parseDouble(data[4]),
-                        Double.parseDouble(data[5]),
-                        data[6]
-                );
-                assessments.add(assessment);
-            }
-        } catch (FileNotFoundException e) {
-            return assessments;
-        }
-        return assessments;
+        return toAssessments(DataStore.assessments().rows());
     }
 
     public List<Assessment> loadAssessmentsByModule(String moduleId) {
         List<Assessment> results = new ArrayList<>();
-        for (Assessment assessment : loadAssessments()) {
+        for (Assessment assessment : toAssessments(DataStore.assessments().where(1, moduleId))) {
             if (assessment.getModuleId().equals(moduleId)) {
                 results.add(assessment);
             }
@@ -216,34 +193,62 @@ public class FileHandler {
         return results;
     }
 
-    public void updateAssessment(Assessment updatedAssessment) {
-        List<Assessment> assessments = loadAssessments();
-        for (int i = 0; i < assessments.size(); i++) {
-            if (assessments.get(i).getAssessmentId().equals(updatedAssessment.getAssessmentId())) {
-                assessments.set(i, updatedAssessment);
-                break;
+    private List<Assessment> toAssessments(List<Row> rows) {
+        List<Assessment> assessments = new ArrayList<>();
+        for (Row data : rows) {
+            if (data.size() < 7) {
+                continue;
             }
+            assessments.add(new Assessment(
+                    data.get(0), data.get(1), data.get(2), data.get(3),
+                    Double.parseDouble(data.get(4)),
+                    Double.parseDouble(data.get(5)),
+                    data.get(6)
+            ));
         }
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
-                new FileWriter(Constants.ASSESSMENTS_FILE)))) {
-            for (Assessment assessment : assessments) {
-                writer.println(assessment.toFileString());
+        return assessments;
+    }
+
+    public void updateAssessment(Assessment updatedAssessment) {
+        checkAssessment(updatedAssessment);
+        Locks.write(DataStore.assessments(), () -> {
+            List<Assessment> assessments = loadAssessments();
+            for (int i = 0; i < assessments.size(); i++) {
+                if (assessments.get(i).getAssessmentId().equals(updatedAssessment.getAssessmentId())) {
+                    assessments.set(i, updatedAssessment);
+                    break;
+                }
             }
-        } catch (IOException e) {
-            throw new RuntimeException("Error updating assessments", e);
-        }
+            writeAssessments(assessments, "Error updating assessments");
+        });
     }
 
     public void deleteAssessment(String assessmentId) {
-        List<Assessment> assessments = loadAssessments();
-        assessments.removeIf(a -> a.getAssessmentId().equals(assessmentId));
-        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
-                new FileWriter(Constants.ASSESSMENTS_FILE)))) {
-            for (Assessment assessment : assessments) {
-                writer.println(assessment.toFileString());
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Error deleting assessment", e);
+        Locks.write(DataStore.assessments(), () -> {
+            List<Assessment> assessments = loadAssessments();
+            assessments.removeIf(a -> a.getAssessmentId().equals(assessmentId));
+            writeAssessments(assessments, "Error deleting assessment");
+        });
+    }
+
+    // An assessment row is written whole, so one bad field could add or corrupt rows.
+    private static void checkAssessment(Assessment a) {
+        Row.checkField("Assessment ID", a.getAssessmentId());
+        Row.checkField("Module ID", a.getModuleId());
+        Row.checkField("Assessment name", a.getAssessmentName());
+        Row.checkField("Assessment type", a.getAssessmentType());
+        Row.checkField("Created by", a.getCreatedBy());
+    }
+
+    private void writeAssessments(List<Assessment> assessments, String error) {
+        List<String> lines = new ArrayList<>();
+        for (Assessment assessment : assessments) {
+            lines.add(assessment.toFileString());
+        }
+        try {
+            DataStore.assessments().writeAll(lines);
+        } catch (UncheckedIOException e) {
+            throw new RuntimeException(error, e.getCause());
         }
     }
 
@@ -258,65 +263,40 @@ public class FileHandler {
         String studentId = safe(feedback.getStudentId());
         if (assessmentId.isEmpty() || studentId.isEmpty()) return;
 
-        List<String> lines = FileManager.readAll(Constants.FEEDBACK_FILE);
-        List<String> out = new ArrayList<>();
-        boolean updated = false;
-
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 6) {
-                out.add(line);
-                continue;
-            }
-
-            boolean sameAssessment = safe(p[1]).equalsIgnoreCase(assessmentId);
-            boolean sameStudent = safe(p[2]).equalsIgnoreCase(studentId);
-
-            if (sameAssessment && sameStudent) {
-                if (!updated) {
-                    String feedbackId = safe(feedback.getFeedbackId()).isEmpty() ? safe(p[0]) : safe(feedback.getFeedbackId());
-                    String lecturerId = safe(feedback.getLecturerId()).isEmpty() ? safe(p[3]) : safe(feedback.getLecturerId());
-                    String feedbackText = safe(feedback.getFeedbackText()).isEmpty() ? safe(p[4]) : safe(feedback.getFeedbackText());
-                    String dateProvided = safe(feedback.getDateProvided()).isEmpty() ? safe(p[5]) : safe(feedback.getDateProvided());
-
-                    out.add(feedbackId + "|" + assessmentId + "|" + studentId + "|" +
-                            lecturerId + "|" + feedbackText + "|" + dateProvided);
-                    updated = true;
-                }
+        // One log append per save; the table keeps a single row per assessment+student.
+        // The key lock keeps two saves of the same row from merging against the same old value.
+        KeyedTable table = DataStore.feedback();
+        Locks.key(table, assessmentId + "|" + studentId, () -> mergeFeedback(table, feedback, assessmentId, studentId));
+        EventBus.publish(new FeedbackSaved(assessmentId, studentId));
+    }
 
-                continue;
+    private void mergeFeedback(KeyedTable table, Feedback feedback, String assessmentId, String studentId) {
+        Row p = table.find(assessmentId, studentId);
+        if (p == null) {
+            if (safe(feedback.getFeedbackId()).isEmpty()) {
+                feedback.setFeedbackId(SequenceService.next(SequenceService.Kind.FEEDBACK));
             }
-
-            out.add(line);
+            table.upsert(feedback.toFileString());
+            return;
         }
 
-        if (!updated) {
-            out.add(feedback.toFileString());
-        }
+        String feedbackId = safe(feedback.getFeedbackId()).isEmpty() ? p.get(0) : safe(feedback.getFeedbackId());
+        String lecturerId = safe(feedback.getLecturerId()).isEmpty() ? p.get(3) : safe(feedback.getLecturerId());
+        String feedbackText = safe(feedback.getFeedbackText()).isEmpty() ? p.get(4) : safe(feedback.getFeedbackText());
+        String dateProvided = safe(feedback.getDateProvided()).isEmpty() ? p.get(5) : safe(feedback.getDateProvided());
 
-        FileManager.writeAll(Constants.FEEDBACK_FILE, out);
+        table.upsert(feedbackId + "|" + assessmentId + "|" + studentId + "|" +
+                lecturerId + "|" + feedbackText + "|" + dateProvided);
     }
 
     public List<Feedback> loadFeedback() {
         List<Feedback> feedbackList = new ArrayList<>();
-        File file = new File(Constants.FEEDBACK_FILE);
-        if (!file.exists()) {
-            return feedbackList;
-        }
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] data = line.split("\\|");
-                if (data.length < 6) {
-                    continue;
-                }
-                Feedback feedback = new Feedback(
-                        data[0], data[1], data[2], data[3], data[4], data[5]);
-                feedbackList.add(feedback);
+        for (Row data : DataStore.feedback().rows()) {
+            if (data.size() < 6) {
+                continue;
             }
-        } catch (FileNotFoundException e) {
-            return feedbackList;
+            feedbackList.add(new Feedback(
+                    data.get(0), data.get(1), data.get(2), data.get(3), data.get(4), data.get(5)));
         }
         return feedbackList;
     }
@@ -326,118 +306,108 @@ public class FileHandler {
         Map<String, String> userIdToName = new HashMap<>();
 
 
-        File usersFile = new File(Constants.USERS_FILE);
-        if (usersFile.exists()) {
-            try (Scanner sc = new Scanner(usersFile)) {
-                while (sc.hasNextLine()) {
-                    String uLine = sc.nextLine().trim();
-                    if (uLine.isEmpty()) continue;
-                    String[] up = uLine.split("\\|");
-                    if (up.length >= 9) {
-                        userIdToName.put(up[0].trim(), up[3].trim());
-                    }
-                }
-            } catch (FileNotFoundException ignored) {}
+        for (Row up : DataStore.users().rows()) {
+            if (up.size() >= 9) {
+                userIdToName.put(up.get(0), up.get(3));
+            }
         }
 
+        // Resolved once per load, not once per compact row.
+        Map<String, String> studentModules = studentModuleMap();
+
         // Supported formats:
         // 1) username|password|name|gender|email|phone|age|studentId|moduleId
         // 2) legacy: username|password|name|gender|email|phone|age|studentId|extra|moduleId
         // 3) studentId|name|moduleId
         // 4) studentId|userId (module derived from student_classes/classes)
         // 5) legacy: studentId|userId|extra (module derived from student_classes/classes)
-        File file = new File(Constants.STUDENTS_FILE);
-        if (!file.exists()) return students;
-
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine().trim();
-                if (line.isEmpty()) continue;
-                String[] data = line.split("\\|");
-
-                if (data.length >= 10) {
-                    String studentId = data[7].trim();
-                    String name = data[2].trim();
-                    String moduleId = data[9].trim();
-                    students.add(new Student(studentId, name, moduleId));
-                    continue;
-                }
+        for (Row data : DataStore.students().rows()) {
+            if (data.size() >= 10) {
+                String studentId = data.get(7);
+                String name = data.get(2);
+                String moduleId = data.get(9);
+                students.add(new Student(studentId, name, moduleId));
+                continue;
+            }
 
-                if (data.length >= 9) {
-                    String studentId = data[7].trim();
-                    String name = data[2].trim();
-                    String moduleId = data[8].trim();
-                    students.add(new Student(studentId, name, moduleId));
-                    continue;
-                }
+            if (data.size() >= 9) {
+                String studentId = data.get(7);
+                String name = data.get(2);
+                String moduleId = data.get(8);
+                students.add(new Student(studentId, name, moduleId));
+                continue;
+            }
 
-                if (data.length >= 3) {
-                    String studentId = data[0].trim();
-                    String second = data[1].trim();
-                    String third = data[2].trim();
-
-                    // studentId|userId|extra (legacy)
-                    if (userIdToName.containsKey(second)) {
-                        String name = userIdToName.get(second);
-                        String moduleId = findModuleForStudent(studentId);
-                        Student student = new Student(studentId, name, moduleId);
-                        students.add(student);
-                        continue;
-                    }
-
-                    // studentId|name|moduleId
-                    Student student = new Student(studentId, second, third);
+            if (data.size() >= 3) {
+                String studentId = data.get(0);
+                String second = data.get(1);
+                String third = data.get(2);
+
+                // studentId|userId|extra (legacy)
+                if (userIdToName.containsKey(second)) {
+                    String name = userIdToName.get(second);
+                    String moduleId = findModuleForStudent(studentModules, studentId);
+                    Student student = new Student(studentId, name, moduleId);
                     students.add(student);
                     continue;
                 }
 
-                if (data.length >= 2) {
-                    String studentId = data[0].trim();
-                    String second = data[1].trim();
+                // studentId|name|moduleId
+                Student student = new Student(studentId, second, third);
+                students.add(student);
+                continue;
+            }
+
+            if (data.size() >= 2) {
+                String studentId = data.get(0);
+                String second = data.get(1);
 
-                    // studentId|userId (current compact)
-                    if (userIdToName.containsKey(second)) {
-                        String name = userIdToName.get(second);
-                        String moduleId = findModuleForStudent(studentId);
-                        students.add(new Student(studentId, name, moduleId));
-                    }
+                // studentId|userId (current compact)
+                if (userIdToName.containsKey(second)) {
+                    String name = userIdToName.get(second);
+                    String moduleId = findModuleForStudent(studentModules, studentId);
+                    students.add(new Student(studentId, name, moduleId));
                 }
             }
-        } catch (FileNotFoundException e) {
-            return students;
         }
         return students;
     }
 
-    private String findModuleForStudent(String studentId) {
-        // Read student_classes.txt to find classIds for this student
-        File scFile = new File(Constants.STUDENT_CLASSES_FILE);
-        if (!scFile.exists()) return "";
-        try (Scanner sc = new Scanner(scFile)) {
-            while (sc.hasNextLine()) {
-                String line = sc.nextLine().trim();
-                if (line.isEmpty()) continue;
-                String[] parts = line.split("\\|");
-                if (parts.length >= 2 && parts[0].trim().equalsIgnoreCase(studentId)) {
-                    String classId = parts[1].trim();
-                    // Find moduleId from classes.txt
-                    File classFile = new File(Constants.CLASSES_FILE);
-                    if (classFile.exists()) {
-                        try (Scanner cs = new Scanner(classFile)) {
-                            while (cs.hasNextLine()) {
-                                String cLine = cs.nextLine().trim();
-                                if (cLine.isEmpty()) continue;
-                                String[] cp = cLine.split("\\|");
-                                if (cp.length >= 3 && cp[0].trim().equalsIgnoreCase(classId)) {
-                                    return cp[2].trim();
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        } catch (FileNotFoundException ignored) {}
-        return "";
+    private String findModuleForStudent(Map<String, String> studentModules, String studentId) {
+        String moduleId = studentModules.get(safe(studentId).toUpperCase());
+        return moduleId == null ? "" : moduleId;
+    }
+
+    // studentId (upper) -> moduleId of the student's first registration whose
+    // class exists. Rebuilt in one pass when student_classes.txt or
+    // classes.txt is reloaded (the tables hand out a new row list then).
+    private static List<Row> memoRegistrations;
+    private static List<Row> memoClasses;
+    private static Map<String, String> memoStudentModules = new HashMap<>();
+
+    private static synchronized Map<String, String> studentModuleMap() {
+        List<Row> registrations = DataStore.studentClasses().rows();
+        List<Row> classes = DataStore.classes().rows();
+        if (registrations == memoRegistrations && classes == memoClasses) {
+            return memoStudentModules;
+        }
+
+        Map<String, String> classToModule = new HashMap<>();
+        for (Row cp : classes) {
+            if (cp.size() >= 3) classToModule.putIfAbsent(cp.get(0).toUpperCase(), cp.get(2));
+        }
+
+        Map<String, String> studentToModule = new HashMap<>();
+        for (Row parts : registrations) {
+            if (parts.size() < 2) continue;
+            String moduleId = classToModule.get(parts.get(1).toUpperCase());
+            if (moduleId != null) studentToModule.putIfAbsent(parts.get(0).toUpperCase(), moduleId);
+        }
+
+        memoRegistrations = registrations;
+        memoClasses = classes;
+        memoStudentModules = studentToModule;
+        return studentToModule;
     }
 
     public void saveGrade(Grade grade) {
@@ -451,63 +421,59 @@ public class FileHandler {
         String studentId = safe(grade.getStudentId());
         if (assessmentId.isEmpty() || studentId.isEmpty()) return;
 
-        List<String> lines = FileManager.readAll(Constants.GRADES_FILE);
-        List<String> out = new ArrayList<>();
-        boolean updated = false;
-
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 7) {
-                out.add(line);
-                continue;
-            }
+        // One log append per save; duplicates for the same assessment+student collapse in the table.
+        KeyedTable table = DataStore.grades();
+        Locks.key(table, assessmentId + "|" + studentId, () -> table.upsert(mergeGradeLine(table, grade)));
+        EventBus.publish(new GradeSaved(assessmentId, studentId));
+    }
 
-            boolean sameAssessment = safe(p[1]).equalsIgnoreCase(assessmentId);
-            boolean sameStudent = safe(p[2]).equalsIgnoreCase(studentId);
-            if (sameAssessment && sameStudent) {
-                if (!updated) {
-                    String gradeId = safe(grade.getGradeId()).isEmpty() ? safe(p[0]) : safe(grade.getGradeId());
-                    String lecturerId = safe(grade.getLecturerId()).isEmpty() ? safe(p[5]) : safe(grade.getLecturerId());
-                    String date = safe(grade.getDateEntered()).isEmpty() ? safe(p[6]) : safe(grade.getDateEntered());
-                    out.add(gradeId + "|" + assessmentId + "|" + studentId + "|" +
-                            grade.getMarks() + "|" + safe(grade.getGrade()) + "|" + lecturerId + "|" + date);
-                    updated = true;
-                }
-                // Drop duplicates for same assessment+student.
-                continue;
+    /**
+     * Save a whole mark sheet: every grade is merged against the stored rows
+     * (keyed by assessmentId+studentId) and grades.txt is rewritten once.
+     */
+    public void saveGrades(List<Grade> grades) {
+        if (grades == null || grades.isEmpty()) return;
+
+        KeyedTable table = DataStore.grades();
+        List<Grade> saved = new ArrayList<>();
+        Locks.write(table, () -> {
+            List<String> lines = new ArrayList<>();
+            for (Grade grade : grades) {
+                if (grade == null) continue;
+                if (safe(grade.getAssessmentId()).isEmpty() || safe(grade.getStudentId()).isEmpty()) continue;
+                lines.add(mergeGradeLine(table, grade));
+                saved.add(grade);
             }
+            table.upsertAll(lines);
+        });
+        for (Grade grade : saved) EventBus.publish(new GradeSaved(grade.getAssessmentId(), grade.getStudentId()));
+    }
 
-            out.add(line);
-        }
-
-        if (!updated) {
-            out.add(grade.toFileString());
+    private String mergeGradeLine(KeyedTable table, Grade grade) {
+        String assessmentId = safe(grade.getAssessmentId());
+        String studentId = safe(grade.getStudentId());
+        Row p = table.find(assessmentId, studentId);
+        if (p == null) {
+            if (safe(grade.getGradeId()).isEmpty()) grade.setGradeId(SequenceService.next(SequenceService.Kind.GRADE));
+            return grade.toFileString();
         }
 
-        FileManager.writeAll(Constants.GRADES_FILE, out);
+        String gradeId = safe(grade.getGradeId()).isEmpty() ? p.get(0) : safe(grade.getGradeId());
+        String lecturerId = safe(grade.getLecturerId()).isEmpty() ? p.get(5) : safe(grade.getLecturerId());
+        String date = safe(grade.getDateEntered()).isEmpty() ? p.get(6) : safe(grade.getDateEntered());
+        return gradeId + "|" + assessmentId + "|" + studentId + "|" +
+                grade.getMarks() + "|" + safe(grade.getGrade()) + "|" + lecturerId + "|" + date;
     }
 
     public List<Grade> loadGrades() {
         List<Grade> grades = new ArrayList<>();
-        File file = new File(Constants.GRADES_FILE);
-        if (!file.exists()) {
-            return grades;
-        }
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                String[] data = line.split("\\|");
-                if (data.length < 7) {
-                    continue;
-                }
-                Grade grade = new Grade(
-                        data[0], data[1], data[2],
-                        Double.parseDouble(data[3]), data[4], data[5], data[6]);
-                grades.add(grade);
+        for (Row data : DataStore.grades().rows()) {
+            if (data.size() < 7) {
+                continue;
             }
-        } catch (FileNotFoundException e) {
-            return grades;
+            grades.add(new Grade(
+                    data.get(0), data.get(1), data.get(2),
+                    Double.parseDouble(data.get(3)), data.get(4), data.get(5), data.get(6)));
         }
         return grades;
     }
@@ -523,43 +489,22 @@ public class FileHandler {
 
         if (!file.exists()) return grading;
 
-        try (Scanner scanner = new Scanner(file)) {
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine();
-                if (line == null || line.trim().isEmpty()) continue;
-
-                String[] data = line.split("\\|");
-                if (data.length < 3) continue;
-
-                try {
-                    grading.put(data[0].trim(), new int[]{
-                            Integer.parseInt(data[1].trim()),
-                            Integer.parseInt(data[2].trim())
-                    });
-                } catch (Exception ignored) {
-                    // Skip malformed grading rows.
-                }
+        for (Row data : DataStore.table(file.getPath()).rows()) {
+            if (data.size() < 3) continue;
+
+            try {
+                grading.put(data.get(0), new int[]{
+                        Integer.parseInt(data.get(1)),
+                        Integer.parseInt(data.get(2))
+                });
+            } catch (Exception ignored) {
+                // Skip malformed grading rows.
             }
-        } catch (FileNotFoundException e) {
-            return grading;
         }
         return grading;
     }
 
     public String calculateGrade(double marks, double total) {
-        if (total <= 0) return "";
-        double percentage = (marks / total) * 100.0;
-        if (percentage < 0) percentage = 0;
-        if (percentage > 100) percentage = 100;
-
-        for (Map.Entry<String, int[]> entry : loadGradingSystem().entrySet()) {
-            int min = entry.getValue()[0];
-            int max = entry.getValue()[1];
-            // Treat integer boundaries as full bands so decimal percentages don't fall into gaps.
-            if (percentage >= min && percentage < (max + 1.0)) {
-                return entry.getKey();
-            }
-        }
-        return "";
+        return GradingService.getScheme().gradeFor(marks, total);
     }
 }
@@ -5,8 +5,10 @@ import model.Feedback;
 import model.Grade;
 import model.Lecturer;
 import model.Student;
-import util.Constants;
-import util.FileManager;
+import repository.DataStore;
+import repository.Row;
+import service.GradingScheme;
+import service.GradingService;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
@@ -89,15 +91,10 @@ public class LecturerController {
             return false;
         }
 
-        for (String line : FileManager.readAll(Constants.MODULES_FILE)) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 6) continue;
+        for (Row p : DataStore.modules().where(0, moduleKey)) {
+            if (p.size() < 6) continue;
 
-            String rowModuleId = safe(p[0]).toUpperCase();
-            String rowLecturerId = safe(p[5]).toUpperCase();
-
-            if (moduleKey.equals(rowModuleId) && lecturerKey.equals(rowLecturerId)) {
+            if (lecturerKey.equals(p.get(5).toUpperCase())) {
                 return true;
             }
         }
@@ -151,31 +148,27 @@ public class LecturerController {
     }
 
     public void saveGrades(List<Grade> grades) {
-        for (Grade grade : grades) {
-            fileHandler.saveOrUpdateGrade(grade);
-        }
+        fileHandler.saveGrades(grades);
     }
 
     public List<Grade> getGradesByAssessment(String assessmentId) {
         List<Grade> result = new ArrayList<>();
-        for (Grade grade : fileHandler.loadGrades()) {
-            if (assessmentId.equals(grade.getAssessmentId())) {
-                result.add(grade);
-            }
+        for (Row p : DataStore.grades().where(1, assessmentId)) {
+            if (p.size() < 7 || !p.equalsAt(1, assessmentId)) continue;
+            result.add(new Grade(p.get(0), p.get(1), p.get(2),
+                    Double.parseDouble(p.get(3)), p.get(4), p.get(5), p.get(6)));
         }
         return result;
     }
 
     public Feedback getFeedback(String assessmentId, String studentId) {
-        List<Feedback> list = fileHandler.loadFeedback();
-        for (int i = list.size() - 1; i >= 0; i--) {
-            Feedback feedback = list.get(i);
-            if (assessmentId.equals(feedback.getAssessmentId())
-                    && studentId.equals(feedback.getStudentId())) {
-                return feedback;
-            }
+        // feedback.txt keeps one row per assessment+student, so this is a single key lookup.
+        Row p = DataStore.feedback().find(assessmentId, studentId);
+        if (p == null || p.size() < 6
+                || !p.equalsAt(1, assessmentId) || !p.equalsAt(2, studentId)) {
+            return null;
         }
-        return null;
+        return new Feedback(p.get(0), p.get(1), p.get(2), p.get(3), p.get(4), p.get(5));
     }
 
     public void saveFeedback(Feedback feedback) {
@@ -186,6 +179,11 @@ public class LecturerController {
         return fileHandler.calculateGrade(marks, total);
     }
 
+    /** Compiled bands; fetch once when grading a whole mark sheet. */
+    public GradingScheme getGradingScheme() {
+        return GradingService.getScheme();
+    }
+
     public String today() {
         return LocalDate.now().toString();
     }
@@ -196,13 +194,10 @@ public class LecturerController {
         if (moduleKey.isEmpty()) return enrolled;
 
         Set<String> classIdsForModule = new LinkedHashSet<>();
-        for (String line : FileManager.readAll(Constants.CLASSES_FILE)) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 3) continue;
-            String classId = safe(p[0]).toUpperCase();
-            String classModuleId = safe(p[2]).toUpperCase();
-            if (!classId.isEmpty() && moduleKey.equals(classModuleId)) {
+        for (Row p : DataStore.classes().where(2, moduleKey)) {
+            if (p.size() < 3) continue;
+            String classId = p.get(0).toUpperCase();
+            if (!classId.isEmpty()) {
                 classIdsForModule.add(classId);
             }
         }
@@ -210,18 +205,15 @@ public class LecturerController {
         if (classIdsForModule.isEmpty()) return enrolled;
 
         Set<String> seenStudentIds = new LinkedHashSet<>();
-        for (String line : FileManager.readAll(Constants.STUDENT_CLASSES_FILE)) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 2) continue;
-            String studentId = safe(p[0]);
-            String classId = safe(p[1]).toUpperCase();
-            if (studentId.isEmpty() || classId.isEmpty()) continue;
-            if (!classIdsForModule.contains(classId)) continue;
-
-            String key = studentId.toUpperCase();
-            if (seenStudentIds.add(key)) {
-                enrolled.add(studentId);
+        for (String classId : classIdsForModule) {
+            for (Row p : DataStore.studentClasses().where(1, classId)) {
+                String studentId = p.get(0);
+                if (studentId.isEmpty()) continue;
+
+                String key = studentId.toUpperCase();
+                if (seenStudentIds.add(key)) {
+                    enrolled.add(studentId);
+                }
             }
         }
 
@@ -0,0 +1,17 @@
+package event;
+
+/**
+ * Something the app saved, published on the EventBus once the write succeeded.
+ * Events of the same type and key() within one batch collapse to the latest.
+ */
+public abstract class DomainEvent {
+
+    DomainEvent() {
+    }
+
+    abstract String key();
+
+    static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
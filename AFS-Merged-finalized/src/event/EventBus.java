@@ -0,0 +1,115 @@
+package event;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process publish/subscribe for DomainEvents.
+ * - publish() only queues: events are delivered in batches every
+ *   afs.events.batchMs (default 50), with repeats of the same key collapsed,
+ *   so saving a mark sheet of 200 rows is one call per subscriber, not 200.
+ * - Each subscriber names the event types it wants and an Executor to be
+ *   called on (screens pass SwingUtilities::invokeLater, so no Swing here).
+ * - With no subscribers (Batch, a bare API server) publish() does nothing.
+ */
+public final class EventBus {
+
+    public interface Listener {
+        /** Events of the subscribed types in publish order; never empty. */
+        void onEvents(List<DomainEvent> events);
+    }
+
+    private static final long BATCH_MS = Math.max(0, Long.getLong("afs.events.batchMs", 50));
+
+    private static final List<Subscription> SUBSCRIPTIONS = new CopyOnWriteArrayList<>();
+
+    // type|key -> latest event; guarded by itself
+    private static final Map<String, DomainEvent> PENDING = new LinkedHashMap<>();
+    private static boolean scheduled;
+    private static ScheduledExecutorService timer;
+
+    private EventBus() {
+    }
+
+    /** types: the event classes wanted; none = every event. Subscribing again replaces the old subscription. */
+    @SafeVarargs
+    public static void subscribe(Listener l, Executor delivery, Class<? extends DomainEvent>... types) {
+        unsubscribe(l);
+        Set<Class<?>> wanted = new HashSet<>();
+        for (Class<? extends DomainEvent> t : types) wanted.add(t);  // copied, not wrapped: the caller owns the array
+        SUBSCRIPTIONS.add(new Subscription(l, delivery, wanted));
+    }
+
+    public static void unsubscribe(Listener l) {
+        SUBSCRIPTIONS.removeIf(s -> s.listener == l);
+    }
+
+    public static void publish(DomainEvent event) {
+        if (event == null || SUBSCRIPTIONS.isEmpty()) return;
+        synchronized (PENDING) {
+            PENDING.put(event.getClass().getSimpleName() + "|" + event.key(), event);
+            if (scheduled) return;
+            scheduled = true;
+            timer().schedule(EventBus::flush, BATCH_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Deliver everything queued now rather than at the end of the batch window. */
+    public static void flush() {
+        List<DomainEvent> batch;
+        synchronized (PENDING) {
+            batch = new ArrayList<>(PENDING.values());
+            PENDING.clear();
+            scheduled = false;
+        }
+        if (batch.isEmpty()) return;
+        for (Subscription s : SUBSCRIPTIONS) s.deliver(batch);
+    }
+
+    private static ScheduledExecutorService timer() {
+        if (timer == null) {
+            timer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "event-bus");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return timer;
+    }
+
+    private static final class Subscription {
+        final Listener listener;
+        final Executor delivery;
+        final Set<Class<?>> types;
+
+        Subscription(Listener listener, Executor delivery, Set<Class<?>> types) {
+            this.listener = listener;
+            this.delivery = delivery == null ? Runnable::run : delivery;
+            this.types = types;
+        }
+
+        void deliver(List<DomainEvent> batch) {
+            List<DomainEvent> wanted = new ArrayList<>();
+            for (DomainEvent e : batch) {
+                if (types.isEmpty() || types.contains(e.getClass())) wanted.add(e);
+            }
+            if (wanted.isEmpty()) return;
+            delivery.execute(() -> {
+                try {
+                    listener.onEvents(wanted);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                }
+            });
+        }
+    }
+}
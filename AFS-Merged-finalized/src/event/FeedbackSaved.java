@@ -0,0 +1,26 @@
+package event;
+
+/** Feedback was saved for one assessment+student. */
+public final class FeedbackSaved extends DomainEvent {
+
+    private final String assessmentId;
+    private final String studentId;
+
+    public FeedbackSaved(String assessmentId, String studentId) {
+        this.assessmentId = safe(assessmentId);
+        this.studentId = safe(studentId);
+    }
+
+    public String getAssessmentId() {
+        return assessmentId;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    @Override
+    String key() {
+        return (assessmentId + "|" + studentId).toUpperCase();
+    }
+}
@@ -0,0 +1,20 @@
+package event;
+
+/** A grading scheme was created or one of its bands added, changed or deleted. */
+public final class GradingSchemeChanged extends DomainEvent {
+
+    private final String scheme;
+
+    public GradingSchemeChanged(String scheme) {
+        this.scheme = safe(scheme);
+    }
+
+    public String getScheme() {
+        return scheme;
+    }
+
+    @Override
+    String key() {
+        return scheme.toLowerCase();
+    }
+}
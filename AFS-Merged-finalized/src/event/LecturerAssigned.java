@@ -0,0 +1,42 @@
+package event;
+
+/**
+ * A lecturer was assigned to (or removed from) a module by its leader, or
+ * paired with (or unpaired from) a leader by an admin; moduleId is "" then.
+ */
+public final class LecturerAssigned extends DomainEvent {
+
+    private final String leaderId;
+    private final String moduleId;
+    private final String lecturerId;
+    private final boolean assigned;
+
+    public LecturerAssigned(String leaderId, String moduleId, String lecturerId, boolean assigned) {
+        this.leaderId = safe(leaderId);
+        this.moduleId = safe(moduleId);
+        this.lecturerId = safe(lecturerId);
+        this.assigned = assigned;
+    }
+
+    public String getLeaderId() {
+        return leaderId;
+    }
+
+    public String getModuleId() {
+        return moduleId;
+    }
+
+    public String getLecturerId() {
+        return lecturerId;
+    }
+
+    /** False when the lecturer was removed. */
+    public boolean isAssigned() {
+        return assigned;
+    }
+
+    @Override
+    String key() {
+        return (leaderId + "|" + moduleId + "|" + lecturerId).toUpperCase();
+    }
+}
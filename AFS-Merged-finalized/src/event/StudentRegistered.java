@@ -0,0 +1,26 @@
+package event;
+
+/** A student registered for a class (student_classes.txt). */
+public final class StudentRegistered extends DomainEvent {
+
+    private final String studentId;
+    private final String classId;
+
+    public StudentRegistered(String studentId, String classId) {
+        this.studentId = safe(studentId);
+        this.classId = safe(classId);
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public String getClassId() {
+        return classId;
+    }
+
+    @Override
+    String key() {
+        return (studentId + "|" + classId).toUpperCase();
+    }
+}
@@ -0,0 +1,329 @@
+package repository;
+
+import util.Constants;
+import util.FileManager;
+import util.ProcessLock;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Redo log shared by all transactions (data/commit.log).
+ *
+ * Record layout, one per transaction:
+ *   BEGIN|txId|fileCount
+ *   FILE|path relative to the data folder|lineCount
+ *   ...lineCount lines...
+ *   COMMIT|txId|crc32 of every line above, in hex
+ *
+ * Group commit: callers queue up; one of them writes every queued record
+ * with a single append and a single sync, applies them in order, then
+ * empties the log. The others wait and return when their group is done.
+ * If applying fails, the log is swapped for a record of the files' old
+ * contents and that is applied instead, so a caller told "failed" never
+ * finds its changes on disk later. Only a crash, or a rollback that failed
+ * too, leaves a record behind; table writers replay it before they write
+ * (see Locks) and so does startup.
+ * A record without a valid COMMIT line (torn write) is ignored on recovery.
+ * Other copies of the app share the log: append, apply and empty happen
+ * under its ProcessLock.
+ */
+public final class CommitLog {
+
+    private static final Object LOCK = new Object();
+    private static final List<Transaction> QUEUE = new ArrayList<>();
+    private static boolean flushing;
+    private static long nextTxId = 1;
+
+    private CommitLog() {
+    }
+
+    /**
+     * Redo every committed record left by a crash, then empty the log.
+     * Called on startup and before table writes (replayPending).
+     * Holds the write locks of the files it rewrites, like any writer.
+     * Returns the number of transactions replayed.
+     */
+    public static int recover() throws IOException {
+        while (true) {
+            // Read once to learn which files to lock, then again under the locks.
+            List<Table> tables = tablesOf(readLog());
+            Integer replayed;
+            try {
+                replayed = Locks.writeLocked(tables, () -> recoverLocked(tables));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            if (replayed != null) return replayed;
+        }
+    }
+
+    /** recover() if the log is not empty; a failure is thrown as UncheckedIOException. */
+    static void replayPending() {
+        if (new File(Constants.COMMIT_LOG_FILE).length() == 0) return;
+        try {
+            recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not replay " + Constants.COMMIT_LOG_FILE, e);
+        }
+    }
+
+    static void commit(Transaction tx) throws IOException {
+        List<Transaction> batch;
+        synchronized (LOCK) {
+            QUEUE.add(tx);
+            boolean interrupted = false;
+            while (flushing && !tx.done) interrupted |= await();
+            if (interrupted) Thread.currentThread().interrupt();
+            if (tx.done) {
+                if (tx.error != null) throw tx.error;
+                return;
+            }
+            flushing = true;
+            batch = new ArrayList<>(QUEUE);
+            QUEUE.clear();
+        }
+
+        IOException failure = null;
+        ProcessLock shared = ProcessLock.forFile(Constants.COMMIT_LOG_FILE);
+        try {
+            shared.lock();
+            try {
+                flush(batch);
+            } finally {
+                shared.unlock();
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (RuntimeException e) {
+            failure = new IOException(e.getMessage(), e);
+        }
+
+        synchronized (LOCK) {
+            for (Transaction t : batch) {
+                t.error = failure;
+                t.done = true;
+            }
+            flushing = false;
+            LOCK.notifyAll();
+        }
+        if (failure != null) throw failure;
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    // Runs with flushing = true and the log's ProcessLock, so only one thread
+    // of one process writes the log at a time. It takes no table locks: the
+    // batch's threads hold theirs and wait for this one.
+    private static void flush(List<Transaction> batch) throws IOException {
+        if (new File(Constants.COMMIT_LOG_FILE).length() > 0) {
+            // Left by another process since these writers replayed it; its
+            // files may be locked by threads waiting on this batch.
+            if (!readLog().isEmpty()) {
+                throw new IOException(Constants.COMMIT_LOG_FILE + " holds unfinished changes; try again.");
+            }
+            deleteLog();  // only a torn record, which would hide the ones appended after it
+        }
+
+        List<String> records = new ArrayList<>();
+        Map<Table, List<String>> before = new LinkedHashMap<>();
+        for (Transaction tx : batch) {
+            appendRecord(records, nextId(), tx.staged());
+            for (Table t : tx.staged().keySet()) {
+                if (!before.containsKey(t)) before.put(t, t.lines());
+            }
+        }
+
+        File log = new File(Constants.COMMIT_LOG_FILE);
+        log.getAbsoluteFile().getParentFile().mkdirs();
+        try (FileOutputStream out = new FileOutputStream(log, true);
+             BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+            for (String line : records) {
+                bw.write(line);
+                bw.newLine();
+            }
+            bw.flush();
+            if (FileManager.getSyncPolicy() != FileManager.SyncPolicy.NONE) out.getFD().sync();
+        }
+
+        try {
+            for (Transaction tx : batch) {
+                for (Map.Entry<Table, List<String>> e : tx.staged().entrySet()) {
+                    e.getKey().replace(e.getValue());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            rollback(before, e);
+            throw e;
+        }
+        deleteLog();
+    }
+
+    // Put back the old contents of every file in the group. The log holds
+    // them first (one atomic replace), so a crash from here on ends the same way.
+    private static void rollback(Map<Table, List<String>> before, Exception cause) {
+        try {
+            List<String> undo = new ArrayList<>();
+            appendRecord(undo, nextId(), before);
+            FileManager.replaceFile(Constants.COMMIT_LOG_FILE, undo);
+            for (Map.Entry<Table, List<String>> e : before.entrySet()) {
+                e.getKey().replace(e.getValue());
+            }
+            deleteLog();
+        } catch (IOException | RuntimeException e) {
+            cause.addSuppressed(e);  // log kept; replayed before the next write
+        }
+    }
+
+    // Runs with the write locks of tables; null if the log now names other files.
+    private static Integer recoverLocked(List<Table> tables) {
+        synchronized (LOCK) {
+            boolean interrupted = false;
+            while (flushing) interrupted |= await();
+            if (interrupted) Thread.currentThread().interrupt();
+            ProcessLock shared = ProcessLock.forFile(Constants.COMMIT_LOG_FILE);
+            shared.lock();
+            try {
+                List<Map<String, List<String>>> records = readLog();
+                if (!tables.containsAll(tablesOf(records))) return null;
+                for (Map<String, List<String>> files : records) {
+                    for (Map.Entry<String, List<String>> e : files.entrySet()) {
+                        DataStore.table(resolve(e.getKey())).replace(e.getValue());
+                    }
+                }
+                deleteLog();
+                return records.size();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                shared.unlock();
+            }
+        }
+    }
+
+    // Committed records in log order (path relative to the data folder -> lines),
+    // up to the first torn one.
+    private static List<Map<String, List<String>>> readLog() {
+        List<String> lines = FileManager.readAll(Constants.COMMIT_LOG_FILE);
+        List<Map<String, List<String>>> records = new ArrayList<>();
+        int i = 0;
+        while (i < lines.size()) {
+            String[] begin = lines.get(i).split("\\|", -1);
+            if (begin.length != 3 || !"BEGIN".equals(begin[0])) break;
+
+            CRC32 crc = new CRC32();
+            update(crc, lines.get(i));
+            Map<String, List<String>> files = new LinkedHashMap<>();
+            int j = i + 1;
+            int fileCount = parse(begin[2]);
+            boolean complete = fileCount >= 0;
+            for (int f = 0; complete && f < fileCount; f++) {
+                String[] header = j < lines.size() ? lines.get(j).split("\\|", -1) : new String[0];
+                int count = header.length == 3 && "FILE".equals(header[0]) ? parse(header[2]) : -1;
+                if (count < 0 || j + 1 + count > lines.size()) {
+                    complete = false;
+                    break;
+                }
+                update(crc, lines.get(j));
+                List<String> content = new ArrayList<>(lines.subList(j + 1, j + 1 + count));
+                for (String s : content) update(crc, s);
+                files.put(header[1], content);
+                j += 1 + count;
+            }
+
+            String expected = begin[1] + "|" + Long.toHexString(crc.getValue());
+            if (!complete || j >= lines.size() || !lines.get(j).equals("COMMIT|" + expected)) break;
+            records.add(files);
+            i = j + 1;
+        }
+        return records;
+    }
+
+    private static List<Table> tablesOf(List<Map<String, List<String>>> records) {
+        List<Table> out = new ArrayList<>();
+        for (Map<String, List<String>> files : records) {
+            for (String path : files.keySet()) {
+                Table t = DataStore.table(resolve(path));
+                if (!out.contains(t)) out.add(t);
+            }
+        }
+        return out;
+    }
+
+    private static long nextId() {
+        synchronized (LOCK) {
+            return nextTxId++;
+        }
+    }
+
+    private static void appendRecord(List<String> out, long id, Map<Table, List<String>> staged) {
+        CRC32 crc = new CRC32();
+        String begin = "BEGIN|" + id + "|" + staged.size();
+        out.add(begin);
+        update(crc, begin);
+        for (Map.Entry<Table, List<String>> e : staged.entrySet()) {
+            String header = "FILE|" + relative(e.getKey().getFilePath()) + "|" + e.getValue().size();
+            out.add(header);
+            update(crc, header);
+            for (String line : e.getValue()) {
+                out.add(line);
+                update(crc, line);
+            }
+        }
+        out.add("COMMIT|" + id + "|" + Long.toHexString(crc.getValue()));
+    }
+
+    private static void deleteLog() throws IOException {
+        File log = new File(Constants.COMMIT_LOG_FILE);
+        if (log.exists() && !log.delete()) {
+            FileManager.replaceFile(log.getPath(), new ArrayList<>());
+        }
+    }
+
+    private static void update(CRC32 crc, String line) {
+        crc.update(line.getBytes(StandardCharsets.UTF_8));
+        crc.update('\n');
+    }
+
+    private static String relative(String filePath) {
+        Path dir = Paths.get(Constants.DATA_DIR).toAbsolutePath().normalize();
+        Path file = Paths.get(filePath).toAbsolutePath().normalize();
+        return file.startsWith(dir) ? dir.relativize(file).toString() : file.toString();
+    }
+
+    private static String resolve(String path) {
+        return Paths.get(Constants.DATA_DIR).resolve(path).toString();
+    }
+
+    private static int parse(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Waits for the current group; the caller restores an interrupt afterwards.
+    private static boolean await() {
+        try {
+            LOCK.wait();
+            return false;
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+}
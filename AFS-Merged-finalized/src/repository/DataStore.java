@@ -0,0 +1,90 @@
+package repository;
+
+import util.Constants;
+
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * DataStore
+ * ---------
+ * Shared registry of in-memory tables, one per data file.
+ * Services read from these tables instead of calling FileManager.readAll,
+ * so each file is parsed once and then served from memory.
+ *
+ * Column layouts (see Constants for file names):
+ * users:           userId|username|password|name|gender|email|phone|age|role
+ * modules:         moduleId|moduleName|moduleCode|creditHours|leaderId|lecturerId
+ * classes:         classId|className|moduleId
+ * student_classes: studentId|classId
+ * assessments:     assessmentId|moduleId|name|type|totalMarks|weightage|createdBy
+ * grades:          gradeId|assessmentId|studentId|marks|grade|lecturerId|date
+ * feedback:        feedbackId|assessmentId|studentId|lecturerId|text|date
+ *
+ * grades and feedback are KeyedTables (unique per assessmentId+studentId),
+ * so saving one mark is a single log append instead of a full rewrite.
+ */
+public final class DataStore {
+
+    private static final Map<String, Table> TABLES = new ConcurrentHashMap<>();
+
+    private DataStore() {
+    }
+
+    public static Table table(String filePath) {
+        return TABLES.computeIfAbsent(key(filePath), k -> create(filePath, k));
+    }
+
+    /** The table for a file if one was created, else null; never creates one. */
+    public static Table loaded(String filePath) {
+        return TABLES.get(key(filePath));
+    }
+
+    public static Collection<Table> loadedTables() {
+        return Collections.unmodifiableCollection(TABLES.values());
+    }
+
+    /** Called by FileManager after any direct write so the cached copy is dropped. */
+    public static void invalidate(String filePath) {
+        Table t = TABLES.get(key(filePath));
+        if (t != null) t.invalidate();
+    }
+
+    public static void invalidateAll() {
+        for (Table t : TABLES.values()) t.invalidate();
+    }
+
+    /** Fold pending upsert logs back into their data files (e.g. on shutdown). */
+    public static void compactAll() {
+        for (Table t : TABLES.values()) {
+            if (t instanceof KeyedTable) ((KeyedTable) t).compact();
+        }
+    }
+
+    public static Table users() { return table(Constants.USERS_FILE); }
+    public static Table lecturers() { return table(Constants.LECTURERS_FILE); }
+    public static Table students() { return table(Constants.STUDENTS_FILE); }
+    public static Table modules() { return table(Constants.MODULES_FILE); }
+    public static Table classes() { return table(Constants.CLASSES_FILE); }
+    public static Table studentClasses() { return table(Constants.STUDENT_CLASSES_FILE); }
+    public static Table assessments() { return table(Constants.ASSESSMENTS_FILE); }
+    public static KeyedTable grades() { return (KeyedTable) table(Constants.GRADES_FILE); }
+    public static KeyedTable feedback() { return (KeyedTable) table(Constants.FEEDBACK_FILE); }
+    public static Table grading() { return table(Constants.GRADING_FILE); }
+    public static Table comments() { return table(Constants.COMMENTS_FILE); }
+    public static Table leaderLecturer() { return table(Constants.LEADER_LECTURER_FILE); }
+
+    private static Table create(String filePath, String key) {
+        // gradeId|assessmentId|studentId|...  and  feedbackId|assessmentId|studentId|...
+        if (key.equals(key(Constants.GRADES_FILE))) return new KeyedTable(filePath, 7, 1, 2);
+        if (key.equals(key(Constants.FEEDBACK_FILE))) return new KeyedTable(filePath, 6, 1, 2);
+        return new Table(filePath);
+    }
+
+    private static String key(String filePath) {
+        return Paths.get(filePath).toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,149 @@
+package repository;
+
+import util.Constants;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the data folder so edits made outside this process (another copy
+ * of the app, Batch, a text editor) reach open screens without a restart.
+ * - Only tables already loaded are refreshed; an append is read
+ *   incrementally, anything else reloads just that table (Table.refresh).
+ * - Events are collected until the folder is quiet for afs.watchDebounceMs
+ *   (default 200, at most ten times that), so a burst of writes costs one
+ *   refresh per file.
+ * - Subscribers get the names of the files that changed (e.g. "grades.txt"),
+ *   on the watcher thread. A loaded table is only reported when its refresh
+ *   found a change, so this process's own table writes are not; files read
+ *   without a table (FileManager.readAll) are reported on every event.
+ * Off with -Dafs.watch=false. Where the OS sends no events (some network
+ * shares) the stamp check on every table read still catches changes.
+ */
+public final class DataWatcher {
+
+    public interface Listener {
+        void filesChanged(Set<String> fileNames);
+    }
+
+    private static final long DEBOUNCE_MS = Math.max(0, Long.getLong("afs.watchDebounceMs", 200));
+
+    private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+    private static WatchService service;
+
+    private DataWatcher() {
+    }
+
+    public static void subscribe(Listener l) {
+        LISTENERS.add(l);
+    }
+
+    public static void unsubscribe(Listener l) {
+        LISTENERS.remove(l);
+    }
+
+    public static synchronized void start() {
+        if (service != null || !Boolean.parseBoolean(System.getProperty("afs.watch", "true"))) return;
+        Path dir = Paths.get(Constants.DATA_DIR).toAbsolutePath();
+        try {
+            WatchService ws = FileSystems.getDefault().newWatchService();
+            dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            service = ws;
+        } catch (IOException e) {
+            e.printStackTrace();  // reads still notice changes through the stamp check
+            return;
+        }
+        WatchService ws = service;
+        Thread t = new Thread(() -> run(ws, dir), "data-watcher");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    public static synchronized void stop() {
+        if (service == null) return;
+        try {
+            service.close();
+        } catch (IOException ignored) {
+        }
+        service = null;
+    }
+
+    // --------------------------
+    // Watch loop
+    // --------------------------
+
+    private static void run(WatchService ws, Path dir) {
+        try {
+            while (true) {
+                WatchKey key = ws.take();
+                Set<String> touched = new LinkedHashSet<>();
+                boolean overflow = false;
+                long deadline = System.currentTimeMillis() + 10 * DEBOUNCE_MS;
+                do {
+                    overflow |= collect(key, touched);
+                    if (!key.reset()) return;  // folder deleted
+                    key = System.currentTimeMillis() < deadline ? ws.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS) : null;
+                } while (key != null);
+
+                if (overflow) {
+                    for (Table t : DataStore.loadedTables()) touched.add(fileName(t));
+                }
+                Set<String> changed = new LinkedHashSet<>();
+                for (String name : touched) {
+                    Table t = DataStore.loaded(dir.resolve(name).toString());
+                    if (t == null || t.refresh()) changed.add(name);
+                }
+                if (!changed.isEmpty()) notifyListeners(Collections.unmodifiableSet(changed));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // stop()
+        }
+    }
+
+    // Adds the data files behind the key's events; true if events were lost.
+    private static boolean collect(WatchKey key, Set<String> touched) {
+        boolean overflow = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            String name = event.context().toString();
+            // grades.txt.log belongs to grades.txt (KeyedTable)
+            if (name.endsWith(".txt.log")) name = name.substring(0, name.length() - 4);
+            if (name.endsWith(".txt")) touched.add(name);
+        }
+        return overflow;
+    }
+
+    private static String fileName(Table t) {
+        return Paths.get(t.getFilePath()).getFileName().toString();
+    }
+
+    private static void notifyListeners(Set<String> changed) {
+        for (Listener l : new ArrayList<>(LISTENERS)) {
+            try {
+                l.filesChanged(changed);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+}
@@ -0,0 +1,327 @@
+package repository;
+
+import util.FileManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Table whose rows are unique by a composite key (e.g. assessmentId+studentId).
+ * - upsert(...) costs one append to a sibling log file (grades.txt.log).
+ * - On load, the log is replayed over the canonical file; later records win.
+ * - Every COMPACT_EVERY records the merged rows are written back to the
+ *   canonical file and the log is removed, so the .txt stays the source of truth.
+ * - Listeners see each upsert as a (before, after) pair, and a reload when the
+ *   file was changed by something other than this table.
+ */
+public class KeyedTable extends Table {
+
+    /** Called with the table lock held; implementations must not block or call back into the table. */
+    public interface Listener {
+        /** before is null when the key was new. */
+        void rowChanged(Row before, Row after);
+
+        /** Rows were reloaded from disk; any derived state must be rebuilt. */
+        void reloaded();
+    }
+
+    private static final int COMPACT_EVERY = 500;
+
+    private final int minColumns;
+    private final int[] keyColumns;
+    private final File logFile;
+
+    // Mutable working copy; rows() publishes a snapshot of it lazily.
+    private final List<Row> working = new ArrayList<>();
+    private final Map<String, Integer> positions = new HashMap<>();
+    private boolean dirty;
+    private int pending;
+    private boolean selfWrite;
+    private Row lastLogged;  // last row in the log, to spot appends by other processes
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    KeyedTable(String filePath, int minColumns, int... keyColumns) {
+        super(filePath);
+        this.minColumns = minColumns;
+        this.keyColumns = keyColumns;
+        this.logFile = new File(filePath + ".log");
+    }
+
+    public String getLogPath() {
+        return logFile.getPath();
+    }
+
+    public void addListener(Listener l) {
+        listeners.add(l);
+    }
+
+    public void removeListener(Listener l) {
+        listeners.remove(l);
+    }
+
+    /** Row currently stored for the key, or null. Values are matched case-insensitively. */
+    public synchronized Row find(String... key) {
+        super.ensureLoaded();
+        Integer pos = positions.get(joinKey(key));
+        return pos == null ? null : working.get(pos);
+    }
+
+    /**
+     * Insert or replace the row with the same key; one append to the log.
+     * Holds the file's read lock only, so upserts of different keys do not
+     * wait for each other (callers merging with the stored row use Locks.key).
+     */
+    public void upsert(String line) {
+        if (line == null || line.trim().isEmpty()) return;
+        Locks.replayCommitLog();
+        Locks.read(this, () -> {
+            // Other copies of the app append to the same log and compact it.
+            processLock.lock();
+            try {
+                upsertRow(line);
+            } finally {
+                processLock.unlock();
+            }
+        });
+    }
+
+    private synchronized void upsertRow(String line) {
+        super.ensureLoaded();
+
+        try {
+            FileManager.appendLine(logFile.getPath(), line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + logFile.getPath(), e);
+        }
+        Row row = new Row(line);
+        Row before = put(row);
+        reindex(before, row);
+        fireChanged(before, row);
+        lastLogged = row;
+        pending++;
+        dirty = true;
+        restamp();
+
+        if (pending >= COMPACT_EVERY) compactRows();
+    }
+
+    /**
+     * Upsert many rows at once: merged in memory, then written as one
+     * rewrite of the canonical file (which also folds in any pending log).
+     * If the rewrite fails, the log is kept, the merged rows are dropped
+     * (the next read reloads the file and log) and the error is thrown.
+     */
+    public void upsertAll(List<String> lines) {
+        if (lines == null || lines.isEmpty()) return;
+        Locks.write(this, () -> upsertRows(lines));
+    }
+
+    private synchronized void upsertRows(List<String> lines) {
+        super.ensureLoaded();
+        List<Row[]> changes = new ArrayList<>();
+        for (String line : lines) {
+            if (line == null || line.trim().isEmpty()) continue;
+            Row row = new Row(line);
+            changes.add(new Row[]{put(row), row});
+        }
+
+        List<Row> rows = new ArrayList<>(working);
+        List<String> merged = new ArrayList<>(rows.size());
+        for (Row r : rows) merged.add(r.line());
+        selfWrite = true;
+        try {
+            FileManager.replaceFile(filePath, merged);
+            // The write invalidates this table; the merged rows are already
+            // parsed and de-duplicated, so reinstall them instead of re-reading.
+            install(rows);
+        } catch (IOException e) {
+            invalidate();
+            throw new UncheckedIOException("Could not write " + filePath, e);
+        } finally {
+            selfWrite = false;
+        }
+        dropLog();
+        for (Row[] c : changes) fireChanged(c[0], c[1]);
+    }
+
+    /**
+     * Write merged rows back to the canonical file and drop the log.
+     * Needs no file lock: the rows stay the same, only where they are stored changes.
+     */
+    public void compact() {
+        processLock.lock();
+        try {
+            compactRows();
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    private synchronized void compactRows() {
+        ensureLoaded();
+        if (pending == 0 && !logFile.exists()) return;
+        try {
+            rewrite(lines());
+        } catch (IOException e) {
+            e.printStackTrace();  // log kept; replayed on next load
+        }
+    }
+
+    @Override
+    public void append(String line) {
+        upsert(line);
+    }
+
+    /** Replace all rows (writeAll and transactions); listeners see it as a reload. */
+    @Override
+    synchronized void replace(List<String> lines) throws IOException {
+        rewrite(lines);
+        fireReloaded();
+    }
+
+    @Override
+    public synchronized void invalidate() {
+        super.invalidate();
+        working.clear();
+        positions.clear();
+        dirty = false;
+        if (!selfWrite) fireReloaded();
+    }
+
+    @Override
+    protected void ensureLoaded() {
+        super.ensureLoaded();
+        if (dirty) {
+            // Indexes were kept up to date by upsert(); only the row list is republished.
+            publish(new ArrayList<>(working));
+            dirty = false;
+        }
+    }
+
+    @Override
+    protected List<Row> load() {
+        List<Row> base = super.load();
+        List<Row> logged = parse(FileManager.readAll(logFile.getPath()));
+        pending = logged.size();
+        lastLogged = logged.isEmpty() ? null : logged.get(logged.size() - 1);
+        if (logged.isEmpty()) return base;
+
+        rebuildWorking(base);
+        for (Row r : logged) put(r);
+        return new ArrayList<>(working);
+    }
+
+    /**
+     * Another process upserted: replay just the new log records, and let
+     * listeners see them as row changes. A rewritten canonical file
+     * (compaction, writeAll) still means a full reload.
+     */
+    @Override
+    protected boolean loadAppended(long[] was, long[] now) {
+        for (int i = 0; i < 3; i++) {
+            if (was[i] != now[i]) return false;
+        }
+        List<Row> added = appendedRows(logFile, was, now, 3, lastLogged);
+        if (added == null) return false;
+        for (Row row : added) {
+            Row before = put(row);
+            reindex(before, row);
+            fireChanged(before, row);
+            lastLogged = row;
+            pending++;
+        }
+        dirty = true;
+        return true;
+    }
+
+    @Override
+    protected long[] stamp() {
+        long[] s = new long[6];
+        stampOf(file, s, 0);
+        stampOf(logFile, s, 3);
+        return s;
+    }
+
+    @Override
+    protected void install(List<Row> parsed) {
+        // Publish the de-duplicated rows, so rows() always agrees with find().
+        rebuildWorking(parsed);
+        super.install(new ArrayList<>(working));
+        dirty = false;
+        if (!selfWrite) fireReloaded();
+    }
+
+    private void rewrite(List<String> lines) throws IOException {
+        // Canonical file first, then the log: a crash in between only replays
+        // upserts that are already in the file.
+        selfWrite = true;
+        try {
+            super.replace(lines);
+        } finally {
+            selfWrite = false;
+        }
+        dropLog();
+    }
+
+    private void dropLog() {
+        if (logFile.exists() && !logFile.delete()) {
+            FileManager.writeAll(logFile.getPath(), new ArrayList<>());
+        }
+        pending = 0;
+        lastLogged = null;
+        restamp();
+    }
+
+    private void rebuildWorking(List<Row> rows) {
+        working.clear();
+        positions.clear();
+        for (Row r : rows) put(r);
+    }
+
+    // Same key keeps its first position and takes the newest value,
+    // matching the old saveOrUpdate behaviour (update in place, drop duplicates).
+    // Returns the row that was replaced, or null.
+    private Row put(Row r) {
+        if (r.size() < minColumns) {
+            working.add(r);
+            return null;
+        }
+        String k = keyOf(r);
+        Integer pos = positions.get(k);
+        if (pos == null) {
+            positions.put(k, working.size());
+            working.add(r);
+            return null;
+        }
+        return working.set(pos, r);
+    }
+
+    private void fireChanged(Row before, Row after) {
+        for (Listener l : listeners) l.rowChanged(before, after);
+    }
+
+    private void fireReloaded() {
+        for (Listener l : listeners) l.reloaded();
+    }
+
+    private String keyOf(Row r) {
+        String[] parts = new String[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) parts[i] = r.get(keyColumns[i]);
+        return joinKey(parts);
+    }
+
+    private static String joinKey(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String p : parts) {
+            sb.append(p == null ? "" : p.trim().toUpperCase()).append('|');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,170 @@
+package repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
+
+/**
+ * Read/write locks over the data files, one per table.
+ * - read(...): shared; readers never wait for each other, only for a writer.
+ * - write(...): exclusive; hold it around a read-modify-write of a whole file
+ *   (read rows, build new lines, writeAll) so no other update is lost.
+ *   Several tables are locked in file-path order, so two writers of the
+ *   same files cannot deadlock. Take every file of one operation in one call.
+ * - key(...): the file's read lock plus a per-key stripe, for updating one
+ *   keyed row (find, merge, upsert). Different keys proceed in parallel;
+ *   whole-file writers wait for all of them.
+ * Locks are reentrant, and a write lock may take reads of the same file. A
+ * read lock cannot be upgraded: asking for the write lock while holding only
+ * the read lock throws IllegalStateException instead of deadlocking.
+ *
+ * Table's own write methods take these locks themselves; the locks only
+ * matter to callers that read first and write afterwards.
+ *
+ * write(...) also takes each file's ProcessLock, after all in-process locks,
+ * so copies of the app sharing the data folder do not overwrite each other.
+ * Rows read inside it are current: rows() reloads a file whose stamp changed.
+ * read(...) and key(...) take no process lock; writes are atomic renames,
+ * and KeyedTable.upsert takes the process lock around its own append.
+ *
+ * The outermost write(...) or key(...) on a thread first replays whatever a
+ * crash left in the commit log (CommitLog.replayPending), so no write lands
+ * on a file the log is about to overwrite.
+ */
+public final class Locks {
+
+    // Lock calls this thread is inside, counting reentry.
+    private static final ThreadLocal<int[]> DEPTH = ThreadLocal.withInitial(() -> new int[1]);
+
+    private Locks() {
+    }
+
+    public static <T> T read(Table table, Supplier<T> body) {
+        return read(Collections.singletonList(table), body);
+    }
+
+    public static void read(Table table, Runnable body) {
+        read(Collections.singletonList(table), asSupplier(body));
+    }
+
+    /** Consistent view over several files, e.g. users.txt together with students.txt. */
+    public static <T> T read(List<Table> tables, Supplier<T> body) {
+        List<Table> ordered = ordered(tables);
+        int locked = 0;
+        try {
+            for (Table t : ordered) {
+                t.lock.readLock().lock();
+                locked++;
+            }
+            return inside(body);
+        } finally {
+            for (int i = locked - 1; i >= 0; i--) ordered.get(i).lock.readLock().unlock();
+        }
+    }
+
+    public static <T> T write(Table table, Supplier<T> body) {
+        return write(Collections.singletonList(table), body);
+    }
+
+    public static void write(Table table, Runnable body) {
+        write(Collections.singletonList(table), asSupplier(body));
+    }
+
+    public static void write(List<Table> tables, Runnable body) {
+        write(tables, asSupplier(body));
+    }
+
+    public static <T> T write(List<Table> tables, Supplier<T> body) {
+        replayCommitLog();
+        return writeLocked(tables, body);
+    }
+
+    /** write(...) without the commit log replay; for CommitLog itself. */
+    static <T> T writeLocked(List<Table> tables, Supplier<T> body) {
+        List<Table> ordered = ordered(tables);
+        for (Table t : ordered) {
+            if (t.lock.getReadHoldCount() > 0 && !t.lock.isWriteLockedByCurrentThread()) {
+                throw new IllegalStateException("Cannot write " + t.getFilePath() + " while reading it on the same thread.");
+            }
+        }
+        int locked = 0;
+        int shared = 0;
+        try {
+            for (Table t : ordered) {
+                t.lock.writeLock().lock();
+                locked++;
+            }
+            for (Table t : ordered) {
+                t.processLock.lock();
+                shared++;
+            }
+            return inside(body);
+        } finally {
+            for (int i = shared - 1; i >= 0; i--) ordered.get(i).processLock.unlock();
+            for (int i = locked - 1; i >= 0; i--) ordered.get(i).lock.writeLock().unlock();
+        }
+    }
+
+    /** key is matched case-insensitively, like the tables' indexes; join composite keys with '|'. */
+    public static <T> T key(Table table, String key, Supplier<T> body) {
+        replayCommitLog();
+        Lock read = table.lock.readLock();
+        Lock stripe = table.stripe(key);
+        read.lock();
+        try {
+            stripe.lock();
+            try {
+                return inside(body);
+            } finally {
+                stripe.unlock();
+            }
+        } finally {
+            read.unlock();
+        }
+    }
+
+    public static void key(Table table, String key, Runnable body) {
+        key(table, key, asSupplier(body));
+    }
+
+    /** Replays the commit log unless this thread already holds locks (the outer call did it). */
+    static void replayCommitLog() {
+        if (DEPTH.get()[0] == 0) CommitLog.replayPending();
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private static <T> T inside(Supplier<T> body) {
+        int[] depth = DEPTH.get();
+        depth[0]++;
+        try {
+            return body.get();
+        } finally {
+            depth[0]--;
+        }
+    }
+
+    private static List<Table> ordered(List<Table> tables) {
+        Set<Table> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Table> out = new ArrayList<>(tables.size());
+        for (Table t : tables) {
+            if (t != null && seen.add(t)) out.add(t);
+        }
+        out.sort(Comparator.comparing(t -> t.file.getAbsolutePath()));
+        return out;
+    }
+
+    private static Supplier<Void> asSupplier(Runnable body) {
+        return () -> {
+            body.run();
+            return null;
+        };
+    }
+}
@@ -0,0 +1,211 @@
+package repository;
+
+import util.Constants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Foreign-key map of the data files: which column of which file refers to
+ * users, students, modules, classes and assessments.
+ * Lookups go through the tables' column indexes (case-insensitive), which
+ * are built once per file and kept up to date by appends and upserts, so
+ * "is this ID still used" and "where is it used" never scan a file.
+ * Each column also says what happens to its rows when the referenced
+ * record is deleted (see service.CascadeService).
+ */
+public final class ReferenceIndex {
+
+    public enum Entity { LEADER, LECTURER, STUDENT, MODULE, CLASS, ASSESSMENT }
+
+    /** What deleting the referenced record does to a referencing row. */
+    public enum OnDelete {
+        /** The row is deleted too (and whatever refers to it, if it is a record itself). */
+        CASCADE,
+        /** The column is blanked; the row stays. */
+        CLEAR,
+        /** The delete is refused until the rows are reassigned. */
+        RESTRICT
+    }
+
+    /** One referencing column: file column -> entity ID. */
+    public static final class Ref {
+        private final Entity entity;
+        private final String filePath;
+        private final int column;
+        private final boolean header;
+        private final OnDelete onDelete;
+
+        private Ref(Entity entity, String filePath, int column, boolean header, OnDelete onDelete) {
+            this.entity = entity;
+            this.filePath = filePath;
+            this.column = column;
+            this.header = header;
+            this.onDelete = onDelete;
+        }
+
+        public Entity getEntity() { return entity; }
+        public String getFilePath() { return filePath; }
+        public int getColumn() { return column; }
+        public OnDelete getOnDelete() { return onDelete; }
+        /** True when the file's first line is a column header, not a record. */
+        public boolean hasHeader() { return header; }
+
+        /** Rows whose column equals any of the ids (blank ids ignored), in file order per id. */
+        public List<Row> rows(String... ids) {
+            Table table = DataStore.table(filePath);
+            List<Row> out = new ArrayList<>();
+            Set<Row> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (String id : ids) {
+                for (Row r : table.where(column, id)) {
+                    if (header && isHeader(table, r)) continue;
+                    if (seen.add(r)) out.add(r);
+                }
+            }
+            return out;
+        }
+
+        public boolean isUsed(String... ids) {
+            Table table = DataStore.table(filePath);
+            for (String id : ids) {
+                for (Row r : table.where(column, id)) {
+                    if (!header || !isHeader(table, r)) return true;
+                }
+            }
+            return false;
+        }
+
+        private static boolean isHeader(Table table, Row r) {
+            List<Row> all = table.rows();
+            return !all.isEmpty() && all.get(0) == r;
+        }
+
+        @Override
+        public String toString() {
+            return entity + " <- " + filePath + "[" + column + "]";
+        }
+    }
+
+    // Leader and lecturer IDs are user IDs; lecturer columns of grades,
+    // feedback and comments may also hold the lecturer's username.
+    // Marks, feedback and comments are kept when a lecturer leaves: they must
+    // be reassigned first. A module must always have a leader.
+    public static final Ref MODULE_LEADER = new Ref(Entity.LEADER, Constants.MODULES_FILE, 4, false, OnDelete.RESTRICT);
+    public static final Ref LEADER_ASSIGNMENT = new Ref(Entity.LEADER, Constants.LEADER_LECTURER_FILE, 0, true, OnDelete.CASCADE);
+
+    public static final Ref MODULE_LECTURER = new Ref(Entity.LECTURER, Constants.MODULES_FILE, 5, false, OnDelete.CLEAR);
+    public static final Ref LECTURER_ASSIGNMENT = new Ref(Entity.LECTURER, Constants.LEADER_LECTURER_FILE, 1, true, OnDelete.CASCADE);
+    public static final Ref GRADE_LECTURER = new Ref(Entity.LECTURER, Constants.GRADES_FILE, 5, false, OnDelete.RESTRICT);
+    public static final Ref FEEDBACK_LECTURER = new Ref(Entity.LECTURER, Constants.FEEDBACK_FILE, 3, false, OnDelete.RESTRICT);
+    public static final Ref COMMENT_LECTURER = new Ref(Entity.LECTURER, Constants.COMMENTS_FILE, 2, false, OnDelete.RESTRICT);
+
+    public static final Ref STUDENT_CLASS = new Ref(Entity.STUDENT, Constants.STUDENT_CLASSES_FILE, 0, false, OnDelete.CASCADE);
+    public static final Ref GRADE_STUDENT = new Ref(Entity.STUDENT, Constants.GRADES_FILE, 2, false, OnDelete.CASCADE);
+    public static final Ref FEEDBACK_STUDENT = new Ref(Entity.STUDENT, Constants.FEEDBACK_FILE, 2, false, OnDelete.CASCADE);
+    public static final Ref COMMENT_STUDENT = new Ref(Entity.STUDENT, Constants.COMMENTS_FILE, 1, false, OnDelete.CASCADE);
+
+    public static final Ref CLASS_MODULE = new Ref(Entity.MODULE, Constants.CLASSES_FILE, 2, false, OnDelete.CASCADE);
+    public static final Ref ASSESSMENT_MODULE = new Ref(Entity.MODULE, Constants.ASSESSMENTS_FILE, 1, false, OnDelete.CASCADE);
+    public static final Ref COMMENT_MODULE = new Ref(Entity.MODULE, Constants.COMMENTS_FILE, 3, false, OnDelete.CASCADE);
+
+    public static final Ref REGISTRATION_CLASS = new Ref(Entity.CLASS, Constants.STUDENT_CLASSES_FILE, 1, false, OnDelete.CASCADE);
+
+    public static final Ref GRADE_ASSESSMENT = new Ref(Entity.ASSESSMENT, Constants.GRADES_FILE, 1, false, OnDelete.CASCADE);
+    public static final Ref FEEDBACK_ASSESSMENT = new Ref(Entity.ASSESSMENT, Constants.FEEDBACK_FILE, 1, false, OnDelete.CASCADE);
+
+    private static final Map<Entity, List<Ref>> BY_ENTITY = new EnumMap<>(Entity.class);
+
+    // Files whose rows are records other files refer to: file -> (entity, id column).
+    private static final Map<String, Entity> OWNER_ENTITY = new LinkedHashMap<>();
+    private static final Map<String, Integer> OWNER_COLUMN = new LinkedHashMap<>();
+
+    static {
+        for (Ref r : Arrays.asList(
+                MODULE_LEADER, LEADER_ASSIGNMENT,
+                MODULE_LECTURER, LECTURER_ASSIGNMENT, GRADE_LECTURER, FEEDBACK_LECTURER, COMMENT_LECTURER,
+                STUDENT_CLASS, GRADE_STUDENT, FEEDBACK_STUDENT, COMMENT_STUDENT,
+                CLASS_MODULE, ASSESSMENT_MODULE, COMMENT_MODULE,
+                REGISTRATION_CLASS,
+                GRADE_ASSESSMENT, FEEDBACK_ASSESSMENT)) {
+            BY_ENTITY.computeIfAbsent(r.entity, k -> new ArrayList<>()).add(r);
+        }
+        owner(Constants.MODULES_FILE, Entity.MODULE, 0);
+        owner(Constants.CLASSES_FILE, Entity.CLASS, 0);
+        owner(Constants.ASSESSMENTS_FILE, Entity.ASSESSMENT, 0);
+    }
+
+    private static void owner(String filePath, Entity entity, int column) {
+        OWNER_ENTITY.put(filePath, entity);
+        OWNER_COLUMN.put(filePath, column);
+    }
+
+    private ReferenceIndex() {
+    }
+
+    /** Entity whose records are the rows of this file, or null (e.g. grades, comments). */
+    public static Entity ownerOf(String filePath) {
+        return OWNER_ENTITY.get(filePath);
+    }
+
+    /** Column holding the record id in a file returned by ownerOf, or -1. */
+    public static int ownerColumn(String filePath) {
+        Integer c = OWNER_COLUMN.get(filePath);
+        return c == null ? -1 : c;
+    }
+
+    /** File holding the entity's own records, or null when they are spread over user files. */
+    public static String fileOf(Entity entity) {
+        for (Map.Entry<String, Entity> e : OWNER_ENTITY.entrySet()) {
+            if (e.getValue() == entity) return e.getKey();
+        }
+        return null;
+    }
+
+    /** Every table holding records or references; a cascade locks them all at once (see Locks). */
+    public static List<Table> tables() {
+        Set<String> files = new LinkedHashSet<>(OWNER_ENTITY.keySet());
+        for (List<Ref> refs : BY_ENTITY.values()) {
+            for (Ref r : refs) files.add(r.filePath);
+        }
+        List<Table> out = new ArrayList<>(files.size());
+        for (String f : files) out.add(DataStore.table(f));
+        return out;
+    }
+
+    /** Every referencing column, grouped by entity. */
+    public static List<Ref> allRefs() {
+        List<Ref> out = new ArrayList<>();
+        for (List<Ref> refs : BY_ENTITY.values()) out.addAll(refs);
+        return out;
+    }
+
+    public static List<Ref> refsTo(Entity entity) {
+        List<Ref> refs = BY_ENTITY.get(entity);
+        return refs == null ? Collections.<Ref>emptyList() : Collections.unmodifiableList(refs);
+    }
+
+    /** Every referencing column that still holds one of the ids, with its rows. */
+    public static Map<Ref, List<Row>> whereUsed(Entity entity, String... ids) {
+        Map<Ref, List<Row>> out = new LinkedHashMap<>();
+        for (Ref ref : refsTo(entity)) {
+            List<Row> rows = ref.rows(ids);
+            if (!rows.isEmpty()) out.put(ref, rows);
+        }
+        return out;
+    }
+
+    public static boolean isReferenced(Entity entity, String... ids) {
+        for (Ref ref : refsTo(entity)) {
+            if (ref.isUsed(ids)) return true;
+        }
+        return false;
+    }
+}
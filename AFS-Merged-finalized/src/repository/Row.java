@@ -0,0 +1,186 @@
+package repository;
+
+/**
+ * One parsed line of a pipe-delimited data file.
+ * The line is scanned once for field boundaries (already trimmed); fields are
+ * views into the line. Comparisons and number parsing work in place, and a
+ * column only becomes a String when get() is called for it.
+ */
+public final class Row {
+
+    private final String line;
+    private final int[] bounds; // start0, end0, start1, end1, ... (trimmed)
+    private String[] values;    // filled lazily by get()
+
+    Row(String line) {
+        this.line = line;
+        this.bounds = scan(line);
+    }
+
+    /** Original line exactly as stored in the file. */
+    public String line() {
+        return line;
+    }
+
+    public int size() {
+        return bounds.length / 2;
+    }
+
+    /** Trimmed column value, or "" when the column is missing. */
+    public String get(int column) {
+        if (column < 0 || column >= size()) return "";
+        String[] v = values;
+        if (v == null) {
+            v = new String[size()];
+            values = v;
+        }
+        String s = v[column];
+        if (s == null) {
+            s = line.substring(bounds[2 * column], bounds[2 * column + 1]);
+            v[column] = s;
+        }
+        return s;
+    }
+
+    /** Length of the trimmed column, 0 when missing. */
+    public int length(int column) {
+        if (column < 0 || column >= size()) return 0;
+        return bounds[2 * column + 1] - bounds[2 * column];
+    }
+
+    public boolean isEmpty(int column) {
+        return length(column) == 0;
+    }
+
+    public int getInt(int column, int def) {
+        if (column < 0 || column >= size()) return def;
+        int i = bounds[2 * column];
+        int end = bounds[2 * column + 1];
+        // Fast path: optional sign and up to 9 digits, no substring.
+        boolean negative = false;
+        if (i < end && (line.charAt(i) == '-' || line.charAt(i) == '+')) {
+            negative = line.charAt(i) == '-';
+            i++;
+        }
+        if (i < end && end - i <= 9) {
+            int value = 0;
+            for (; i < end; i++) {
+                char c = line.charAt(i);
+                if (c < '0' || c > '9') return def;
+                value = value * 10 + (c - '0');
+            }
+            return negative ? -value : value;
+        }
+        try { return Integer.parseInt(get(column)); } catch (NumberFormatException e) { return def; }
+    }
+
+    public double getDouble(int column, double def) {
+        if (column < 0 || column >= size()) return def;
+        double fast = parseSimpleDecimal(bounds[2 * column], bounds[2 * column + 1]);
+        if (!Double.isNaN(fast)) return fast;
+        try { return Double.parseDouble(get(column)); } catch (NumberFormatException e) { return def; }
+    }
+
+    /** Case-insensitive compare against value.trim(), without creating the column String. */
+    public boolean matches(int column, String value) {
+        if (value == null || column < 0 || column >= size()) return false;
+        int vs = 0;
+        int ve = value.length();
+        while (vs < ve && value.charAt(vs) <= ' ') vs++;
+        while (ve > vs && value.charAt(ve - 1) <= ' ') ve--;
+        int start = bounds[2 * column];
+        int len = bounds[2 * column + 1] - start;
+        return len == ve - vs && line.regionMatches(true, start, value, vs, len);
+    }
+
+    /** Exact (case-sensitive) compare against value, like get(column).equals(value). */
+    public boolean equalsAt(int column, String value) {
+        if (value == null || column < 0 || column >= size()) return false;
+        int start = bounds[2 * column];
+        int len = bounds[2 * column + 1] - start;
+        return len == value.length() && line.regionMatches(false, start, value, 0, len);
+    }
+
+    /** The line with one column's trimmed value swapped; every other character stays as stored. */
+    public String replace(int column, String value) {
+        if (column < 0 || column >= size()) return line;
+        return line.substring(0, bounds[2 * column]) + value + line.substring(bounds[2 * column + 1]);
+    }
+
+    /**
+     * Rejects a value that would break the row it is written into: '|' starts
+     * a new column and a line break a new row. Returns value unchanged.
+     */
+    public static String checkField(String label, String value) {
+        if (value != null && (value.indexOf('|') >= 0 || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)) {
+            throw new IllegalArgumentException(label + " cannot contain '|' or line breaks.");
+        }
+        return value;
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    // Same field rules as split("\\|", -1) followed by trim() on each part.
+    private static int[] scan(String line) {
+        int n = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == '|') n++;
+        }
+        int[] b = new int[2 * n];
+        int field = 0;
+        int start = 0;
+        int len = line.length();
+        for (int i = 0; i <= len; i++) {
+            if (i == len || line.charAt(i) == '|') {
+                int s = start;
+                int e = i;
+                while (s < e && line.charAt(s) <= ' ') s++;
+                while (e > s && line.charAt(e - 1) <= ' ') e--;
+                b[2 * field] = s;
+                b[2 * field + 1] = e;
+                field++;
+                start = i + 1;
+            }
+        }
+        return b;
+    }
+
+    private static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15
+    };
+
+    /**
+     * Plain decimals such as "85", "85.0" or "-3.25" with at most 15 digits.
+     * One exact long / power-of-ten division, which gives the same result as
+     * Double.parseDouble. Returns NaN for anything else so the caller falls back.
+     */
+    private double parseSimpleDecimal(int i, int end) {
+        if (i >= end) return Double.NaN;
+        boolean negative = false;
+        char first = line.charAt(i);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fraction = -1;
+        for (; i < end; i++) {
+            char c = line.charAt(i);
+            if (c == '.') {
+                if (fraction >= 0) return Double.NaN;
+                fraction = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') return Double.NaN;
+            if (++digits > 15) return Double.NaN;
+            mantissa = mantissa * 10 + (c - '0');
+            if (fraction >= 0) fraction++;
+        }
+        if (digits == 0) return Double.NaN;
+        double v = fraction > 0 ? mantissa / POW10[fraction] : mantissa;
+        return negative ? -v : v;
+    }
+}
@@ -0,0 +1,365 @@
+package repository;
+
+import util.FileManager;
+import util.ProcessLock;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of one data file.
+ * - Loaded once on first access and reused until the file changes on disk;
+ *   lines appended by another process are read on their own (loadAppended).
+ * - Column indexes are built on demand (case-insensitive, like equalsIgnoreCase).
+ * - Writes go through to disk first, then replace the in-memory rows; a
+ *   failed write is thrown (UncheckedIOException) and the rows are reloaded.
+ * - Public writes hold the file's write lock (see Locks) and then the table
+ *   monitor, always in that order; the monitor alone guards in-memory state.
+ */
+public class Table {
+
+    protected final String filePath;
+    protected final File file;
+
+    private List<Row> rows;
+    private final Map<Integer, Map<String, List<Row>>> indexes = new HashMap<>();
+    private long[] loadedStamp;
+
+    // One per file (DataStore keeps one Table per file); used through Locks.
+    final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    final ProcessLock processLock;
+    private final ReentrantLock[] stripes = new ReentrantLock[16];
+
+    Table(String filePath) {
+        this.filePath = filePath;
+        this.file = new File(filePath);
+        this.processLock = ProcessLock.forFile(filePath);
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new ReentrantLock();
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    // --------------------------
+    // Reads
+    // --------------------------
+
+    /** All non-blank rows in file order. The returned list is read-only. */
+    public synchronized List<Row> rows() {
+        ensureLoaded();
+        return rows;
+    }
+
+    public synchronized List<String> lines() {
+        ensureLoaded();
+        List<String> out = new ArrayList<>(rows.size());
+        for (Row r : rows) out.add(r.line());
+        return out;
+    }
+
+    public synchronized Row first(int column, String key) {
+        List<Row> list = where(column, key);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    public synchronized List<Row> where(int column, String key) {
+        if (key == null || key.trim().isEmpty()) return Collections.emptyList();
+        ensureLoaded();
+        List<Row> list = index(column).get(indexKey(key));
+        return list == null ? Collections.<Row>emptyList() : Collections.unmodifiableList(list);
+    }
+
+    public boolean contains(int column, String key) {
+        return first(column, key) != null;
+    }
+
+    // --------------------------
+    // Writes (write-through)
+    // --------------------------
+
+    public void append(String line) {
+        Locks.write(this, () -> appendRow(line));
+    }
+
+    private synchronized void appendRow(String line) {
+        ensureLoaded();
+        List<Row> next = new ArrayList<>(rows);
+        Map<Integer, Map<String, List<Row>>> kept = new HashMap<>(indexes);
+        try {
+            FileManager.appendLine(filePath, line);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write " + filePath, e);
+        }
+
+        if (line != null && !line.trim().isEmpty()) {
+            Row row = new Row(line);
+            next.add(row);
+            for (Map.Entry<Integer, Map<String, List<Row>>> e : kept.entrySet()) {
+                addToIndex(e.getValue(), e.getKey(), row);
+            }
+        }
+        install(next);
+        indexes.putAll(kept);
+    }
+
+    public void writeAll(List<String> lines) {
+        Locks.write(this, () -> {
+            try {
+                replace(lines);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write " + filePath, e);
+            }
+        });
+    }
+
+    /**
+     * Like writeAll, but takes no file lock: the commit log calls it on
+     * behalf of transactions whose threads already hold the locks.
+     */
+    synchronized void replace(List<String> lines) throws IOException {
+        FileManager.replaceFile(filePath, lines);
+        install(parse(lines));
+    }
+
+    public void updateById(String idKey, String newLine) {
+        Locks.write(this, () -> {
+            List<String> out = new ArrayList<>();
+            for (Row r : rows()) {
+                out.add(r.matches(0, idKey) ? newLine : r.line());
+            }
+            writeAll(out);
+        });
+    }
+
+    public void deleteById(String idKey) {
+        Locks.write(this, () -> {
+            List<String> out = new ArrayList<>();
+            for (Row r : rows()) {
+                if (!r.matches(0, idKey)) out.add(r.line());
+            }
+            writeAll(out);
+        });
+    }
+
+    /** Drop the in-memory copy; the next read reloads from disk. */
+    public synchronized void invalidate() {
+        rows = null;
+        indexes.clear();
+        loadedStamp = null;
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    ReentrantLock stripe(String key) {
+        String k = key == null ? "" : indexKey(key);
+        return stripes[(k.hashCode() & 0x7fffffff) % stripes.length];
+    }
+
+    protected void ensureLoaded() {
+        if (rows != null) {
+            long[] now = stamp();
+            if (Arrays.equals(now, loadedStamp)) return;
+            if (loadedStamp != null && loadAppended(loadedStamp, now)) {
+                loadedStamp = now;
+                return;
+            }
+        }
+        install(load());
+    }
+
+    /**
+     * Bring the rows up to date with the file now rather than on the next
+     * read (DataWatcher). True if something other than this table changed
+     * the file; false if it still matches or was never loaded.
+     */
+    public synchronized boolean refresh() {
+        if (rows == null) return false;
+        long[] before = loadedStamp;
+        ensureLoaded();
+        return !Arrays.equals(before, loadedStamp);
+    }
+
+    /**
+     * Take in lines another process appended since the file was loaded,
+     * reading only the new bytes. False when the file was rewritten or
+     * edited instead; ensureLoaded then reloads it whole.
+     */
+    protected boolean loadAppended(long[] was, long[] now) {
+        List<Row> added = appendedRows(file, was, now, 0, rows.isEmpty() ? null : rows.get(rows.size() - 1));
+        if (added == null) return false;
+        List<Row> next = new ArrayList<>(rows);
+        for (Row r : added) {
+            next.add(r);
+            reindex(null, r);
+        }
+        publish(next);
+        return true;
+    }
+
+    /** Reads the file from disk. Subclasses may merge in extra sources. */
+    protected List<Row> load() {
+        return parse(FileManager.readAll(filePath));
+    }
+
+    /**
+     * Cheap change marker compared on every access (one stat, no file read).
+     * The file id changes on every atomic rewrite, so a rewrite by another
+     * process is seen even when size and modification time happen to match.
+     */
+    protected long[] stamp() {
+        long[] s = new long[3];
+        stampOf(file, s, 0);
+        return s;
+    }
+
+    /** Writes modified time (ns), size and file id of f into out[at..at+2]; zeros if missing. */
+    protected static void stampOf(File f, long[] out, int at) {
+        try {
+            BasicFileAttributes a = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+            Instant t = a.lastModifiedTime().toInstant();
+            out[at] = t.getEpochSecond() * 1_000_000_000L + t.getNano();
+            out[at + 1] = a.size();
+            out[at + 2] = Objects.hashCode(a.fileKey());
+        } catch (IOException e) {
+            out[at] = out[at + 1] = out[at + 2] = 0;
+        }
+    }
+
+    /** Accept the current on-disk state as ours (after a write we made ourselves). */
+    protected void restamp() {
+        loadedStamp = stamp();
+    }
+
+    protected void install(List<Row> parsed) {
+        rows = Collections.unmodifiableList(parsed);
+        indexes.clear();
+        restamp();
+    }
+
+    /** Publish rows whose changes were already applied to the indexes via reindex(). */
+    protected void publish(List<Row> next) {
+        rows = Collections.unmodifiableList(next);
+    }
+
+    /**
+     * Keep the indexes built so far in step with one row change (before is
+     * null for a new row). A new row is appended, a replaced row keeps its
+     * place; if a replacement moves to another key, that column's index is
+     * dropped and rebuilt on the next lookup.
+     */
+    protected void reindex(Row before, Row after) {
+        Iterator<Map.Entry<Integer, Map<String, List<Row>>>> it = indexes.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Integer, Map<String, List<Row>>> e = it.next();
+            int column = e.getKey();
+            if (before == null) {
+                addToIndex(e.getValue(), column, after);
+            } else if (!indexKey(before.get(column)).equals(indexKey(after.get(column)))
+                    || !replaceInIndex(e.getValue(), column, before, after)) {
+                it.remove();
+            }
+        }
+    }
+
+    private Map<String, List<Row>> index(int column) {
+        Map<String, List<Row>> idx = indexes.get(column);
+        if (idx == null) {
+            idx = new HashMap<>();
+            for (Row r : rows) {
+                String k = r.get(column);
+                if (!k.isEmpty()) idx.computeIfAbsent(indexKey(k), x -> new ArrayList<>()).add(r);
+            }
+            indexes.put(column, idx);
+        }
+        return idx;
+    }
+
+    private static void addToIndex(Map<String, List<Row>> idx, int column, Row r) {
+        String k = r.get(column);
+        if (k.isEmpty()) return;
+        // Copy-on-write so lists already handed out by where() never change under a reader.
+        List<Row> old = idx.get(indexKey(k));
+        List<Row> next = old == null ? new ArrayList<>(1) : new ArrayList<>(old);
+        next.add(r);
+        idx.put(indexKey(k), next);
+    }
+
+    private static boolean replaceInIndex(Map<String, List<Row>> idx, int column, Row before, Row after) {
+        String k = before.get(column);
+        if (k.isEmpty()) return true;
+        List<Row> old = idx.get(indexKey(k));
+        int pos = old == null ? -1 : old.indexOf(before);
+        if (pos < 0) return false;
+        List<Row> next = new ArrayList<>(old);
+        next.set(pos, after);
+        idx.put(indexKey(k), next);
+        return true;
+    }
+
+    /**
+     * Rows appended to f between stamps was and now (fields at..at+2), or
+     * null unless f only grew in place: same file id, and its old end still
+     * holds last (the last row loaded) followed by a line break. Only
+     * complete lines count, so a writer caught mid-line means a full reload.
+     */
+    protected static List<Row> appendedRows(File f, long[] was, long[] now, int at, Row last) {
+        long oldSize = was[at + 1];
+        long newSize = now[at + 1];
+        if (newSize <= oldSize || newSize - oldSize > Integer.MAX_VALUE / 2) return null;
+        if (oldSize == 0 ? last != null : last == null || was[at + 2] != now[at + 2]) return null;
+
+        byte[] lastLine = last == null ? new byte[0] : last.line().getBytes(StandardCharsets.UTF_8);
+        long from = Math.max(0, oldSize - lastLine.length - 3);
+        byte[] bytes = FileManager.readRange(f.getPath(), from, newSize);
+        if (bytes == null || bytes[bytes.length - 1] != '\n') return null;
+
+        int boundary = (int) (oldSize - from);
+        if (oldSize > 0 && !endsWithLine(bytes, boundary, lastLine, from == 0)) return null;
+        String text = new String(bytes, boundary, bytes.length - boundary, StandardCharsets.UTF_8);
+        return parse(Arrays.asList(text.split("\r?\n")));
+    }
+
+    // bytes[..end) ends with line plus \n or \r\n, and line starts a line.
+    private static boolean endsWithLine(byte[] bytes, int end, byte[] line, boolean fileStart) {
+        if (end < 1 || bytes[end - 1] != '\n') return false;
+        end--;
+        if (end > 0 && bytes[end - 1] == '\r') end--;
+        int start = end - line.length;
+        if (start < 0) return false;
+        for (int i = 0; i < line.length; i++) {
+            if (bytes[start + i] != line[i]) return false;
+        }
+        return start == 0 ? fileStart : bytes[start - 1] == '\n';
+    }
+
+    protected static List<Row> parse(List<String> lines) {
+        List<Row> parsed = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            if (line == null || line.trim().isEmpty()) continue;
+            parsed.add(new Row(line));
+        }
+        return parsed;
+    }
+
+    private static String indexKey(String s) {
+        return s.trim().toUpperCase();
+    }
+}
@@ -0,0 +1,75 @@
+package repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of whole-file rewrites that become visible together.
+ *
+ *   Transaction tx = Transaction.begin();
+ *   tx.writeAll(DataStore.users(), userLines);
+ *   tx.writeAll(DataStore.lecturers(), lecturerLines);
+ *   tx.commit();
+ *
+ * Nothing touches disk until commit(). commit() first appends the new
+ * contents of every file to the shared redo log (data/commit.log) and syncs
+ * it, then rewrites the files. If the process dies in between, the files are
+ * rewritten from the log on the next start or before the next write
+ * (see CommitLog.recover()).
+ */
+public final class Transaction {
+
+    private final Map<Table, List<String>> staged = new LinkedHashMap<>();
+
+    // Set by CommitLog once this transaction's group has been written.
+    boolean done;
+    IOException error;
+
+    private Transaction() {
+    }
+
+    public static Transaction begin() {
+        return new Transaction();
+    }
+
+    /** Stage the new contents of a table's file; staging the same table again replaces it. */
+    public Transaction writeAll(Table table, List<String> lines) {
+        staged.put(table, new ArrayList<>(lines));
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return staged.isEmpty();
+    }
+
+    /**
+     * Returns once every staged file is written; on failure none of them is changed.
+     * Holds the write lock of every staged file meanwhile (see Locks); callers that
+     * computed the lines from the current rows should already hold them.
+     */
+    public void commit() throws IOException {
+        if (staged.isEmpty()) return;
+        IOException[] failure = new IOException[1];
+        try {
+            Locks.write(new ArrayList<>(staged.keySet()), () -> {
+                try {
+                    CommitLog.commit(this);
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();  // replaying an earlier record failed
+        }
+        if (failure[0] != null) throw failure[0];
+    }
+
+    Map<Table, List<String>> staged() {
+        return Collections.unmodifiableMap(staged);
+    }
+}
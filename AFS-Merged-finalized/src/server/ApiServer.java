@@ -0,0 +1,385 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.User;
+import repository.Row;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Local JSON API over the same services the Swing screens use (see Endpoints).
+ * - Binds to afs.api.host (default 127.0.0.1); the data folder and its locks
+ *   are shared with any Swing client running in this process or beside it.
+ * - One virtual thread per request. Handlers block on file I/O and locks,
+ *   so requests never share a thread.
+ * - POST /api/login returns a bearer token; other routes need
+ *   "Authorization: Bearer <token>" and the route's role.
+ * - Errors: {"error": message} with 400 (IllegalArgumentException),
+ *   401/403 (auth), 404, 409 (IllegalStateException, e.g. a lock timeout), 500.
+ * - GET /metrics: call counts and timings (MetricsEndpoint).
+ */
+public final class ApiServer {
+
+    private static final int MAX_BODY = 1 << 20;
+    private static final long SESSION_MS = 8L * 60 * 60 * 1000;
+
+    private final HttpServer http;
+    private final ExecutorService executor;
+    private final List<Route> routes = new ArrayList<>();
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+
+    public ApiServer(int port) throws IOException {
+        String host = System.getProperty("afs.api.host", "127.0.0.1");
+        this.http = HttpServer.create(new InetSocketAddress(host, port), 0);
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        http.setExecutor(executor);
+        http.createContext("/api/", this::dispatch);
+        Endpoints.register(this);
+        MetricsEndpoint.register(http);
+    }
+
+    public void start() {
+        http.start();
+        System.out.println("API listening on http://" + http.getAddress().getHostString()
+                + ":" + http.getAddress().getPort() + "/api/");
+    }
+
+    public void stop() {
+        http.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    // --------------------------
+    // Routing
+    // --------------------------
+
+    /** Handles one request; the return value is written as JSON (null = 204). */
+    public interface Handler {
+        Object handle(Request req) throws Exception;
+    }
+
+    /** roles: who may call it; none = any signed-in user, null = no sign-in needed. */
+    void route(String method, String pattern, String[] roles, Handler handler) {
+        routes.add(new Route(method, pattern, roles, handler));
+    }
+
+    public static final class Request {
+        private final String method;
+        private final Map<String, String> params;
+        private final Map<String, String> query;
+        private final String body;
+        private final Session session;
+        private final String token;
+
+        private Request(String method, Map<String, String> params, Map<String, String> query,
+                        String body, Session session, String token) {
+            this.method = method;
+            this.params = params;
+            this.query = query;
+            this.body = body;
+            this.session = session;
+            this.token = token;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        /** {name} segment of the route pattern. */
+        public String param(String name) {
+            return params.get(name);
+        }
+
+        public String query(String name) {
+            String v = query.get(name);
+            return v == null ? "" : v;
+        }
+
+        public User getUser() {
+            return session == null ? null : session.user;
+        }
+
+        String getToken() {
+            return token;
+        }
+
+        /** Body as a JSON object; {} when empty. */
+        @SuppressWarnings("unchecked")
+        public Map<String, Object> json() {
+            if (body.trim().isEmpty()) return new LinkedHashMap<>();
+            Object v = Json.parse(body);
+            if (!(v instanceof Map)) throw new IllegalArgumentException("Expected a JSON object.");
+            return (Map<String, Object>) v;
+        }
+
+        /** Body as a JSON array of objects. */
+        @SuppressWarnings("unchecked")
+        public List<Map<String, Object>> jsonList() {
+            Object v = Json.parse(body.trim().isEmpty() ? "[]" : body);
+            if (!(v instanceof List)) throw new IllegalArgumentException("Expected a JSON array.");
+            List<Map<String, Object>> out = new ArrayList<>();
+            for (Object o : (List<Object>) v) {
+                if (!(o instanceof Map)) throw new IllegalArgumentException("Expected a JSON array of objects.");
+                out.add((Map<String, Object>) o);
+            }
+            return out;
+        }
+    }
+
+    /** 404 with a message, for ids that match nothing. */
+    public static final class NotFoundException extends RuntimeException {
+        public NotFoundException(String message) {
+            super(message);
+        }
+    }
+
+    // --------------------------
+    // Sessions
+    // --------------------------
+
+    static final class Session {
+        final User user;
+        volatile long expires;
+
+        Session(User user) {
+            this.user = user;
+            this.expires = System.currentTimeMillis() + SESSION_MS;
+        }
+    }
+
+    String openSession(User user) {
+        purgeSessions();
+        byte[] b = new byte[24];
+        random.nextBytes(b);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(b);
+        sessions.put(token, new Session(user));
+        return token;
+    }
+
+    void closeSession(String token) {
+        if (token != null) sessions.remove(token);
+    }
+
+    private Session session(String token) {
+        if (token == null) return null;
+        Session s = sessions.get(token);
+        if (s == null) return null;
+        long now = System.currentTimeMillis();
+        if (s.expires < now) {
+            sessions.remove(token);
+            return null;
+        }
+        s.expires = now + SESSION_MS;
+        return s;
+    }
+
+    private void purgeSessions() {
+        long now = System.currentTimeMillis();
+        sessions.values().removeIf(s -> s.expires < now);
+    }
+
+    // --------------------------
+    // Dispatch
+    // --------------------------
+
+    private void dispatch(HttpExchange ex) {
+        int status = 500;
+        Object result = error("Internal error.");
+        try {
+            result = invoke(ex);
+            status = result == null ? 204 : 200;
+        } catch (HttpError e) {
+            status = e.status;
+            result = error(e.getMessage());
+        } catch (NotFoundException e) {
+            status = 404;
+            result = error(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            result = error(e.getMessage());
+        } catch (SecurityException e) {
+            status = 403;
+            result = error(e.getMessage());
+        } catch (IllegalStateException e) {
+            status = 409;
+            result = error(e.getMessage());
+        } catch (Throwable e) {
+            e.printStackTrace();  // Errors too: the client still gets a 500
+        } finally {
+            send(ex, status, result);  // always answers and closes the exchange
+        }
+    }
+
+    private Object invoke(HttpExchange ex) throws Exception {
+        String method = ex.getRequestMethod().toUpperCase();
+        String path = ex.getRequestURI().getRawPath();
+        List<String> segments = new ArrayList<>();
+        for (String raw : split(path)) {
+            // Decoded once per segment, so an encoded '/' stays inside its segment.
+            // '+' is literal in a path (URLDecoder would read it as a space).
+            segments.add(Row.checkField("Path", URLDecoder.decode(raw.replace("+", "%2B"), StandardCharsets.UTF_8)));
+        }
+
+        boolean pathMatched = false;
+        for (Route r : routes) {
+            Map<String, String> params = r.match(segments);
+            if (params == null) continue;
+            pathMatched = true;
+            if (!r.method.equals(method)) continue;
+
+            String token = bearer(ex);
+            Session s = session(token);
+            if (r.roles != null) {
+                if (s == null) throw new HttpError(401, "Sign in first (POST /api/login).");
+                if (r.roles.length > 0 && !hasRole(s.user, r.roles)) {
+                    throw new SecurityException("This action needs role " + String.join(" or ", r.roles) + ".");
+                }
+            }
+            Request req = new Request(method, params, query(ex.getRequestURI().getRawQuery()),
+                    readBody(ex), s, token);
+            return r.handler.handle(req);
+        }
+        if (pathMatched) throw new HttpError(405, "Method " + method + " not allowed on " + path + ".");
+        throw new NotFoundException("No such endpoint: " + path);
+    }
+
+    private static boolean hasRole(User user, String[] roles) {
+        String role = user.getRole() == null ? "" : user.getRole().trim();
+        for (String r : roles) {
+            if (r.equalsIgnoreCase(role)) return true;
+        }
+        return false;
+    }
+
+    private static String bearer(HttpExchange ex) {
+        String h = ex.getRequestHeaders().getFirst("Authorization");
+        if (h == null || !h.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        return h.substring(7).trim();
+    }
+
+    private static String readBody(HttpExchange ex) throws IOException {
+        try (InputStream in = ex.getRequestBody()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+                if (out.size() > MAX_BODY) throw new HttpError(413, "Request body too large.");
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static Map<String, String> query(String raw) {
+        if (raw == null || raw.isEmpty()) return Collections.emptyMap();
+        Map<String, String> out = new LinkedHashMap<>();
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String k = eq < 0 ? pair : pair.substring(0, eq);
+            String v = eq < 0 ? "" : pair.substring(eq + 1);
+            String key = URLDecoder.decode(k, StandardCharsets.UTF_8);
+            out.put(key, Row.checkField(key, URLDecoder.decode(v, StandardCharsets.UTF_8)));
+        }
+        return out;
+    }
+
+    private static void send(HttpExchange ex, int status, Object result) {
+        try {
+            ex.getResponseHeaders().set("Cache-Control", "no-store");
+            if (status == 204) {
+                ex.sendResponseHeaders(204, -1);
+                return;
+            }
+            byte[] bytes = Json.write(result).getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // Client went away; nothing to report back to.
+        } finally {
+            ex.close();
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("error", message == null ? "" : message);
+        return m;
+    }
+
+    private static List<String> split(String path) {
+        List<String> out = new ArrayList<>();
+        for (String s : path.split("/")) {
+            if (!s.isEmpty()) out.add(s);
+        }
+        return out;
+    }
+
+    private static final class Route {
+        final String method;
+        final List<String> pattern;
+        final String[] roles;
+        final Handler handler;
+
+        Route(String method, String pattern, String[] roles, Handler handler) {
+            this.method = method;
+            this.pattern = split(pattern);
+            this.roles = roles;
+            this.handler = handler;
+        }
+
+        Map<String, String> match(List<String> segments) {
+            if (segments.size() != pattern.size()) return null;
+            Map<String, String> params = new LinkedHashMap<>();
+            for (int i = 0; i < pattern.size(); i++) {
+                String p = pattern.get(i);
+                if (p.startsWith("{") && p.endsWith("}")) {
+                    params.put(p.substring(1, p.length() - 1), segments.get(i));
+                } else if (!p.equals(segments.get(i))) {
+                    return null;
+                }
+            }
+            return params;
+        }
+    }
+
+    /** Error with an explicit status, e.g. 401 or 405. */
+    static final class HttpError extends RuntimeException {
+        final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
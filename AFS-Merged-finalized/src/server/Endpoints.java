@@ -0,0 +1,544 @@
+package server;
+
+import controller.FileHandler;
+import controller.LecturerController;
+import controller.ValidationUtil;
+import model.Assessment;
+import model.ClassRecord;
+import model.Feedback;
+import model.Grade;
+import model.GradingRule;
+import model.Module;
+import model.Student;
+import model.User;
+import repository.Row;
+import server.ApiServer.NotFoundException;
+import server.ApiServer.Request;
+import service.AuthService;
+import service.ClassService;
+import service.GradingScheme;
+import service.GradingService;
+import service.ModuleService;
+import service.StudentService;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Routes of the API. Each one calls the same service or controller method
+ * as the matching Swing screen, with the same checks the screen makes
+ * before calling it (the services only validate part of the input).
+ * Records go out as explicit field maps; passwords never leave the server.
+ *
+ * The caller's ids come from the session, as in the dashboards:
+ * leader/lecturer id = userId, student id = the students.txt profile's.
+ */
+final class Endpoints {
+
+    private static final String[] ANY = {};
+    private static final String[] ADMIN = {"ADMIN"};
+    private static final String[] LEADER = {"LEADER"};
+    private static final String[] LECTURER = {"LECTURER"};
+    private static final String[] STUDENT = {"STUDENT"};
+
+    private static final LecturerController LECTURERS = new LecturerController(new FileHandler());
+
+    private Endpoints() {
+    }
+
+    static void register(ApiServer api) {
+        // Session
+        api.route("POST", "/api/login", null, req -> login(api, req));
+        api.route("POST", "/api/logout", ANY, req -> {
+            api.closeSession(req.getToken());
+            return null;
+        });
+        api.route("GET", "/api/me", ANY, req -> user(req.getUser()));
+
+        // Modules
+        api.route("GET", "/api/modules", ANY, Endpoints::listModules);
+        api.route("GET", "/api/modules/{id}", ANY, req -> module(findModule(req.param("id"))));
+        api.route("POST", "/api/modules", LEADER, req -> {
+            Map<String, Object> b = req.json();
+            return module(ModuleService.createModule(userId(req),
+                    str(b, "moduleName"), str(b, "moduleCode"), integer(b, "creditHours")));
+        });
+        api.route("PUT", "/api/modules/{id}", LEADER, req -> {
+            Map<String, Object> b = req.json();
+            ModuleService.updateModule(userId(req), req.param("id"),
+                    str(b, "moduleName"), str(b, "moduleCode"), integer(b, "creditHours"));
+            return module(findModule(req.param("id")));
+        });
+        api.route("DELETE", "/api/modules/{id}", LEADER, req -> {
+            ModuleService.deleteModule(userId(req), req.param("id"));
+            return null;
+        });
+        api.route("PUT", "/api/modules/{id}/lecturer", LEADER, req -> {
+            ModuleService.assignLecturerToModule(userId(req), req.param("id"), str(req.json(), "lecturerId"));
+            return module(findModule(req.param("id")));
+        });
+        api.route("DELETE", "/api/modules/{id}/lecturer", LEADER, req -> {
+            ModuleService.unassignLecturerFromModule(userId(req), req.param("id"));
+            return null;
+        });
+
+        // Classes
+        api.route("GET", "/api/classes", ANY, req -> {
+            List<Object> out = new ArrayList<>();
+            for (ClassRecord c : ClassService.getAll()) out.add(classRecord(c));
+            return out;
+        });
+        api.route("POST", "/api/classes", ADMIN, req -> {
+            Map<String, Object> b = req.json();
+            ClassRecord rec = new ClassRecord(str(b, "classId"), str(b, "className"), str(b, "moduleId"));
+            ClassService.add(rec);
+            return classRecord(rec);
+        });
+        api.route("PUT", "/api/classes/{id}", ADMIN, req -> {
+            if (!ClassService.existsClassId(req.param("id"))) throw new NotFoundException("Class not found: " + req.param("id"));
+            Map<String, Object> b = req.json();
+            ClassRecord rec = new ClassRecord(str(b, "classId"), str(b, "className"), str(b, "moduleId"));
+            ClassService.update(req.param("id"), rec);
+            return classRecord(rec);
+        });
+        api.route("DELETE", "/api/classes/{id}", ADMIN, req -> {
+            if (!ClassService.existsClassId(req.param("id"))) throw new NotFoundException("Class not found: " + req.param("id"));
+            ClassService.delete(req.param("id"));
+            return null;
+        });
+
+        // Grading (?scheme=name picks a named scheme; default otherwise)
+        api.route("GET", "/api/grading", ANY, req -> {
+            List<Object> out = new ArrayList<>();
+            for (GradingRule r : GradingService.getAll(req.query("scheme"))) out.add(rule(r));
+            return out;
+        });
+        api.route("GET", "/api/grading/schemes", ANY, req -> GradingService.getSchemeNames());
+        api.route("POST", "/api/grading/schemes", ADMIN, req -> {
+            Map<String, Object> b = req.json();
+            if (!GradingService.createScheme(str(b, "name"), str(b, "copyFrom"))) {
+                throw new IllegalArgumentException("Scheme name is invalid or already taken.");
+            }
+            return GradingService.getSchemeNames();
+        });
+        api.route("POST", "/api/grading", ADMIN, req -> {
+            String scheme = req.query("scheme");
+            GradingRule r = parseRule(req.json());
+            if (GradingService.existsGrade(scheme, r.getGrade())) {
+                throw new IllegalArgumentException("Grade already exists. Use PUT to update it.");
+            }
+            checkOverlap(scheme, r, null);
+            GradingService.add(scheme, r);
+            return rule(r);
+        });
+        api.route("PUT", "/api/grading/{grade}", ADMIN, req -> {
+            String scheme = req.query("scheme");
+            String grade = req.param("grade");
+            if (!GradingService.existsGrade(scheme, grade)) throw new NotFoundException("Grade not found: " + grade);
+            GradingRule r = parseRule(req.json());
+            checkOverlap(scheme, r, grade);
+            GradingService.update(scheme, grade, r);
+            return rule(r);
+        });
+        api.route("DELETE", "/api/grading/{grade}", ADMIN, req -> {
+            String scheme = req.query("scheme");
+            String grade = req.param("grade");
+            if (!GradingService.existsGrade(scheme, grade)) throw new NotFoundException("Grade not found: " + grade);
+            GradingService.delete(scheme, grade);
+            return null;
+        });
+
+        // Student
+        api.route("GET", "/api/student/profile", STUDENT, req -> student(profile(req)));
+        api.route("PUT", "/api/student/profile", STUDENT, Endpoints::updateStudentProfile);
+        api.route("GET", "/api/student/classes", STUDENT, req ->
+                rows(StudentService.getAvailableClasses(req.query("moduleId")), "classId", "className", "moduleId"));
+        api.route("GET", "/api/student/registrations", STUDENT, req ->
+                rows(StudentService.getRegisteredClasses(studentId(req)), "studentId", "classId"));
+        api.route("POST", "/api/student/registrations", STUDENT, req -> {
+            String classId = str(req.json(), "classId");
+            if (!ClassService.existsClassId(classId)) throw new NotFoundException("Class not found: " + classId);
+            StudentService.registerForClass(studentId(req), classId);
+            return rows(StudentService.getRegisteredClasses(studentId(req)), "studentId", "classId");
+        });
+        api.route("GET", "/api/student/results", STUDENT, req ->
+                rows(StudentService.getMyResults(studentId(req)), "moduleId", "assessmentName", "marks", "grade", "feedback"));
+        api.route("GET", "/api/student/modules", STUDENT, req ->
+                rows(StudentService.getModulesForComment(studentId(req)), "moduleId", "moduleName", "lecturerId"));
+        api.route("GET", "/api/student/comments", STUDENT, req ->
+                rows(StudentService.getComments(studentId(req)), "commentId", "moduleId", "comment", "date"));
+        api.route("POST", "/api/student/comments", STUDENT, req -> {
+            Map<String, Object> b = req.json();
+            String moduleId = str(b, "moduleId");
+            String comment = str(b, "comment");
+            if (moduleId.isEmpty()) throw new IllegalArgumentException("Module ID is required.");
+            if (comment.isEmpty()) throw new IllegalArgumentException("Comment is required.");
+            findModule(moduleId);
+            StudentService.submitComment(studentId(req), moduleId, comment);
+            return rows(StudentService.getComments(studentId(req)), "commentId", "moduleId", "comment", "date");
+        });
+
+        // Lecturer
+        api.route("GET", "/api/lecturer/modules", LECTURER, req -> {
+            List<Object> out = new ArrayList<>();
+            for (Module m : ModuleService.getByLecturer(lecturerId(req))) out.add(module(m));
+            return out;
+        });
+        api.route("GET", "/api/lecturer/modules/{id}/assessments", LECTURER, req -> {
+            String moduleId = assignedModule(req, req.param("id"));
+            List<Object> out = new ArrayList<>();
+            for (Assessment a : LECTURERS.getAssessmentsByModuleForLecturer(lecturerId(req), moduleId)) out.add(assessment(a));
+            return out;
+        });
+        api.route("GET", "/api/lecturer/modules/{id}/students", LECTURER, req -> {
+            String moduleId = assignedModule(req, req.param("id"));
+            List<Object> out = new ArrayList<>();
+            for (Student s : LECTURERS.getStudentsByModuleForLecturer(lecturerId(req), moduleId)) {
+                Map<String, Object> m = new LinkedHashMap<>();
+                m.put("studentId", s.getStudentId());
+                m.put("name", s.getName());
+                out.add(m);
+            }
+            return out;
+        });
+        api.route("POST", "/api/lecturer/modules/{id}/assessments", LECTURER, req -> {
+            String moduleId = assignedModule(req, req.param("id"));
+            Assessment a = parseAssessment(req, "", moduleId);
+            LECTURERS.addAssessment(a);
+            return assessment(a);
+        });
+        api.route("PUT", "/api/lecturer/assessments/{id}", LECTURER, req -> {
+            Assessment existing = ownAssessment(req);
+            Assessment a = parseAssessment(req, existing.getAssessmentId(), existing.getModuleId());
+            LECTURERS.updateAssessment(a);
+            return assessment(a);
+        });
+        api.route("DELETE", "/api/lecturer/assessments/{id}", LECTURER, req -> {
+            LECTURERS.deleteAssessment(ownAssessment(req).getAssessmentId());
+            return null;
+        });
+        api.route("GET", "/api/lecturer/assessments/{id}/grades", LECTURER, req -> {
+            List<Object> out = new ArrayList<>();
+            for (Grade g : LECTURERS.getGradesByAssessment(ownAssessment(req).getAssessmentId())) out.add(grade(g));
+            return out;
+        });
+        api.route("PUT", "/api/lecturer/assessments/{id}/grades", LECTURER, Endpoints::saveGrades);
+        api.route("GET", "/api/lecturer/assessments/{id}/feedback/{studentId}", LECTURER, req -> {
+            Assessment a = ownAssessment(req);
+            Feedback f = LECTURERS.getFeedback(a.getAssessmentId(), req.param("studentId"));
+            if (f == null) throw new NotFoundException("No feedback yet.");
+            return feedback(f);
+        });
+        api.route("PUT", "/api/lecturer/assessments/{id}/feedback/{studentId}", LECTURER, req -> {
+            Assessment a = ownAssessment(req);
+            String studentId = req.param("studentId");
+            if (!LECTURERS.canLecturerAssessStudent(lecturerId(req), a.getModuleId(), studentId)) {
+                throw new SecurityException("Student " + studentId + " is not enrolled in your module.");
+            }
+            String text = str(req.json(), "feedbackText");
+            if (text.isEmpty()) throw new IllegalArgumentException("Feedback text is required.");
+            Feedback f = new Feedback("", a.getAssessmentId(), studentId, lecturerId(req), text, LECTURERS.today());
+            LECTURERS.saveFeedback(f);
+            return feedback(LECTURERS.getFeedback(a.getAssessmentId(), studentId));
+        });
+    }
+
+    // --------------------------
+    // Handlers
+    // --------------------------
+
+    private static Object login(ApiServer api, Request req) {
+        Map<String, Object> b = req.json();
+        User user = AuthService.login(str(b, "username"), str(b, "password"));
+        if (user == null) throw new ApiServer.HttpError(401, "Invalid username or password.");
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("token", api.openSession(user));
+        out.put("user", user(user));
+        return out;
+    }
+
+    private static Object listModules(Request req) {
+        String leaderId = req.query("leaderId");
+        String lecturerId = req.query("lecturerId");
+        List<Module> modules = !leaderId.isEmpty() ? ModuleService.getByLeader(leaderId)
+                : !lecturerId.isEmpty() ? ModuleService.getByLecturer(lecturerId)
+                : ModuleService.getAll();
+        List<Object> out = new ArrayList<>();
+        for (Module m : modules) out.add(module(m));
+        return out;
+    }
+
+    // Same fields as StudentEditProfilePanel; username changes stay in the Swing screen.
+    private static Object updateStudentProfile(Request req) {
+        Student s = profile(req);
+        Map<String, Object> b = req.json();
+        if (b.containsKey("name")) {
+            String name = str(b, "name");
+            if (name.isEmpty()) throw new IllegalArgumentException("Name cannot be empty.");
+            s.setName(name);
+        }
+        if (b.containsKey("gender")) s.setGender(str(b, "gender"));
+        if (b.containsKey("phone")) s.setPhone(str(b, "phone"));
+        if (b.containsKey("email")) s.setEmail(str(b, "email"));
+        if (b.containsKey("age")) s.setAge(integer(b, "age"));
+        // Blank keeps the stored password (StudentService.updateProfile).
+        s.setPassword(b.containsKey("password") ? str(b, "password") : "");
+        StudentService.updateProfile(s);
+        return student(profile(req));
+    }
+
+    // Mirrors LecturerKeyInMarksPanel.saveGrades: body is [{"studentId":..., "marks":...}, ...].
+    private static Object saveGrades(Request req) {
+        Assessment a = ownAssessment(req);
+        String lecturerId = lecturerId(req);
+        GradingScheme scheme = LECTURERS.getGradingScheme();
+        String today = LECTURERS.today();
+
+        List<Grade> grades = new ArrayList<>();
+        for (Map<String, Object> item : req.jsonList()) {
+            String studentId = str(item, "studentId");
+            if (!LECTURERS.canLecturerAssessStudent(lecturerId, a.getModuleId(), studentId)) {
+                throw new SecurityException("Student " + studentId + " is not enrolled in your module.");
+            }
+            double marks = number(item, "marks");
+            if (!ValidationUtil.isValidMarks(marks, a.getTotalMarks())) {
+                throw new IllegalArgumentException("Marks must be between 0 and " + a.getTotalMarks() + " (student " + studentId + ").");
+            }
+            grades.add(new Grade("", a.getAssessmentId(), studentId, marks,
+                    scheme.gradeFor(marks, a.getTotalMarks()), lecturerId, today));
+        }
+        if (grades.isEmpty()) throw new IllegalArgumentException("No marks entered.");
+        LECTURERS.saveGrades(grades);
+
+        List<Object> out = new ArrayList<>();
+        for (Grade g : LECTURERS.getGradesByAssessment(a.getAssessmentId())) out.add(grade(g));
+        return out;
+    }
+
+    // Mirrors LecturerDesignAssessmentPanel add/update checks.
+    private static Assessment parseAssessment(Request req, String assessmentId, String moduleId) {
+        Map<String, Object> b = req.json();
+        String name = str(b, "assessmentName");
+        String type = str(b, "assessmentType");
+        if (name.isEmpty()) throw new IllegalArgumentException("Assessment name required.");
+        if (type.isEmpty()) throw new IllegalArgumentException("Assessment type required.");
+        double totalMarks = number(b, "totalMarks");
+        double weightage = number(b, "weightage");
+        if (totalMarks <= 0) throw new IllegalArgumentException("Total marks must be positive.");
+        if (weightage <= 0 || weightage > 100) throw new IllegalArgumentException("Weightage must be between 0 and 100.");
+
+        double current = 0;
+        for (Assessment a : LECTURERS.getAssessmentsByModuleForLecturer(lecturerId(req), moduleId)) {
+            if (!assessmentId.isEmpty() && assessmentId.equals(a.getAssessmentId())) continue;
+            current += a.getWeightage();
+        }
+        if (current + weightage > 100) throw new IllegalArgumentException("Total weightage cannot exceed 100.");
+        return new Assessment(assessmentId, moduleId, name, type, totalMarks, weightage, req.getUser().getUsername());
+    }
+
+    private static GradingRule parseRule(Map<String, Object> b) {
+        String grade = str(b, "grade").toUpperCase();
+        if (!GradingService.isAllowedGrade(grade)) throw new IllegalArgumentException("Invalid grade: " + grade);
+        int min = integer(b, "min");
+        int max = integer(b, "max");
+        if (min < 0 || max > 100) throw new IllegalArgumentException("Scores must be between 0 and 100.");
+        if (min > max) throw new IllegalArgumentException("Min must be <= Max.");
+        return new GradingRule(grade, min, max);
+    }
+
+    private static void checkOverlap(String scheme, GradingRule r, String excludeGrade) {
+        List<GradingRule> conflicts = GradingService.findOverlaps(scheme, r.getMin(), r.getMax(), excludeGrade);
+        if (conflicts.isEmpty()) return;
+        List<String> names = new ArrayList<>();
+        for (GradingRule c : conflicts) names.add(c.getGrade() + " (" + c.getMin() + "-" + c.getMax() + ")");
+        throw new IllegalArgumentException("Range overlaps " + String.join(", ", names) + ".");
+    }
+
+    // --------------------------
+    // Lookups
+    // --------------------------
+
+    private static String userId(Request req) {
+        return safe(req.getUser().getUserId());
+    }
+
+    // Same fallback as the lecturer panels.
+    private static String lecturerId(Request req) {
+        String id = userId(req);
+        return id.isEmpty() ? safe(req.getUser().getUsername()) : id;
+    }
+
+    private static Student profile(Request req) {
+        Student s = StudentService.getStudentProfile(req.getUser().getUsername());
+        if (s == null) throw new NotFoundException("No student profile for " + req.getUser().getUsername() + ".");
+        return s;
+    }
+
+    private static String studentId(Request req) {
+        String id = safe(profile(req).getStudentId());
+        if (id.isEmpty()) throw new NotFoundException("Student ID not found.");
+        return id;
+    }
+
+    private static Module findModule(String moduleId) {
+        Module m = ModuleService.findById(moduleId);
+        if (m == null) throw new NotFoundException("Module not found: " + moduleId);
+        return m;
+    }
+
+    private static String assignedModule(Request req, String moduleId) {
+        findModule(moduleId);
+        if (!LECTURERS.isLecturerAssignedToModule(lecturerId(req), moduleId)) {
+            throw new SecurityException("You are not assigned to module " + moduleId + ".");
+        }
+        return moduleId;
+    }
+
+    // Assessment {id} of a module the caller teaches.
+    private static Assessment ownAssessment(Request req) {
+        String id = req.param("id");
+        for (Module m : ModuleService.getByLecturer(lecturerId(req))) {
+            for (Assessment a : LECTURERS.getAssessmentsByModuleForLecturer(lecturerId(req), m.getModuleId())) {
+                if (id.equalsIgnoreCase(safe(a.getAssessmentId()))) return a;
+            }
+        }
+        throw new NotFoundException("Assessment not found in your modules: " + id);
+    }
+
+    // --------------------------
+    // JSON shapes
+    // --------------------------
+
+    private static Map<String, Object> user(User u) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("userId", u.getUserId());
+        m.put("username", u.getUsername());
+        m.put("name", u.getName());
+        m.put("role", u.getRole());
+        m.put("gender", u.getGender());
+        m.put("email", u.getEmail());
+        m.put("phone", u.getPhone());
+        m.put("age", u.getAge());
+        return m;
+    }
+
+    private static Map<String, Object> student(Student s) {
+        Map<String, Object> m = user(s);
+        m.put("studentId", s.getStudentId());
+        m.put("moduleId", s.getModuleId());
+        return m;
+    }
+
+    private static Map<String, Object> module(Module x) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("moduleId", x.getModuleId());
+        m.put("moduleName", x.getModuleName());
+        m.put("moduleCode", x.getModuleCode());
+        m.put("creditHours", x.getCreditHours());
+        m.put("leaderId", x.getLeaderId());
+        m.put("lecturerId", x.getLecturerId());
+        return m;
+    }
+
+    private static Map<String, Object> classRecord(ClassRecord c) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("classId", c.getClassId());
+        m.put("className", c.getClassName());
+        m.put("moduleId", c.getModuleId());
+        return m;
+    }
+
+    private static Map<String, Object> rule(GradingRule r) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("grade", r.getGrade());
+        m.put("min", r.getMin());
+        m.put("max", r.getMax());
+        return m;
+    }
+
+    private static Map<String, Object> assessment(Assessment a) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("assessmentId", a.getAssessmentId());
+        m.put("moduleId", a.getModuleId());
+        m.put("assessmentName", a.getAssessmentName());
+        m.put("assessmentType", a.getAssessmentType());
+        m.put("totalMarks", a.getTotalMarks());
+        m.put("weightage", a.getWeightage());
+        m.put("createdBy", a.getCreatedBy());
+        return m;
+    }
+
+    private static Map<String, Object> grade(Grade g) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("gradeId", g.getGradeId());
+        m.put("assessmentId", g.getAssessmentId());
+        m.put("studentId", g.getStudentId());
+        m.put("marks", g.getMarks());
+        m.put("grade", g.getGrade());
+        m.put("lecturerId", g.getLecturerId());
+        m.put("dateEntered", g.getDateEntered());
+        return m;
+    }
+
+    private static Map<String, Object> feedback(Feedback f) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("feedbackId", f.getFeedbackId());
+        m.put("assessmentId", f.getAssessmentId());
+        m.put("studentId", f.getStudentId());
+        m.put("lecturerId", f.getLecturerId());
+        m.put("feedbackText", f.getFeedbackText());
+        m.put("dateProvided", f.getDateProvided());
+        return m;
+    }
+
+    // The services' String[] rows, with names for each position.
+    private static List<Object> rows(List<String[]> rows, String... names) {
+        List<Object> out = new ArrayList<>();
+        for (String[] r : rows) {
+            Map<String, Object> m = new LinkedHashMap<>();
+            for (int i = 0; i < names.length && i < r.length; i++) m.put(names[i], r[i]);
+            out.add(m);
+        }
+        return out;
+    }
+
+    // --------------------------
+    // Body fields
+    // --------------------------
+
+    // Every string read from a body goes through here, so no route can write
+    // a '|' or line break into a data file (400 via IllegalArgumentException).
+    private static String str(Map<String, Object> b, String key) {
+        Object v = b.get(key);
+        if (v == null) return "";
+        if (v instanceof Map || v instanceof List) throw new IllegalArgumentException(key + " must be a string.");
+        if (v instanceof Double && (Double) v == Math.rint((Double) v)) return String.valueOf(((Double) v).longValue());
+        return Row.checkField(key, v.toString().trim());
+    }
+
+    private static double number(Map<String, Object> b, String key) {
+        Object v = b.get(key);
+        double d;
+        try {
+            d = v instanceof Number ? ((Number) v).doubleValue() : Double.parseDouble(str(b, key));
+        } catch (NumberFormatException e) {
+            d = Double.NaN;
+        }
+        if (Double.isNaN(d) || Double.isInfinite(d)) throw new IllegalArgumentException(key + " must be a number.");
+        return d;
+    }
+
+    private static int integer(Map<String, Object> b, String key) {
+        double d = number(b, key);
+        if (d != Math.rint(d) || Math.abs(d) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(key + " must be a whole number.");
+        }
+        return (int) d;
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
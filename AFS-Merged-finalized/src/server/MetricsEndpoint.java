@@ -0,0 +1,59 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import util.Metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GET /metrics: Metrics.prometheus() for a Prometheus scraper.
+ * - With --server it is served beside /api/ on the API port.
+ * - Otherwise Main starts it on its own when -Dafs.metrics.port is set.
+ * No sign-in is needed: the numbers hold no records, only call counts per
+ * file and method, and the host is afs.api.host (default 127.0.0.1).
+ */
+public final class MetricsEndpoint {
+
+    private MetricsEndpoint() {
+    }
+
+    static void register(HttpServer http) {
+        http.createContext("/metrics", MetricsEndpoint::handle);
+    }
+
+    /** A server with /metrics only, for when the API is not running. */
+    public static HttpServer start(int port) throws IOException {
+        String host = System.getProperty("afs.api.host", "127.0.0.1");
+        HttpServer http = HttpServer.create(new InetSocketAddress(host, port), 0);
+        register(http);
+        http.start();
+        System.out.println("Metrics on http://" + http.getAddress().getHostString()
+                + ":" + http.getAddress().getPort() + "/metrics");
+        return http;
+    }
+
+    private static void handle(HttpExchange ex) {
+        try {
+            if (!"GET".equalsIgnoreCase(ex.getRequestMethod())) {
+                ex.getResponseHeaders().set("Allow", "GET");
+                ex.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] bytes = Metrics.prometheus().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.getResponseHeaders().set("Cache-Control", "no-store");
+            ex.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = ex.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (IOException e) {
+            // Scraper went away.
+        } finally {
+            ex.close();
+        }
+    }
+}
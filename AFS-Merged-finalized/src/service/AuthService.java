@@ -1,62 +1,55 @@
 package service;
 
-import java.util.List;
 import model.User;
-import util.FileManager;
+import repository.DataStore;
+import repository.Row;
+import repository.Table;
+import util.Metrics;
 
-public class AuthService {
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 
-    private static final String USERS_FILE = "data/users.txt";
+public class AuthService {
 
+    /**
+     * Username lookups go through the users table's case-insensitive column
+     * index, which is built once and dropped whenever users.txt is written
+     * (FileManager/DataStore), so login does not scan the file.
+     */
     public static User login(String username, String password) {
-        if (username == null || password == null) return null;
-
-        String u = username.trim();
-        String p = password.trim();
-        if (u.isEmpty() || p.isEmpty()) return null;
+        return Metrics.time("AuthService.login", () -> {
+            if (username == null || password == null) return null;
 
-        List<String> lines = FileManager.readAll(USERS_FILE);
-        for (String line : lines) {
-            if (line == null) continue;
-            line = line.trim();
-            if (line.isEmpty()) continue;
+            String u = username.trim();
+            String p = password.trim();
+            if (u.isEmpty() || p.isEmpty()) return null;
 
-            String[] parts = line.split("\\|", -1);
+            Table users = DataStore.users();
 
             // Current schema: userId|username|password|name|gender|email|phone|age|role
-            if (parts.length >= 9) {
-                String userId = parts[0].trim();
-                String fileUsername = parts[1].trim();
-                String filePassword = parts[2].trim();
-                String name = parts[3].trim();
-                String gender = parts[4].trim();
-                String email = parts[5].trim();
-                String phone = parts[6].trim();
-                int age = 0;
-                try { age = Integer.parseInt(parts[7].trim()); } catch (Exception ignored) {}
-                String role = parts[8].trim();
-
-                if (fileUsername.equalsIgnoreCase(u) && filePassword.equals(p)) {
-                    return User.create(userId, fileUsername, filePassword, name, gender, email, phone, age, role);
+            for (Row parts : users.where(1, u)) {
+                if (parts.size() < 9) continue;
+                if (passwordMatches(parts.get(2), p)) {
+                    return User.create(parts.get(0), parts.get(1), parts.get(2), parts.get(3), parts.get(4),
+                            parts.get(5), parts.get(6), parts.getInt(7, 0), parts.get(8));
                 }
-                continue;
             }
 
             // Legacy schema fallback (merged from teammate branch):
             // userId|name|username|password|role
-            if (parts.length >= 5) {
-                String userId = parts[0].trim();
-                String name = parts[1].trim();
-                String fileUsername = parts[2].trim();
-                String filePassword = parts[3].trim();
-                String role = parts[4].trim();
-
-                if (fileUsername.equalsIgnoreCase(u) && filePassword.equals(p)) {
-                    return User.create(userId, fileUsername, filePassword, name, "", "", "", 0, role);
+            for (Row parts : users.where(2, u)) {
+                if (parts.size() < 5 || parts.size() >= 9) continue;
+                if (passwordMatches(parts.get(3), p)) {
+                    return User.create(parts.get(0), parts.get(2), parts.get(3), parts.get(1), "", "", "", 0, parts.get(4));
                 }
             }
-        }
 
-        return null;
+            return null;
+        });
+    }
+
+    // Constant-time comparison, so response time does not reveal how much of the password matched.
+    private static boolean passwordMatches(String stored, String given) {
+        return MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
     }
 }
@@ -0,0 +1,280 @@
+package service;
+
+import repository.DataStore;
+import repository.Locks;
+import repository.ReferenceIndex;
+import repository.ReferenceIndex.Entity;
+import repository.ReferenceIndex.OnDelete;
+import repository.ReferenceIndex.Ref;
+import repository.Row;
+import repository.Table;
+import repository.Transaction;
+import util.Metrics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Deletes or reassigns a record together with everything that refers to it,
+ * following the rules declared in ReferenceIndex.
+ * - plan...() only reads: it collects every affected row per file, and the
+ *   references that block a delete (RESTRICT).
+ * - apply() rewrites each affected file once, in one Transaction, so either
+ *   every file changes or none does. If a file changed since planning, the
+ *   plan is rebuilt.
+ *
+ * Records of LEADER, LECTURER and STUDENT live in users.txt, students.txt and
+ * lecturers.txt (with legacy layouts); the caller removes those rows itself.
+ * For MODULE, CLASS and ASSESSMENT the record row is part of the plan.
+ */
+public final class CascadeService {
+
+    private CascadeService() {}
+
+    public static final class Plan {
+        private final String action;
+        private final Entity entity;
+        private final String[] ids;
+        private final String toId;
+
+        // file -> changes, in the order files must be written
+        private final Map<String, FileChange> files = new LinkedHashMap<>();
+        private final List<String> blockers = new ArrayList<>();
+
+        private Plan(String action, Entity entity, String[] ids, String toId) {
+            this.action = action;
+            this.entity = entity;
+            this.ids = ids;
+            this.toId = toId;
+        }
+
+        public boolean isBlocked() {
+            return !blockers.isEmpty();
+        }
+
+        public boolean isEmpty() {
+            return files.isEmpty();
+        }
+
+        /** References that must be reassigned before a delete, e.g. "data/grades.txt: 3 row(s)". */
+        public List<String> getBlockers() {
+            return Collections.unmodifiableList(blockers);
+        }
+
+        /** One line per file, e.g. "data/grades.txt: delete 12, update 0". */
+        public List<String> describe() {
+            List<String> out = new ArrayList<>();
+            for (Map.Entry<String, FileChange> e : files.entrySet()) {
+                out.add(e.getKey() + ": delete " + e.getValue().deleted.size()
+                        + ", update " + e.getValue().edits.size());
+            }
+            return out;
+        }
+
+        /** describe() as a bulleted block for confirm dialogs ("" when nothing is affected). */
+        public String summary() {
+            if (files.isEmpty()) return "";
+            return "Affected records:\n- " + String.join("\n- ", describe());
+        }
+
+        public int getAffectedRows() {
+            int n = 0;
+            for (FileChange c : files.values()) n += c.deleted.size() + c.edits.size();
+            return n;
+        }
+
+        private FileChange change(String filePath) {
+            FileChange c = files.get(filePath);
+            if (c == null) {
+                c = new FileChange(DataStore.table(filePath).rows());
+                files.put(filePath, c);
+            }
+            return c;
+        }
+    }
+
+    private static final class FileChange {
+        final List<Row> snapshot;  // rows() when planned; apply re-plans if it changed
+        final Set<Row> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+        final Map<Row, Map<Integer, String>> edits = new IdentityHashMap<>();
+
+        FileChange(List<Row> snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        void edit(Row r, int column, String value) {
+            edits.computeIfAbsent(r, k -> new TreeMap<>()).put(column, value);
+        }
+    }
+
+    // --------------------------
+    // Planning
+    // --------------------------
+
+    /** Delete the records with these ids (several ids = aliases, e.g. lecturer id and username). */
+    public static Plan planDelete(Entity entity, String... ids) {
+        return Metrics.time("CascadeService.planDelete", () -> {
+            Plan plan = new Plan("delete", entity, ids, null);
+            cascade(plan, entity, ids, new LinkedHashSet<>());
+            order(plan);
+            return plan;
+        });
+    }
+
+    /** Point every reference to ids at toId instead; no row is deleted. */
+    public static Plan planReassign(Entity entity, String toId, String... ids) {
+        return Metrics.time("CascadeService.planReassign", () -> {
+            String target = safe(toId);
+            if (target.isEmpty()) throw new IllegalArgumentException("Target ID is required.");
+            for (String id : ids) {
+                if (safe(id).equalsIgnoreCase(target)) {
+                    throw new IllegalArgumentException("Cannot reassign " + target + " to itself.");
+                }
+            }
+
+            Plan plan = new Plan("reassign", entity, ids, target);
+            for (Ref ref : ReferenceIndex.refsTo(entity)) {
+                for (Row r : ref.rows(ids)) plan.change(ref.getFilePath()).edit(r, ref.getColumn(), target);
+            }
+            return plan;
+        });
+    }
+
+    private static void cascade(Plan plan, Entity entity, String[] ids, Set<String> visited) {
+        List<String> fresh = new ArrayList<>();
+        for (String id : ids) {
+            String s = safe(id);
+            if (!s.isEmpty() && visited.add(entity + "|" + s.toUpperCase())) fresh.add(s);
+        }
+        if (fresh.isEmpty()) return;
+        String[] keys = fresh.toArray(new String[0]);
+
+        for (Ref ref : ReferenceIndex.refsTo(entity)) {
+            List<Row> rows = ref.rows(keys);
+            if (rows.isEmpty()) continue;
+
+            String file = ref.getFilePath();
+            if (ref.getOnDelete() == OnDelete.RESTRICT) {
+                plan.blockers.add(file + " (column " + (ref.getColumn() + 1) + "): " + rows.size() + " row(s)");
+                continue;
+            }
+            FileChange change = plan.change(file);
+            for (Row r : rows) {
+                if (ref.getOnDelete() == OnDelete.CLEAR) {
+                    change.edit(r, ref.getColumn(), "");
+                } else {
+                    change.deleted.add(r);
+                }
+            }
+
+            // A deleted row that is itself a record takes its own dependants with it.
+            Entity owned = ReferenceIndex.ownerOf(file);
+            if (ref.getOnDelete() == OnDelete.CASCADE && owned != null) {
+                int idColumn = ReferenceIndex.ownerColumn(file);
+                List<String> childIds = new ArrayList<>();
+                for (Row r : rows) childIds.add(r.get(idColumn));
+                cascade(plan, owned, childIds.toArray(new String[0]), visited);
+            }
+        }
+
+        String own = ReferenceIndex.fileOf(entity);
+        if (own != null) {
+            Table t = DataStore.table(own);
+            int idColumn = ReferenceIndex.ownerColumn(own);
+            for (String id : keys) {
+                for (Row r : t.where(idColumn, id)) plan.change(own).deleted.add(r);
+            }
+        }
+    }
+
+    // Files of the entity being deleted go last, so a half-applied plan
+    // leaves records without some dependants rather than dangling references.
+    private static void order(Plan plan) {
+        String[] owners = {
+                ReferenceIndex.fileOf(Entity.ASSESSMENT),
+                ReferenceIndex.fileOf(Entity.CLASS),
+                ReferenceIndex.fileOf(Entity.MODULE)
+        };
+        for (String f : owners) {
+            FileChange c = plan.files.remove(f);
+            if (c != null) plan.files.put(f, c);
+        }
+    }
+
+    // --------------------------
+    // Applying
+    // --------------------------
+
+    /**
+     * Apply the plan: one rewrite per affected file. Every file a cascade can
+     * touch stays write-locked from the staleness check to the commit.
+     */
+    public static void apply(Plan plan) {
+        Metrics.time("CascadeService.apply", () -> {
+            if (plan == null) return;
+            if (plan.isBlocked()) {
+                throw new IllegalArgumentException("Reassign these records first:\n- " + String.join("\n- ", plan.blockers));
+            }
+            Locks.write(ReferenceIndex.tables(), () -> applyLocked(plan));
+        });
+    }
+
+    private static void applyLocked(Plan plan) {
+        Plan current = plan;
+        if (isStale(plan)) {
+            current = "delete".equals(plan.action)
+                    ? planDelete(plan.entity, plan.ids)
+                    : planReassign(plan.entity, plan.toId, plan.ids);
+            if (current.isBlocked()) {
+                throw new IllegalArgumentException("Data changed; reassign these records first:\n- "
+                        + String.join("\n- ", current.blockers));
+            }
+        }
+
+        Transaction tx = Transaction.begin();
+        for (Map.Entry<String, FileChange> e : current.files.entrySet()) {
+            FileChange change = e.getValue();
+            List<String> out = new ArrayList<>();
+            for (Row r : change.snapshot) {
+                if (change.deleted.contains(r)) continue;
+                Map<Integer, String> edit = change.edits.get(r);
+                out.add(edit == null ? r.line() : rewrite(r, edit));
+            }
+            tx.writeAll(DataStore.table(e.getKey()), out);
+        }
+        try {
+            tx.commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save changes: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isStale(Plan plan) {
+        for (Map.Entry<String, FileChange> e : plan.files.entrySet()) {
+            if (DataStore.table(e.getKey()).rows() != e.getValue().snapshot) return true;
+        }
+        return false;
+    }
+
+    private static String rewrite(Row r, Map<Integer, String> edit) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < r.size(); c++) {
+            if (c > 0) sb.append('|');
+            String v = edit.get(c);
+            sb.append(v == null ? r.get(c) : v);
+        }
+        return sb.toString();
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
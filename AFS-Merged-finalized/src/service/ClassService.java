@@ -1,49 +1,56 @@
 package service;
 
 import model.ClassRecord;
-import util.FileManager;
+import repository.DataStore;
+import repository.Locks;
+import repository.ReferenceIndex;
+import repository.Row;
+import util.Metrics;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class ClassService {
 
-    private static final String CLASSES_FILE = "data/classes.txt";
-
     public static List<ClassRecord> getAll() {
-        List<ClassRecord> list = new ArrayList<>();
-        List<String> lines = FileManager.readAll(CLASSES_FILE);
-
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-
-            String[] p = line.split("\\|");
-            if (p.length < 3) continue;
+        return Metrics.time("ClassService.getAll", () -> {
+            List<ClassRecord> list = new ArrayList<>();
 
-            list.add(new ClassRecord(p[0], p[1], p[2]));
-        }
-        return list;
+            for (Row p : DataStore.classes().rows()) {
+                if (p.size() < 3) continue;
+                list.add(new ClassRecord(p.get(0), p.get(1), p.get(2)));
+            }
+            return list;
+        });
     }
 
     public static boolean existsClassId(String classId) {
-        for (ClassRecord c : getAll()) {
-            if (c.getClassId().equalsIgnoreCase(classId)) return true;
+        for (Row p : DataStore.classes().where(0, classId)) {
+            if (p.size() >= 3) return true;
         }
         return false;
     }
 
+    // Validation and write under one lock, so two saves cannot both pass the one-class-per-module check.
     public static void add(ClassRecord rec) {
-        validateClassRecord(rec, null);
-        FileManager.append(CLASSES_FILE, rec.toString());
+        Metrics.time("ClassService.add", () -> Locks.write(DataStore.classes(), () -> {
+            validateClassRecord(rec, null);
+            DataStore.classes().append(rec.toString());
+        }));
     }
 
     public static void update(String classId, ClassRecord newRec) {
-        validateClassRecord(newRec, classId);
-        FileManager.updateById(CLASSES_FILE, classId, newRec.toString());
+        Metrics.time("ClassService.update", () -> Locks.write(DataStore.classes(), () -> {
+            validateClassRecord(newRec, classId);
+            DataStore.classes().updateById(classId, newRec.toString());
+        }));
     }
 
+    /** Deletes the class and its student registrations. */
     public static void delete(String classId) {
-        FileManager.deleteById(CLASSES_FILE, classId);
+        Metrics.time("ClassService.delete", () -> {
+            CascadeService.apply(CascadeService.planDelete(ReferenceIndex.Entity.CLASS, classId));
+        });
     }
 
     private static void validateClassRecord(ClassRecord rec, String excludeClassId) {
@@ -56,16 +63,18 @@ public class ClassService {
         if (classId.isEmpty()) throw new IllegalArgumentException("Class ID is required.");
         if (className.isEmpty()) throw new IllegalArgumentException("Class name is required.");
         if (moduleId.isEmpty()) throw new IllegalArgumentException("Module ID is required.");
+        Row.checkField("Class ID", classId);
+        Row.checkField("Class name", className);
+        Row.checkField("Module ID", moduleId);
 
         if (ModuleService.findById(moduleId) == null) {
             throw new IllegalArgumentException("Module does not exist: " + moduleId);
         }
 
-        for (ClassRecord c : getAll()) {
-            if (excludeClassId != null && c.getClassId().equalsIgnoreCase(excludeClassId)) continue;
-            if (c.getModuleId().equalsIgnoreCase(moduleId)) {
-                throw new IllegalArgumentException("Only one class is allowed per module. Existing class: " + c.getClassId());
-            }
+        for (Row c : DataStore.classes().where(2, moduleId)) {
+            if (c.size() < 3) continue;
+            if (excludeClassId != null && c.get(0).equalsIgnoreCase(excludeClassId)) continue;
+            throw new IllegalArgumentException("Only one class is allowed per module. Existing class: " + c.get(0));
         }
     }
 
@@ -0,0 +1,169 @@
+package service;
+
+import model.GradingRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Immutable, compiled grading bands.
+ * - Grade lookup: a band min..max covers percentages in [min, max + 1), so
+ *   decimal percentages never fall into the gap between two integer bands.
+ *   Where bands overlap, the first one in file order wins (same as the old
+ *   linear scan). Bands are flattened into sorted segments, so a lookup is a
+ *   binary search.
+ * - Overlap checks: bands are also kept in an interval tree (implicit,
+ *   balanced, over the bands sorted by min), so every band overlapping a new
+ *   min..max is found in O(log n + k).
+ */
+public final class GradingScheme {
+
+    public static final String DEFAULT = "default";
+
+    public static final GradingScheme EMPTY = compile(DEFAULT, Collections.<GradingRule>emptyList());
+
+    private final String name;
+    private final List<GradingRule> rules;
+    private final Map<String, GradingRule> byGrade;
+
+    private final double[] starts;  // segment i covers [starts[i], starts[i + 1])
+    private final String[] labels;  // grade for segment i, null for a gap
+
+    private final GradingRule[] sorted; // by min; node of [l..r] is (l + r) / 2
+    private final int[] maxEnd;         // largest max in that node's subtree
+
+    private GradingScheme(String name, List<GradingRule> rules) {
+        this.name = name;
+        this.rules = rules;
+
+        this.byGrade = new HashMap<>();
+        for (GradingRule r : rules) byGrade.putIfAbsent(key(r.getGrade()), r);
+
+        TreeSet<Double> points = new TreeSet<>();
+        for (GradingRule r : rules) {
+            if (r.getMax() + 1.0 > r.getMin()) {
+                points.add((double) r.getMin());
+                points.add(r.getMax() + 1.0);
+            }
+        }
+        this.starts = new double[points.size()];
+        int i = 0;
+        for (double p : points) starts[i++] = p;
+
+        this.labels = new String[starts.length];
+        for (int s = 0; s + 1 < starts.length; s++) {
+            double from = starts[s];
+            for (GradingRule r : rules) {
+                if (from >= r.getMin() && from < r.getMax() + 1.0) {
+                    labels[s] = r.getGrade();
+                    break;
+                }
+            }
+        }
+
+        this.sorted = rules.toArray(new GradingRule[0]);
+        Arrays.sort(sorted, Comparator.comparingInt(GradingRule::getMin));
+        this.maxEnd = new int[sorted.length];
+        buildTree(0, sorted.length - 1);
+    }
+
+    public static GradingScheme compile(List<GradingRule> source) {
+        return compile(DEFAULT, source);
+    }
+
+    public static GradingScheme compile(String name, List<GradingRule> source) {
+        List<GradingRule> copy = new ArrayList<>(source.size());
+        for (GradingRule r : source) copy.add(new GradingRule(r.getGrade(), r.getMin(), r.getMax()));
+        return new GradingScheme(name, copy);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /** Grade for a percentage, or "" when no band covers it. */
+    public String gradeForPercentage(double percentage) {
+        int i = Arrays.binarySearch(starts, percentage);
+        if (i < 0) i = -i - 2;  // segment whose start is just below
+        if (i < 0 || i >= labels.length) return "";
+        String label = labels[i];
+        return label == null ? "" : label;
+    }
+
+    /** Same rules as FileHandler.calculateGrade: percentage clamped to 0..100. */
+    public String gradeFor(double marks, double total) {
+        if (total <= 0) return "";
+        double percentage = (marks / total) * 100.0;
+        if (percentage < 0) percentage = 0;
+        if (percentage > 100) percentage = 100;
+        return gradeForPercentage(percentage);
+    }
+
+    public boolean hasGrade(String grade) {
+        return grade != null && byGrade.containsKey(key(grade));
+    }
+
+    /**
+     * Every band whose inclusive range min..max intersects the given one,
+     * ordered by min. Bands with grade excludeGrade (case-insensitive) are
+     * skipped, so an update does not conflict with the band it replaces.
+     */
+    public List<GradingRule> findOverlaps(int min, int max, String excludeGrade) {
+        List<GradingRule> out = new ArrayList<>();
+        String skip = excludeGrade == null ? null : key(excludeGrade);
+        collect(0, sorted.length - 1, min, max, skip, out);
+        return out;
+    }
+
+    /** Bands in file order, as copies: the scheme itself never changes. */
+    public List<GradingRule> getRules() {
+        List<GradingRule> out = new ArrayList<>(rules.size());
+        for (GradingRule r : rules) out.add(new GradingRule(r.getGrade(), r.getMin(), r.getMax()));
+        return out;
+    }
+
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+
+    // --------------------------
+    // Interval tree
+    // --------------------------
+
+    private int buildTree(int l, int r) {
+        if (l > r) return Integer.MIN_VALUE;
+        int mid = (l + r) >>> 1;
+        int m = sorted[mid].getMax();
+        m = Math.max(m, buildTree(l, mid - 1));
+        m = Math.max(m, buildTree(mid + 1, r));
+        maxEnd[mid] = m;
+        return m;
+    }
+
+    private void collect(int l, int r, int min, int max, String skip, List<GradingRule> out) {
+        if (l > r) return;
+        int mid = (l + r) >>> 1;
+        if (maxEnd[mid] < min) return;  // nothing in this subtree reaches min
+
+        collect(l, mid - 1, min, max, skip, out);
+
+        GradingRule band = sorted[mid];
+        if (band.getMin() <= max && band.getMax() >= min
+                && (skip == null || !skip.equals(key(band.getGrade())))) {
+            out.add(new GradingRule(band.getGrade(), band.getMin(), band.getMax()));
+        }
+
+        // Right subtree starts at or after band.min; if that is past max, none can overlap.
+        if (band.getMin() <= max) collect(mid + 1, r, min, max, skip, out);
+    }
+
+    private static String key(String grade) {
+        return grade.trim().toUpperCase();
+    }
+}
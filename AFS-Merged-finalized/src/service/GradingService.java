@@ -1,17 +1,29 @@
 package service;
 
+import event.EventBus;
+import event.GradingSchemeChanged;
 import model.GradingRule;
-import util.FileManager;
+import repository.DataStore;
+import repository.Locks;
+import repository.Row;
+import repository.Table;
+import util.Constants;
+import util.Metrics;
 
+import java.io.File;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 public class GradingService {
 
-    private static final String GRADING_FILE = "data/grading.txt";
-
     private static final Set<String> ALLOWED_GRADES = new HashSet<>();
     static {
         // A band
@@ -40,61 +52,248 @@ public class GradingService {
         ALLOWED_GRADES.add("F-");
     }
 
+    // Compiled scheme plus the row list it was built from (identity changes on reload).
+    private static final class Published {
+        final List<Row> source;
+        final GradingScheme scheme;
+
+        Published(List<Row> source, GradingScheme scheme) {
+            this.source = source;
+            this.scheme = scheme;
+        }
+    }
+
+    // scheme name (lower case) -> last compiled version; swapped atomically per name.
+    private static final Map<String, Published> SCHEMES = new ConcurrentHashMap<>();
+
+    private static final Pattern SCHEME_NAME = Pattern.compile("[A-Za-z0-9_-]{1,40}");
+    private static final String SCHEME_PREFIX = "grading_";
+    private static final String SCHEME_SUFFIX = ".txt";
+
+    /**
+     * Current default grading scheme used to turn marks into grades.
+     * Read from grading.txt (or grading_system.txt if it does not exist yet),
+     * compiled once and swapped atomically after add/update/delete or when
+     * the file changes on disk.
+     */
+    public static GradingScheme getScheme() {
+        return getScheme(GradingScheme.DEFAULT);
+    }
+
+    /**
+     * Named scheme (data/grading_<name>.txt); null, blank or "default" is the
+     * default scheme. Each scheme is compiled once and kept, so switching
+     * between schemes does not reparse their files.
+     */
+    public static GradingScheme getScheme(String name) {
+        String key = schemeKey(name);
+        Table table = schemeTable(key);
+        if (table == null) return GradingScheme.EMPTY;
+
+        List<Row> rows = table.rows();
+        Published p = SCHEMES.get(key);
+        if (p != null && p.source == rows) return p.scheme;
+
+        Published next = new Published(rows, compileScheme(key, rows));
+        SCHEMES.put(key, next);
+        return next.scheme;
+    }
+
+    /** "default" followed by every data/grading_<name>.txt scheme, sorted. */
+    public static List<String> getSchemeNames() {
+        return Metrics.time("GradingService.getSchemeNames", () -> {
+            List<String> names = new ArrayList<>();
+            File[] files = new File(Constants.DATA_DIR).listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    String n = f.getName();
+                    if (!n.startsWith(SCHEME_PREFIX) || !n.endsWith(SCHEME_SUFFIX)) continue;
+                    String name = n.substring(SCHEME_PREFIX.length(), n.length() - SCHEME_SUFFIX.length());
+                    if (isValidSchemeName(name.toLowerCase())) names.add(name.toLowerCase());
+                }
+            }
+            Collections.sort(names);
+            names.add(0, GradingScheme.DEFAULT);
+            return names;
+        });
+    }
+
+    /** Create a named scheme as a copy of another; false if the name is invalid or taken. */
+    public static boolean createScheme(String name, String copyFrom) {
+        return Metrics.time("GradingService.createScheme", () -> {
+            String key = schemeKey(name);
+            if (key.equals(GradingScheme.DEFAULT) || !isValidSchemeName(key)) return false;
+            File file = new File(schemeFile(key));
+            Table table = DataStore.table(file.getPath());
+            return Locks.write(table, () -> {
+                if (file.exists()) return false;
+
+                List<String> lines = new ArrayList<>();
+                for (GradingRule r : getAll(copyFrom)) lines.add(r.toString());
+                table.writeAll(lines);
+                SCHEMES.remove(key);
+                EventBus.publish(new GradingSchemeChanged(key));
+                return true;
+            });
+        });
+    }
+
+    /** Every band in the scheme that intersects min..max, except excludeGrade's own band. */
+    public static List<GradingRule> findOverlaps(String scheme, int min, int max, String excludeGrade) {
+        return getScheme(scheme).findOverlaps(min, max, excludeGrade);
+    }
+
+    // grading_system.txt is the legacy default file, not a named scheme.
+    private static boolean isValidSchemeName(String key) {
+        return SCHEME_NAME.matcher(key).matches() && !key.equals("system");
+    }
+
+    private static String schemeKey(String name) {
+        String n = name == null ? "" : name.trim().toLowerCase();
+        return n.isEmpty() ? GradingScheme.DEFAULT : n;
+    }
+
+    private static String schemeFile(String key) {
+        return Paths.get(Constants.DATA_DIR, SCHEME_PREFIX + key + SCHEME_SUFFIX).toString();
+    }
+
+    private static Table schemeTable(String key) {
+        File file;
+        if (key.equals(GradingScheme.DEFAULT)) {
+            file = new File(Constants.GRADING_FILE);
+            if (!file.exists()) {
+                // Backward-compatibility fallback.
+                file = new File(Constants.GRADING_SYSTEM_FILE);
+            }
+        } else {
+            if (!isValidSchemeName(key)) return null;
+            file = new File(schemeFile(key));
+        }
+        return file.exists() ? DataStore.table(file.getPath()) : null;
+    }
+
+    // Table that add/update/delete write to for a scheme.
+    private static Table writableTable(String key) {
+        if (key.equals(GradingScheme.DEFAULT)) return DataStore.grading();
+        if (!isValidSchemeName(key)) throw new IllegalArgumentException("Invalid grading scheme: " + key);
+        return DataStore.table(schemeFile(key));
+    }
+
+    // Every parseable row counts here (not only allowed grades), as in the
+    // old per-mark lookup; a repeated grade keeps its first position and takes the later bounds.
+    private static GradingScheme compileScheme(String name, List<Row> rows) {
+        Map<String, GradingRule> byGrade = new LinkedHashMap<>();
+        for (Row data : rows) {
+            if (data.size() < 3) continue;
+            try {
+                String grade = data.get(0);
+                byGrade.put(grade, new GradingRule(grade,
+                        Integer.parseInt(data.get(1)), Integer.parseInt(data.get(2))));
+            } catch (Exception ignored) {
+                // Skip malformed grading rows.
+            }
+        }
+        return GradingScheme.compile(name, new ArrayList<>(byGrade.values()));
+    }
+
+    private static void republish(String key) {
+        SCHEMES.remove(key);
+        getScheme(key);
+        EventBus.publish(new GradingSchemeChanged(key));
+    }
+
     public static boolean isAllowedGrade(String grade) {
         if (grade == null) return false;
         return ALLOWED_GRADES.contains(grade.trim().toUpperCase());
     }
 
     public static List<GradingRule> getAll() {
-        List<GradingRule> list = new ArrayList<>();
-        List<String> lines = FileManager.readAll(GRADING_FILE);
+        return getAll(GradingScheme.DEFAULT);
+    }
 
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
+    public static List<GradingRule> getAll(String scheme) {
+        return Metrics.time("GradingService.getAll", () -> {
+            List<GradingRule> list = new ArrayList<>();
+            String key = schemeKey(scheme);
+            Table table = key.equals(GradingScheme.DEFAULT) ? DataStore.grading() : schemeTable(key);
+            if (table == null) return list;
 
-            String[] p = line.split("\\|");
-            if (p.length < 3) continue;
+            for (Row p : table.rows()) {
+                if (p.size() < 3) continue;
 
-            try {
-                String grade = p[0].trim().toUpperCase();
-                int min = Integer.parseInt(p[1].trim());
-                int max = Integer.parseInt(p[2].trim());
+                try {
+                    String grade = p.get(0).toUpperCase();
+                    int min = Integer.parseInt(p.get(1));
+                    int max = Integer.parseInt(p.get(2));
 
-                // Keep file clean: only load allowed grades
-                if (!isAllowedGrade(grade)) continue;
+                    // Keep file clean: only load allowed grades
+                    if (!isAllowedGrade(grade)) continue;
 
-                list.add(new GradingRule(grade, min, max));
-            } catch (Exception ignored) {
+                    list.add(new GradingRule(grade, min, max));
+                } catch (Exception ignored) {
+                }
             }
-        }
-        return list;
+            return list;
+        });
     }
 
     // grade is the unique key
     public static boolean existsGrade(String grade) {
-        if (grade == null) return false;
-        String g = grade.trim().toUpperCase();
-        for (GradingRule r : getAll()) {
-            if (r.getGrade().equalsIgnoreCase(g)) return true;
-        }
-        return false;
+        return existsGrade(GradingScheme.DEFAULT, grade);
+    }
+
+    public static boolean existsGrade(String scheme, String grade) {
+        return grade != null && getScheme(scheme).hasGrade(grade);
     }
 
     public static void add(GradingRule rule) {
-        if (rule == null) return;
-        if (!isAllowedGrade(rule.getGrade())) return;
-        FileManager.append(GRADING_FILE, rule.toString());
+        add(GradingScheme.DEFAULT, rule);
+    }
+
+    public static void add(String scheme, GradingRule rule) {
+        Metrics.time("GradingService.add", () -> {
+            if (rule == null) return;
+            if (!isAllowedGrade(rule.getGrade())) return;
+            String key = schemeKey(scheme);
+            Table table = writableTable(key);
+            Locks.write(table, () -> {
+                table.append(rule.toString());
+                republish(key);
+            });
+        });
     }
 
     public static void update(String gradeKey, GradingRule newRule) {
-        if (gradeKey == null || newRule == null) return;
-        if (!isAllowedGrade(newRule.getGrade())) return;
-        FileManager.updateById(GRADING_FILE, gradeKey.trim().toUpperCase(), newRule.toString());
+        update(GradingScheme.DEFAULT, gradeKey, newRule);
+    }
+
+    public static void update(String scheme, String gradeKey, GradingRule newRule) {
+        Metrics.time("GradingService.update", () -> {
+            if (gradeKey == null || newRule == null) return;
+            if (!isAllowedGrade(newRule.getGrade())) return;
+            String key = schemeKey(scheme);
+            Table table = writableTable(key);
+            Locks.write(table, () -> {
+                table.updateById(gradeKey.trim().toUpperCase(), newRule.toString());
+                republish(key);
+            });
+        });
     }
 
     public static void delete(String gradeKey) {
-        if (gradeKey == null) return;
-        FileManager.deleteById(GRADING_FILE, gradeKey.trim().toUpperCase());
+        delete(GradingScheme.DEFAULT, gradeKey);
+    }
+
+    public static void delete(String scheme, String gradeKey) {
+        Metrics.time("GradingService.delete", () -> {
+            if (gradeKey == null) return;
+            String key = schemeKey(scheme);
+            Table table = writableTable(key);
+            Locks.write(table, () -> {
+                table.deleteById(gradeKey.trim().toUpperCase());
+                republish(key);
+            });
+        });
     }
 
     // Optional helper for UI
@@ -0,0 +1,226 @@
+package service;
+
+import repository.DataStore;
+import repository.ReferenceIndex;
+import repository.ReferenceIndex.Entity;
+import repository.ReferenceIndex.Ref;
+import repository.Row;
+import repository.Table;
+import util.Constants;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Read-only consistency checks over the data files (Batch "check").
+ * - short-row: fewer columns than the file's layout (see DataStore)
+ * - duplicate-id: a record id, or a student+class registration, listed twice
+ * - dangling-ref: a column in ReferenceIndex naming a record that does not
+ *   exist (lecturer columns may hold the lecturer's username instead)
+ * - bad-marks: marks not a number, or outside 0..the assessment's total
+ * - weightage: a module's assessments add up to more than 100
+ * Nothing is repaired; CascadeService reassigns or deletes.
+ */
+public final class IntegrityService {
+
+    private IntegrityService() {}
+
+    public static final class Issue {
+        private final String check;
+        private final String file;
+        private final int row;
+        private final String detail;
+
+        Issue(String check, String file, int row, String detail) {
+            this.check = check;
+            this.file = file;
+            this.row = row;
+            this.detail = detail;
+        }
+
+        public String getCheck() { return check; }
+        public String getFile() { return file; }
+        /** 1-based record number in the file (0 = the file as a whole). */
+        public int getRow() { return row; }
+        public String getDetail() { return detail; }
+    }
+
+    // Minimum columns per file: the legacy layouts are the shorter ones.
+    private static final Map<String, Integer> MIN_COLUMNS = new LinkedHashMap<>();
+
+    static {
+        MIN_COLUMNS.put(Constants.USERS_FILE, 5);
+        MIN_COLUMNS.put(Constants.STUDENTS_FILE, 2);
+        MIN_COLUMNS.put(Constants.MODULES_FILE, 6);
+        MIN_COLUMNS.put(Constants.CLASSES_FILE, 3);
+        MIN_COLUMNS.put(Constants.STUDENT_CLASSES_FILE, 2);
+        MIN_COLUMNS.put(Constants.ASSESSMENTS_FILE, 7);
+        MIN_COLUMNS.put(Constants.GRADES_FILE, 7);
+        MIN_COLUMNS.put(Constants.FEEDBACK_FILE, 6);
+        MIN_COLUMNS.put(Constants.COMMENTS_FILE, 5);
+        MIN_COLUMNS.put(Constants.LEADER_LECTURER_FILE, 2);
+    }
+
+    public static List<Issue> checkAll() {
+        return Metrics.time("IntegrityService.checkAll", () -> {
+            List<Issue> issues = new ArrayList<>();
+            checkShortRows(issues);
+            checkDuplicates(issues);
+            checkReferences(issues);
+            checkMarks(issues);
+            checkWeightage(issues);
+            return issues;
+        });
+    }
+
+    // --------------------------
+    // Checks
+    // --------------------------
+
+    private static void checkShortRows(List<Issue> issues) {
+        for (Map.Entry<String, Integer> e : MIN_COLUMNS.entrySet()) {
+            List<Row> rows = DataStore.table(e.getKey()).rows();
+            for (int i = 0; i < rows.size(); i++) {
+                if (rows.get(i).size() < e.getValue()) {
+                    issues.add(new Issue("short-row", e.getKey(), i + 1,
+                            rows.get(i).size() + " of " + e.getValue() + " columns"));
+                }
+            }
+        }
+    }
+
+    private static void checkDuplicates(List<Issue> issues) {
+        duplicates(issues, DataStore.users(), 0, 0);
+        duplicates(issues, DataStore.modules(), 0, 0);
+        duplicates(issues, DataStore.classes(), 0, 0);
+        duplicates(issues, DataStore.assessments(), 0, 0);
+        duplicates(issues, DataStore.studentClasses(), 0, 1);
+    }
+
+    private static void duplicates(List<Issue> issues, Table table, int c1, int c2) {
+        Set<String> seen = new HashSet<>();
+        List<Row> rows = table.rows();
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            if (r.size() <= Math.max(c1, c2) || r.isEmpty(c1)) continue;
+            String key = c1 == c2 ? r.get(c1) : r.get(c1) + "|" + r.get(c2);
+            if (!seen.add(key.toUpperCase())) {
+                issues.add(new Issue("duplicate-id", table.getFilePath(), i + 1, key));
+            }
+        }
+    }
+
+    private static void checkReferences(List<Issue> issues) {
+        Map<Entity, Set<String>> known = knownIds();
+        for (Ref ref : ReferenceIndex.allRefs()) {
+            Set<String> ids = known.get(ref.getEntity());
+            List<Row> rows = DataStore.table(ref.getFilePath()).rows();
+            for (int i = ref.hasHeader() ? 1 : 0; i < rows.size(); i++) {
+                Row r = rows.get(i);
+                if (r.size() <= ref.getColumn() || r.isEmpty(ref.getColumn())) continue;
+                String id = r.get(ref.getColumn());
+                if (!ids.contains(id.toUpperCase())) {
+                    issues.add(new Issue("dangling-ref", ref.getFilePath(), i + 1,
+                            "column " + (ref.getColumn() + 1) + ": unknown " + ref.getEntity().name().toLowerCase() + " " + id));
+                }
+            }
+        }
+    }
+
+    private static void checkMarks(List<Issue> issues) {
+        Map<String, Double> totals = new HashMap<>();
+        for (Row a : DataStore.assessments().rows()) {
+            if (a.size() >= 5) totals.putIfAbsent(a.get(0).toUpperCase(), a.getDouble(4, 0));
+        }
+        List<Row> rows = DataStore.grades().rows();
+        for (int i = 0; i < rows.size(); i++) {
+            Row g = rows.get(i);
+            if (g.size() < 5) continue;
+            double marks = g.getDouble(3, Double.NaN);
+            Double total = totals.get(g.get(1).toUpperCase());
+            if (Double.isNaN(marks)) {
+                issues.add(new Issue("bad-marks", Constants.GRADES_FILE, i + 1, "marks not a number: " + g.get(3)));
+            } else if (marks < 0 || (total != null && total > 0 && marks > total)) {
+                issues.add(new Issue("bad-marks", Constants.GRADES_FILE, i + 1,
+                        "marks " + g.get(3) + " outside 0.." + (total == null ? "?" : total)));
+            }
+        }
+    }
+
+    private static void checkWeightage(List<Issue> issues) {
+        Map<String, Double> byModule = new LinkedHashMap<>();
+        for (Row a : DataStore.assessments().rows()) {
+            if (a.size() < 6) continue;
+            byModule.merge(a.get(1).toUpperCase(), a.getDouble(5, 0), Double::sum);
+        }
+        for (Map.Entry<String, Double> e : byModule.entrySet()) {
+            if (e.getValue() > 100) {
+                issues.add(new Issue("weightage", Constants.ASSESSMENTS_FILE, 0,
+                        "module " + e.getKey() + ": assessments weigh " + e.getValue()));
+            }
+        }
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    // Upper-cased ids each entity can be referred to by.
+    private static Map<Entity, Set<String>> knownIds() {
+        Map<Entity, Set<String>> known = new EnumMap<>(Entity.class);
+        for (Entity e : Entity.values()) known.put(e, new HashSet<>());
+
+        for (Row u : DataStore.users().rows()) {
+            // userId|username|password|name|gender|email|phone|age|role, or legacy userId|name|username|password|role
+            String role;
+            String username;
+            if (u.size() >= 9) {
+                role = u.get(8);
+                username = u.get(1);
+            } else if (u.size() >= 5) {
+                role = u.get(4);
+                username = u.get(2);
+            } else {
+                continue;
+            }
+            String id = u.get(0).toUpperCase();
+            switch (role.toUpperCase()) {
+                case "LEADER":
+                    known.get(Entity.LEADER).add(id);
+                    break;
+                case "LECTURER":
+                    known.get(Entity.LECTURER).add(id);
+                    known.get(Entity.LECTURER).add(username.toUpperCase());
+                    break;
+                case "STUDENT":
+                    // Without a students.txt row the user id is the student id (StudentService).
+                    known.get(Entity.STUDENT).add(id);
+                    break;
+                default:
+                    break;
+            }
+        }
+        for (Row s : DataStore.students().rows()) {
+            if (s.size() >= 9) {
+                known.get(Entity.STUDENT).add(s.get(7).toUpperCase());
+            } else if (s.size() >= 2) {
+                known.get(Entity.STUDENT).add(s.get(0).toUpperCase());
+            }
+        }
+        for (Entity e : new Entity[]{Entity.MODULE, Entity.CLASS, Entity.ASSESSMENT}) {
+            String file = ReferenceIndex.fileOf(e);
+            int column = ReferenceIndex.ownerColumn(file);
+            for (Row r : DataStore.table(file).rows()) {
+                if (r.size() > column) known.get(e).add(r.get(column).toUpperCase());
+            }
+        }
+        return known;
+    }
+}
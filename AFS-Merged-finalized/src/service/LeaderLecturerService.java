@@ -1,6 +1,14 @@
 package service;
 
+import event.EventBus;
+import event.LecturerAssigned;
 import model.LeaderLecturerAssignment;
+import repository.DataStore;
+import repository.Locks;
+import repository.Row;
+import util.Constants;
+import util.FileManager;
+import util.Metrics;
 
 import java.io.*;
 import java.util.*;
@@ -16,9 +24,8 @@ public class LeaderLecturerService {
         IO_ERROR
     }
 
-    private static final String DEFAULT_PATH = "data/leader_lecturer.txt";
+    private static final String DEFAULT_PATH = Constants.LEADER_LECTURER_FILE;
     private static final String DELIM = "|";
-    private static final String SPLIT_REGEX = "\\|";
     private static final int MAX_LECTURERS_PER_LEADER = 3;
 
     private final String filePath;
@@ -33,32 +40,31 @@ public class LeaderLecturerService {
     }
 
     public List<LeaderLecturerAssignment> getAll() {
-        List<LeaderLecturerAssignment> list = new ArrayList<>();
-        File f = new File(filePath);
-        if (!f.exists()) return list;
-
-        try (BufferedReader br = new BufferedReader(new FileReader(f))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                if (line.isEmpty()) continue;
-                if (isHeaderLine(line)) continue;
+        return Metrics.time("LeaderLecturerService.getAll", () -> {
+            List<LeaderLecturerAssignment> list = new ArrayList<>();
 
-                String[] parts = line.split(SPLIT_REGEX);
-                if (parts.length < 2) continue;
+            for (Row parts : DataStore.table(filePath).rows()) {
+                if (isHeaderLine(parts.line().trim())) continue;
+                if (parts.size() < 2) continue;
 
-                String leaderId = safe(parts[0]);
-                String lecturerId = safe(parts[1]);
+                String leaderId = parts.get(0);
+                String lecturerId = parts.get(1);
                 if (leaderId.isEmpty() || lecturerId.isEmpty()) continue;
 
                 list.add(new LeaderLecturerAssignment(leaderId, lecturerId));
             }
-        } catch (IOException ignored) {
-        }
-        return list;
+            return list;
+        });
     }
 
+    // add and deletePair read and rewrite the file under its write lock (see Locks).
     public AddResult add(String leaderId, String lecturerId) {
+        return Metrics.time("LeaderLecturerService.add", () -> {
+            return Locks.write(DataStore.table(filePath), () -> addPair(leaderId, lecturerId));
+        });
+    }
+
+    private AddResult addPair(String leaderId, String lecturerId) {
         leaderId = safe(leaderId);
         lecturerId = safe(lecturerId);
 
@@ -91,10 +97,18 @@ public class LeaderLecturerService {
         }
 
         list.add(new LeaderLecturerAssignment(leaderId, lecturerId));
-        return writeAll(list) ? AddResult.SUCCESS : AddResult.IO_ERROR;
+        if (!writeAll(list)) return AddResult.IO_ERROR;
+        EventBus.publish(new LecturerAssigned(leaderId, "", lecturerId, true));
+        return AddResult.SUCCESS;
     }
 
     public boolean deletePair(String leaderId, String lecturerId) {
+        return Metrics.time("LeaderLecturerService.deletePair", () -> {
+            return Locks.write(DataStore.table(filePath), () -> removePair(leaderId, lecturerId));
+        });
+    }
+
+    private boolean removePair(String leaderId, String lecturerId) {
         leaderId = safe(leaderId);
         lecturerId = safe(lecturerId);
 
@@ -113,20 +127,22 @@ public class LeaderLecturerService {
         }
 
         if (list.size() == before) return false;
-        return writeAll(list);
+        if (!writeAll(list)) return false;
+        EventBus.publish(new LecturerAssigned(leaderId, "", lecturerId, false));
+        return true;
     }
 
     private boolean writeAll(List<LeaderLecturerAssignment> list) {
-        ensureFileExistsWithHeader();
-        File f = new File(filePath);
-        try (PrintWriter pw = new PrintWriter(new FileWriter(f, false))) {
-            pw.println("LeaderID|LecturerID");
-            for (LeaderLecturerAssignment a : list) {
-                String lId = safe(a.getLeaderId());
-                String tId = safe(a.getLecturerId());
-                if (lId.isEmpty() || tId.isEmpty()) continue;
-                pw.println(lId + DELIM + tId);
-            }
+        List<String> lines = new ArrayList<>();
+        lines.add("LeaderID|LecturerID");
+        for (LeaderLecturerAssignment a : list) {
+            String lId = safe(a.getLeaderId());
+            String tId = safe(a.getLecturerId());
+            if (lId.isEmpty() || tId.isEmpty()) continue;
+            lines.add(lId + DELIM + tId);
+        }
+        try {
+            FileManager.replaceFile(filePath, lines);
             return true;
         } catch (IOException e) {
             return false;
@@ -0,0 +1,317 @@
+package service;
+
+import event.DomainEvent;
+import event.FeedbackSaved;
+import event.GradeSaved;
+import event.LecturerAssigned;
+import event.StudentRegistered;
+import repository.DataStore;
+import repository.Row;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The five leader reports (LeaderReportsFrame tabs, Batch "report").
+ * No Swing here, so reports can be built headless.
+ *
+ * scope: the module ids a leader owns (moduleIdsOfLeader), or null for
+ * every module. An empty scope means a leader without modules: nothing
+ * is in scope.
+ */
+public final class LeaderReportService {
+
+    private LeaderReportService() {}
+
+    public static final String MODULE_OVERVIEW = "module-overview";
+    public static final String ASSESSMENT_SUMMARY = "assessment-summary";
+    public static final String STUDENT_PERFORMANCE = "student-performance";
+    public static final String GRADE_DISTRIBUTION = "grade-distribution";
+    public static final String FEEDBACK_COVERAGE = "feedback-coverage";
+
+    public static final List<String> NAMES = Collections.unmodifiableList(Arrays.asList(
+            MODULE_OVERVIEW, ASSESSMENT_SUMMARY, STUDENT_PERFORMANCE, GRADE_DISTRIBUTION, FEEDBACK_COVERAGE));
+
+    private static final String[] GRADE_ORDER = {"A+", "A", "A-", "B+", "B", "B-", "C+", "C", "C-", "D+", "D", "D-", "F+", "F", "F-"};
+
+    public static final class Report {
+        private final String name;
+        private final String[] columns;
+        private final List<Object[]> rows;
+
+        private Report(String name, String[] columns, List<Object[]> rows) {
+            this.name = name;
+            this.columns = columns;
+            this.rows = rows;
+        }
+
+        public String getName() { return name; }
+        public String[] getColumns() { return columns.clone(); }
+        public List<Object[]> getRows() { return rows; }
+    }
+
+    /** Column headers of a report, as shown in the frame's tables. */
+    public static String[] columns(String name) {
+        switch (name) {
+            case MODULE_OVERVIEW: return new String[]{"Module ID", "Name", "Code", "Credits", "Lecturer", "Students"};
+            case ASSESSMENT_SUMMARY: return new String[]{"Assessment", "Type", "Module", "Total Marks", "Weightage", "Avg Score", "Pass Rate"};
+            case STUDENT_PERFORMANCE: return new String[]{"Student ID", "Name", "Module", "Avg Marks", "Assessments Graded"};
+            case GRADE_DISTRIBUTION: return new String[]{"Grade", "Count", "Percentage"};
+            case FEEDBACK_COVERAGE: return new String[]{"Assessment", "Total Graded", "With Feedback", "Coverage %"};
+            default: throw new IllegalArgumentException("Unknown report: " + name);
+        }
+    }
+
+    public static Report build(String name, Set<String> scope) {
+        String[] columns = columns(name);
+        switch (name) {
+            case MODULE_OVERVIEW: return new Report(name, columns, moduleOverview(scope));
+            case ASSESSMENT_SUMMARY: return new Report(name, columns, assessmentSummary(scope));
+            case STUDENT_PERFORMANCE: return new Report(name, columns, studentPerformance(scope));
+            case GRADE_DISTRIBUTION: return new Report(name, columns, gradeDistribution(scope));
+            default: return new Report(name, columns, feedbackCoverage(scope));
+        }
+    }
+
+    /** Module ids whose leader column is leaderId. */
+    public static Set<String> moduleIdsOfLeader(String leaderId) {
+        Set<String> ids = new LinkedHashSet<>();
+        String lid = safe(leaderId);
+        if (lid.isEmpty()) return ids;
+        for (Row p : DataStore.modules().where(4, lid)) {
+            if (p.size() >= 6) ids.add(p.get(0));
+        }
+        return ids;
+    }
+
+    /** User ids of every LEADER in users.txt, in file order. */
+    public static List<String> leaderIds() {
+        List<String> ids = new ArrayList<>();
+        for (Row p : DataStore.users().where(8, "LEADER")) {
+            if (p.size() >= 9 && !p.get(0).isEmpty()) ids.add(p.get(0));
+        }
+        return ids;
+    }
+
+    /**
+     * Module an event is about, so an open report only reloads for its own
+     * modules; "" when it names none (a leader-lecturer pairing, a scheme).
+     */
+    public static String moduleOf(DomainEvent e) {
+        Row r = null;
+        if (e instanceof GradeSaved) {
+            r = DataStore.assessments().first(0, ((GradeSaved) e).getAssessmentId());
+        } else if (e instanceof FeedbackSaved) {
+            r = DataStore.assessments().first(0, ((FeedbackSaved) e).getAssessmentId());
+        } else if (e instanceof StudentRegistered) {
+            Row c = DataStore.classes().first(0, ((StudentRegistered) e).getClassId());
+            return c == null ? "" : c.get(2);
+        } else if (e instanceof LecturerAssigned) {
+            return ((LecturerAssigned) e).getModuleId();
+        }
+        return r == null ? "" : r.get(1);
+    }
+
+    // --------------------------
+    // Reports
+    // --------------------------
+
+    public static List<Object[]> moduleOverview(Set<String> scope) {
+        return Metrics.time("LeaderReportService.moduleOverview", () -> {
+            List<Object[]> rows = new ArrayList<>();
+
+            // Count students per module via student_classes -> classes
+            Map<String, String> classToModule = classToModule();
+            Map<String, Set<String>> moduleStudents = new HashMap<>();
+            for (Row sp : DataStore.studentClasses().rows()) {
+                if (sp.size() >= 2) {
+                    String modId = classToModule.getOrDefault(sp.get(1), "");
+                    if (!modId.isEmpty()) {
+                        moduleStudents.computeIfAbsent(modId, k -> new HashSet<>()).add(sp.get(0));
+                    }
+                }
+            }
+
+            for (Row p : DataStore.modules().rows()) {
+                if (p.size() < 6) continue;
+                String moduleId = p.get(0);
+                if (!inScope(moduleId, scope)) continue;
+
+                int studentCount = moduleStudents.containsKey(moduleId) ? moduleStudents.get(moduleId).size() : 0;
+                rows.add(new Object[]{moduleId, p.get(1), p.get(2), p.get(3), p.get(5), studentCount});
+            }
+            return rows;
+        });
+    }
+
+    public static List<Object[]> assessmentSummary(Set<String> scope) {
+        return Metrics.time("LeaderReportService.assessmentSummary", () -> {
+            List<Object[]> rows = new ArrayList<>();
+
+            for (Row p : DataStore.assessments().rows()) {
+                if (p.size() < 7) continue;
+                String moduleId = p.get(1);
+                if (!inScope(moduleId, scope)) continue;
+
+                ReportService.Stats stats = ReportService.getAssessmentStats(p.get(0));
+                int count = stats.getCount();
+                String avgScore = count > 0 ? String.format("%.1f", stats.getAverage()) : "-";
+                String passRate = count > 0 ? String.format("%.0f%%", stats.getPassRate()) : "-";
+
+                rows.add(new Object[]{p.get(2), p.get(3), moduleId, p.get(4), p.get(5), avgScore, passRate});
+            }
+            return rows;
+        });
+    }
+
+    public static List<Object[]> studentPerformance(Set<String> scope) {
+        return Metrics.time("LeaderReportService.studentPerformance", () -> {
+            List<Object[]> rows = new ArrayList<>();
+
+            Map<String, String> userIdToName = new HashMap<>();
+            for (Row up : DataStore.users().rows()) {
+                if (up.size() >= 9) userIdToName.put(up.get(0), up.get(3));
+            }
+
+            Map<String, String> classToModule = classToModule();
+            Map<String, Set<String>> studentModules = new HashMap<>();
+            for (Row sp : DataStore.studentClasses().rows()) {
+                if (sp.size() >= 2) {
+                    String modId = classToModule.getOrDefault(sp.get(1), "");
+                    if (!modId.isEmpty()) {
+                        studentModules.computeIfAbsent(sp.get(0), k -> new HashSet<>()).add(modId);
+                    }
+                }
+            }
+
+            for (Row p : DataStore.students().rows()) {
+
+                // Supports:
+                // 1) username|password|name|gender|email|phone|age|studentId|moduleId
+                // 2) legacy username|password|name|gender|email|phone|age|studentId|extra|moduleId
+                // 3) studentId|userId
+                // 4) legacy studentId|userId|extra
+                String studentId;
+                String name;
+                if (p.size() >= 9) {
+                    studentId = p.get(7);
+                    name = p.get(2);
+                } else if (p.size() >= 2) {
+                    studentId = p.get(0);
+                    String userId = p.get(1);
+                    name = userIdToName.getOrDefault(userId, userId);
+                } else {
+                    continue;
+                }
+                if (studentId.isEmpty()) continue;
+                if (name.isEmpty()) name = studentId;
+
+                Set<String> scopedModules = new LinkedHashSet<>();
+                for (String m : studentModules.getOrDefault(studentId, Collections.<String>emptySet())) {
+                    if (inScope(m, scope)) scopedModules.add(m);
+                }
+
+                Set<String> gradedModules = new LinkedHashSet<>();
+                double sum = 0;
+                int count = 0;
+                for (Map.Entry<String, ReportService.Stats> e : ReportService.getStudentStats(studentId).entrySet()) {
+                    String assModId = e.getKey();
+                    if (!inScope(assModId, scope)) continue;
+                    if (!assModId.isEmpty()) gradedModules.add(assModId);
+                    count += e.getValue().getCount();
+                    sum += e.getValue().getSum();
+                }
+
+                if (scopedModules.isEmpty()) {
+                    scopedModules.addAll(gradedModules);
+                }
+                if (scope != null && scopedModules.isEmpty() && gradedModules.isEmpty()) continue;
+
+                String moduleDisplay = scopedModules.isEmpty() ? "-" : String.join(", ", scopedModules);
+                String avg = count > 0 ? String.format("%.1f", sum / count) : "-";
+                rows.add(new Object[]{studentId, name, moduleDisplay, avg, count});
+            }
+            return rows;
+        });
+    }
+
+    public static List<Object[]> gradeDistribution(Set<String> scope) {
+        return Metrics.time("LeaderReportService.gradeDistribution", () -> {
+            List<Object[]> rows = new ArrayList<>();
+
+            Map<String, Integer> gradeCounts = new LinkedHashMap<>();
+            for (String g : GRADE_ORDER) gradeCounts.put(g, 0);
+
+            int total = 0;
+            for (String modId : ReportService.getGradedModules()) {
+                if (!inScope(modId, scope)) continue;
+                for (Map.Entry<String, Integer> e : ReportService.getGradeCounts(modId).entrySet()) {
+                    total += e.getValue();
+                    gradeCounts.put(e.getKey(), gradeCounts.getOrDefault(e.getKey(), 0) + e.getValue());
+                }
+            }
+
+            for (Map.Entry<String, Integer> entry : gradeCounts.entrySet()) {
+                int count = entry.getValue();
+                if (count == 0) continue;
+                String pct = total > 0 ? String.format("%.1f%%", count * 100.0 / total) : "0%";
+                rows.add(new Object[]{entry.getKey(), count, pct});
+            }
+            return rows;
+        });
+    }
+
+    public static List<Object[]> feedbackCoverage(Set<String> scope) {
+        return Metrics.time("LeaderReportService.feedbackCoverage", () -> {
+            List<Object[]> rows = new ArrayList<>();
+
+            for (Row p : DataStore.assessments().rows()) {
+                if (p.size() < 7) continue;
+                String assessmentId = p.get(0);
+                if (!inScope(p.get(1), scope)) continue;
+
+                Set<String> gradedStudents = ReportService.getGradedStudents(assessmentId);
+
+                // One keyed lookup per graded student instead of a scan of feedback.txt.
+                int withFeedback = 0;
+                for (String sid : gradedStudents) {
+                    if (DataStore.feedback().find(assessmentId, sid) != null) withFeedback++;
+                }
+                int totalGraded = gradedStudents.size();
+                String coverage = totalGraded > 0 ? String.format("%.0f%%", withFeedback * 100.0 / totalGraded) : "-";
+
+                rows.add(new Object[]{p.get(2), totalGraded, withFeedback, coverage});
+            }
+            return rows;
+        });
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private static Map<String, String> classToModule() {
+        Map<String, String> map = new HashMap<>();
+        for (Row cp : DataStore.classes().rows()) {
+            if (cp.size() >= 3) map.put(cp.get(0), cp.get(2));
+        }
+        return map;
+    }
+
+    private static boolean inScope(String moduleId, Set<String> scope) {
+        return scope == null || scope.contains(safe(moduleId));
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
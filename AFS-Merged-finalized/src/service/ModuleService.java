@@ -1,8 +1,15 @@
 package service;
 
+import event.EventBus;
+import event.LecturerAssigned;
 import model.LeaderLecturerAssignment;
 import model.Module;
-import util.FileManager;
+import repository.DataStore;
+import repository.Locks;
+import repository.ReferenceIndex;
+import repository.Row;
+import repository.Table;
+import util.Metrics;
 
 import java.util.*;
 
@@ -19,60 +26,36 @@ import java.util.*;
  */
 public class ModuleService {
 
-    private static final String MODULES_FILE = "data/modules.txt";
-    private static final String LEADER_LECTURER_FILE = "data/leader_lecturer.txt";
-    private static final String USERS_FILE = "data/users.txt";
-    private static final String LECTURERS_FILE = "data/lecturers.txt";
-
     // --------------------------
     // Reads
     // --------------------------
 
     public static List<Module> getAll() {
-        List<Module> list = new ArrayList<>();
-        List<String> lines = FileManager.readAll(MODULES_FILE);
-
-        for (String line : lines) {
-            Module m = Module.fromFileLine(line);
-            if (m != null) list.add(m);
-        }
-        return list;
+        return Metrics.time("ModuleService.getAll", () -> toModules(DataStore.modules().rows()));
     }
 
     public static Module findById(String moduleId) {
         moduleId = safe(moduleId);
         if (moduleId.isEmpty()) return null;
 
-        for (Module m : getAll()) {
-            if (moduleId.equalsIgnoreCase(safe(m.getModuleId()))) return m;
-        }
-        return null;
+        List<Module> list = toModules(DataStore.modules().where(0, moduleId));
+        return list.isEmpty() ? null : list.get(0);
     }
 
     public static List<Module> getByLeader(String leaderId) {
-        leaderId = safe(leaderId);
-        List<Module> out = new ArrayList<>();
-        if (leaderId.isEmpty()) return out;
-
-        for (Module m : getAll()) {
-            if (leaderId.equalsIgnoreCase(safe(m.getLeaderId()))) {
-                out.add(m);
-            }
-        }
-        return out;
+        return Metrics.time("ModuleService.getByLeader", () -> {
+            String id = safe(leaderId);
+            if (id.isEmpty()) return new ArrayList<>();
+            return toModules(DataStore.modules().where(4, id));
+        });
     }
 
     public static List<Module> getByLecturer(String lecturerId) {
-        lecturerId = safe(lecturerId);
-        List<Module> out = new ArrayList<>();
-        if (lecturerId.isEmpty()) return out;
-
-        for (Module m : getAll()) {
-            if (lecturerId.equalsIgnoreCase(safe(m.getLecturerId()))) {
-                out.add(m);
-            }
-        }
-        return out;
+        return Metrics.time("ModuleService.getByLecturer", () -> {
+            String id = safe(lecturerId);
+            if (id.isEmpty()) return new ArrayList<>();
+            return toModules(DataStore.modules().where(5, id));
+        });
     }
 
     public static Module findFirstByLecturer(String lecturerId) {
@@ -84,7 +67,18 @@ public class ModuleService {
     // CRUD
     // --------------------------
 
+    // Module writes also rewrite lecturers.txt (syncLecturerLegacyFileFromModules), so both are locked.
+    private static List<Table> moduleFiles() {
+        return Arrays.asList(DataStore.modules(), DataStore.lecturers());
+    }
+
     public static Module createModule(String leaderId, String moduleName, String moduleCode, int creditHours) {
+        return Metrics.time("ModuleService.createModule", () -> {
+            return Locks.write(moduleFiles(), () -> insertModule(leaderId, moduleName, moduleCode, creditHours));
+        });
+    }
+
+    private static Module insertModule(String leaderId, String moduleName, String moduleCode, int creditHours) {
         leaderId = safe(leaderId);
         moduleName = safe(moduleName);
         moduleCode = safe(moduleCode);
@@ -92,6 +86,8 @@ public class ModuleService {
         if (leaderId.isEmpty()) throw new IllegalArgumentException("Leader ID is required.");
         if (moduleName.isEmpty()) throw new IllegalArgumentException("Module name is required.");
         if (moduleCode.isEmpty()) throw new IllegalArgumentException("Module code is required.");
+        Row.checkField("Module name", moduleName);
+        Row.checkField("Module code", moduleCode);
         if (creditHours <= 0) throw new IllegalArgumentException("Credit hours must be a positive number.");
         if (creditHours > 10) throw new IllegalArgumentException("Credit hours must be between 1 and 10.");
 
@@ -107,16 +103,21 @@ public class ModuleService {
             }
         }
 
-        String newId = generateNextModuleId();
+        String newId = SequenceService.next(SequenceService.Kind.MODULE);
         Module created = new Module(newId, moduleName, moduleCode, creditHours, leaderId, "");
 
-        // use your FileManager.append
-        FileManager.append(MODULES_FILE, created.toFileLine());
+        DataStore.modules().append(created.toFileLine());
         syncLecturerLegacyFileFromModules();
         return created;
     }
 
     public static void updateModule(String leaderId, String moduleId, String newName, String newCode, int newCreditHours) {
+        Metrics.time("ModuleService.updateModule", () -> {
+            Locks.write(moduleFiles(), () -> saveModule(leaderId, moduleId, newName, newCode, newCreditHours));
+        });
+    }
+
+    private static void saveModule(String leaderId, String moduleId, String newName, String newCode, int newCreditHours) {
         leaderId = safe(leaderId);
         moduleId = safe(moduleId);
         newName = safe(newName);
@@ -126,6 +127,8 @@ public class ModuleService {
         if (moduleId.isEmpty()) throw new IllegalArgumentException("Module ID is required.");
         if (newName.isEmpty()) throw new IllegalArgumentException("Module name is required.");
         if (newCode.isEmpty()) throw new IllegalArgumentException("Module code is required.");
+        Row.checkField("Module name", newName);
+        Row.checkField("Module code", newCode);
         if (newCreditHours <= 0) throw new IllegalArgumentException("Credit hours must be a positive number.");
         if (newCreditHours > 10) throw new IllegalArgumentException("Credit hours must be between 1 and 10.");
 
@@ -149,12 +152,21 @@ public class ModuleService {
         existing.setModuleCode(newCode);
         existing.setCreditHours(newCreditHours);
 
-        // use your FileManager.updateById (first column is moduleId)
-        FileManager.updateById(MODULES_FILE, moduleId, existing.toFileLine());
+        // first column is moduleId
+        DataStore.modules().updateById(moduleId, existing.toFileLine());
         syncLecturerLegacyFileFromModules();
     }
 
     public static void deleteModule(String leaderId, String moduleId) {
+        Metrics.time("ModuleService.deleteModule", () -> {
+            // Same lock set as the cascade (plus lecturers.txt), taken in one go.
+            List<Table> files = new ArrayList<>(ReferenceIndex.tables());
+            files.add(DataStore.lecturers());
+            Locks.write(files, () -> removeModule(leaderId, moduleId));
+        });
+    }
+
+    private static void removeModule(String leaderId, String moduleId) {
         leaderId = safe(leaderId);
         moduleId = safe(moduleId);
 
@@ -168,8 +180,8 @@ public class ModuleService {
             throw new IllegalArgumentException("You are not allowed to delete a module owned by another leader.");
         }
 
-        // use your FileManager.deleteById
-        FileManager.deleteById(MODULES_FILE, moduleId);
+        // Classes, registrations, assessments, marks, feedback and comments of the module go with it.
+        CascadeService.apply(CascadeService.planDelete(ReferenceIndex.Entity.MODULE, moduleId));
         syncLecturerLegacyFileFromModules();
     }
 
@@ -178,6 +190,12 @@ public class ModuleService {
     // --------------------------
 
     public static void assignLecturerToModule(String leaderId, String moduleId, String lecturerId) {
+        Metrics.time("ModuleService.assignLecturerToModule", () -> {
+            Locks.write(moduleFiles(), () -> assignLecturer(leaderId, moduleId, lecturerId));
+        });
+    }
+
+    private static void assignLecturer(String leaderId, String moduleId, String lecturerId) {
         leaderId = safe(leaderId);
         moduleId = safe(moduleId);
         lecturerId = safe(lecturerId);
@@ -214,11 +232,18 @@ public class ModuleService {
         }
 
         m.setLecturerId(lecturerId);
-        FileManager.updateById(MODULES_FILE, moduleId, m.toFileLine());
+        DataStore.modules().updateById(moduleId, m.toFileLine());
         syncLecturerLegacyFileFromModules();
+        EventBus.publish(new LecturerAssigned(leaderId, moduleId, lecturerId, true));
     }
 
     public static void unassignLecturerFromModule(String leaderId, String moduleId) {
+        Metrics.time("ModuleService.unassignLecturerFromModule", () -> {
+            Locks.write(moduleFiles(), () -> unassignLecturer(leaderId, moduleId));
+        });
+    }
+
+    private static void unassignLecturer(String leaderId, String moduleId) {
         leaderId = safe(leaderId);
         moduleId = safe(moduleId);
 
@@ -232,9 +257,11 @@ public class ModuleService {
             throw new IllegalArgumentException("You are not allowed to unassign lecturers for another leader's module.");
         }
 
+        String previous = safe(m.getLecturerId());
         m.setLecturerId("");
-        FileManager.updateById(MODULES_FILE, moduleId, m.toFileLine());
+        DataStore.modules().updateById(moduleId, m.toFileLine());
         syncLecturerLegacyFileFromModules();
+        EventBus.publish(new LecturerAssigned(leaderId, moduleId, previous, false));
     }
 
     // --------------------------
@@ -242,55 +269,45 @@ public class ModuleService {
     // --------------------------
 
     private static Set<String> getAllowedLecturersForLeader(String leaderId) {
-        List<String> lines = FileManager.readAll(LEADER_LECTURER_FILE);
         Set<String> lecturers = new LinkedHashSet<>();
 
-        for (String line : lines) {
-            if (line == null) continue;
-            String t = line.trim();
-            if (t.isEmpty()) continue;
-
+        for (Row p : DataStore.leaderLecturer().where(0, leaderId)) {
             // If someone accidentally added a header line, skip it safely
-            if (t.toLowerCase().startsWith("leaderid")) continue;
+            if (p.get(0).toLowerCase().startsWith("leaderid")) continue;
 
-            LeaderLecturerAssignment a = parseLeaderLecturerLine(t);
+            LeaderLecturerAssignment a = parseLeaderLecturerRow(p);
             if (a == null) continue;
 
-            if (leaderId.equalsIgnoreCase(safe(a.getLeaderId()))) {
-                lecturers.add(safe(a.getLecturerId()).toUpperCase());
-            }
+            lecturers.add(safe(a.getLecturerId()).toUpperCase());
         }
         return lecturers;
     }
 
-    private static LeaderLecturerAssignment parseLeaderLecturerLine(String line) {
-        String[] p = line.split("\\|", -1);
-        if (p.length < 2) return null;
+    private static LeaderLecturerAssignment parseLeaderLecturerRow(Row p) {
+        if (p.size() < 2) return null;
 
-        String leader = p[0].trim();
-        String lec = p[1].trim();
+        String leader = p.get(0);
+        String lec = p.get(1);
 
         if (leader.isEmpty() || lec.isEmpty()) return null;
 
         return new LeaderLecturerAssignment(leader, lec);
     }
 
-    private static String generateNextModuleId() {
-        int max = 0;
-        for (Module m : getAll()) {
-            String id = safe(m.getModuleId()).toUpperCase();
-            if (id.startsWith("MOD")) id = "M" + id.substring(3);
-
-            if (id.startsWith("M") && id.length() > 1) {
-                String num = id.substring(1);
-                try {
-                    int val = Integer.parseInt(num);
-                    if (val > max) max = val;
-                } catch (NumberFormatException ignored) {
-                }
+    private static List<Module> toModules(List<Row> rows) {
+        List<Module> list = new ArrayList<>();
+        for (Row p : rows) {
+            if (p.size() != 6) continue;
+
+            int creditHours;
+            try {
+                creditHours = Integer.parseInt(p.get(3));
+            } catch (NumberFormatException e) {
+                continue;
             }
+            list.add(new Module(p.get(0), p.get(1), p.get(2), creditHours, p.get(4), p.get(5)));
         }
-        return String.format("M%03d", max + 1);
+        return list;
     }
 
     private static String safe(String s) {
@@ -302,33 +319,29 @@ public class ModuleService {
      * users.txt remains primary for lecturer profile fields.
      */
     private static void syncLecturerLegacyFileFromModules() {
-        List<String> userLines = FileManager.readAll(USERS_FILE);
-
         // lecturerId -> [username,password,name,gender,email,phone,age]
         Map<String, String[]> lecturerUsersById = new LinkedHashMap<>();
         // username -> lecturerId
         Map<String, String> lecturerIdByUsername = new HashMap<>();
 
-        for (String line : userLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length < 9) continue;
+        for (Row p : DataStore.users().rows()) {
+            if (p.size() < 9) continue;
 
-            String role = safe(p[8]).toUpperCase();
+            String role = p.get(8).toUpperCase();
             if (!"LECTURER".equals(role)) continue;
 
-            String lecturerId = safe(p[0]);
-            String username = safe(p[1]);
+            String lecturerId = p.get(0);
+            String username = p.get(1);
             if (lecturerId.isEmpty() || username.isEmpty()) continue;
 
             lecturerUsersById.put(lecturerId.toUpperCase(), new String[]{
                     username,
-                    safe(p[2]), // password
-                    safe(p[3]), // name
-                    safe(p[4]), // gender
-                    safe(p[5]), // email
-                    safe(p[6]), // phone
-                    safe(p[7])  // age
+                    p.get(2), // password
+                    p.get(3), // name
+                    p.get(4), // gender
+                    p.get(5), // email
+                    p.get(6), // phone
+                    p.get(7)  // age
             });
             lecturerIdByUsername.put(username.toUpperCase(), lecturerId.toUpperCase());
         }
@@ -341,12 +354,10 @@ public class ModuleService {
             assignmentByLecturerId.put(lecturerId, new String[]{safe(m.getModuleId()), safe(m.getLeaderId())});
         }
 
-        List<String> existing = FileManager.readAll(LECTURERS_FILE);
         List<String> out = new ArrayList<>();
         Set<String> seenUsernames = new HashSet<>();
 
-        for (String line : existing) {
-            if (line == null || line.trim().isEmpty()) continue;
+        for (String line : DataStore.lecturers().lines()) {
             String[] p = line.split("\\|", -1);
             if (p.length < 9) continue;
 
@@ -388,6 +399,6 @@ public class ModuleService {
             out.add(username + "|" + u[1] + "|" + u[2] + "|" + u[3] + "|" + u[4] + "|" + u[5] + "|" + u[6] + "|" + moduleId + "|" + leaderId);
         }
 
-        FileManager.writeAll(LECTURERS_FILE, out);
+        DataStore.lecturers().writeAll(out);
     }
 }
@@ -0,0 +1,186 @@
+package service;
+
+import event.EventBus;
+import event.GradeSaved;
+import repository.DataStore;
+import repository.KeyedTable;
+import repository.Locks;
+import repository.Row;
+import util.Metrics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Recomputes the stored letter grade of every row in grades.txt from its
+ * marks, the assessment's total marks and the current default grading scheme.
+ * - Rows are graded in parallel (fork-join over the in-memory rows).
+ * - Only rows whose letter changes are written, as one upsertAll, which is a
+ *   single atomic rewrite of grades.txt.
+ * - The grades table stays locked for the whole run, so marks saved at the
+ *   same time wait instead of being overwritten.
+ */
+public final class RegradeService {
+
+    private RegradeService() {}
+
+    private static final int LEAF_SIZE = 4096;
+
+    public static final class Result {
+        private final int scanned;
+        private final int changed;
+        private final int skipped;
+        private final int uncovered;
+        private final long millis;
+
+        Result(int scanned, int changed, int skipped, int uncovered, long millis) {
+            this.scanned = scanned;
+            this.changed = changed;
+            this.skipped = skipped;
+            this.uncovered = uncovered;
+            this.millis = millis;
+        }
+
+        public int getScanned() { return scanned; }
+
+        public int getChanged() { return changed; }
+
+        /** Rows without a known assessment, a positive total or numeric marks. */
+        public int getSkipped() { return skipped; }
+
+        /** Rows whose percentage is not covered by any band; their letter is kept. */
+        public int getUncovered() { return uncovered; }
+
+        public long getMillis() { return millis; }
+    }
+
+    public static Result regradeAll() {
+        return regradeAll(null);
+    }
+
+    /** progress (0..100) may be called from worker threads. */
+    public static Result regradeAll(IntConsumer progress) {
+        return Metrics.time("RegradeService.regradeAll", () -> {
+            long start = System.currentTimeMillis();
+            GradingScheme scheme = GradingService.getScheme();
+            Map<String, Double> totals = assessmentTotals();
+
+            KeyedTable grades = DataStore.grades();
+            // Write lock: no mark can be saved between reading the rows and writing the new letters.
+            return Locks.write(grades, () -> {
+                List<Row> rows = grades.rows();
+                String[] next = new String[rows.size()];
+                Counts counts = new Counts(rows.size(), progress);
+
+                ForkJoinPool.commonPool().invoke(new Job(rows, next, 0, rows.size(), scheme, totals, counts));
+
+                List<String> changed = new ArrayList<>();
+                for (String line : next) {
+                    if (line != null) changed.add(line);
+                }
+                grades.upsertAll(changed);
+                for (int i = 0; i < next.length; i++) {
+                    if (next[i] != null) EventBus.publish(new GradeSaved(rows.get(i).get(1), rows.get(i).get(2)));
+                }
+                report(progress, 100);
+
+                return new Result(rows.size(), changed.size(), counts.skipped.intValue(),
+                        counts.uncovered.intValue(), System.currentTimeMillis() - start);
+            });
+        });
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private static Map<String, Double> assessmentTotals() {
+        Map<String, Double> totals = new HashMap<>();
+        for (Row a : DataStore.assessments().rows()) {
+            if (a.size() < 5) continue;
+            double total = a.getDouble(4, 0);
+            if (total > 0) totals.putIfAbsent(a.get(0).toUpperCase(), total);
+        }
+        return totals;
+    }
+
+    private static void report(IntConsumer progress, int percent) {
+        if (progress != null) progress.accept(percent);
+    }
+
+    private static final class Counts {
+        final int rows;
+        final IntConsumer progress;
+        final AtomicInteger done = new AtomicInteger();
+        final LongAdder skipped = new LongAdder();
+        final LongAdder uncovered = new LongAdder();
+
+        Counts(int rows, IntConsumer progress) {
+            this.rows = rows;
+            this.progress = progress;
+        }
+
+        void finished(int n) {
+            // Grading is the first 90%; the rewrite of grades.txt is the rest.
+            int total = done.addAndGet(n);
+            report(progress, (int) (total * 90L / Math.max(1, rows)));
+        }
+    }
+
+    private static final class Job extends RecursiveAction {
+        private final List<Row> rows;
+        private final String[] next;
+        private final int from;
+        private final int to;
+        private final GradingScheme scheme;
+        private final Map<String, Double> totals;
+        private final Counts counts;
+
+        Job(List<Row> rows, String[] next, int from, int to,
+            GradingScheme scheme, Map<String, Double> totals, Counts counts) {
+            this.rows = rows;
+            this.next = next;
+            this.from = from;
+            this.to = to;
+            this.scheme = scheme;
+            this.totals = totals;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) next[i] = regrade(rows.get(i));
+                counts.finished(to - from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new Job(rows, next, from, mid, scheme, totals, counts),
+                    new Job(rows, next, mid, to, scheme, totals, counts));
+        }
+
+        // New line for the row, or null when its letter is already right.
+        private String regrade(Row row) {
+            if (row.size() < 7) return null;
+            Double total = totals.get(row.get(1).toUpperCase());
+            double marks = row.getDouble(3, Double.NaN);
+            if (total == null || Double.isNaN(marks)) {
+                counts.skipped.increment();
+                return null;
+            }
+            String letter = scheme.gradeFor(marks, total);
+            if (letter.isEmpty()) {
+                counts.uncovered.increment();
+                return null;
+            }
+            return row.equalsAt(4, letter) ? null : row.replace(4, letter);
+        }
+    }
+}
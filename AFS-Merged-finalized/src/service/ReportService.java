@@ -0,0 +1,237 @@
+package service;
+
+import repository.DataStore;
+import repository.KeyedTable;
+import repository.Row;
+import repository.Table;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * ReportService
+ * -------------
+ * Aggregates over grades.txt used by the leader reports:
+ * - per assessment: graded count, sum of marks, passed count (>= 50% of total marks)
+ * - per student and module: graded count and sum of marks
+ * - per module: count of each grade letter
+ *
+ * Built in one pass over the grades table, then kept current from the
+ * table's upsert events, so a report never rescans every grade.
+ * A reload of grades.txt or any change to assessments.txt triggers a rebuild.
+ */
+public class ReportService {
+
+    public static final class Stats {
+        private int count;
+        private int passed;
+        private double sum;
+
+        private Stats() {
+        }
+
+        private Stats(Stats other) {
+            this.count = other.count;
+            this.passed = other.passed;
+            this.sum = other.sum;
+        }
+
+        public int getCount() { return count; }
+        public int getPassed() { return passed; }
+        public double getSum() { return sum; }
+
+        public double getAverage() {
+            return count > 0 ? sum / count : 0;
+        }
+
+        public double getPassRate() {
+            return count > 0 ? passed * 100.0 / count : 0;
+        }
+
+        private boolean isEmpty() {
+            return count == 0;
+        }
+    }
+
+    // Events from the grades table; drained under LOCK before every read.
+    private static final ConcurrentLinkedQueue<Row[]> DELTAS = new ConcurrentLinkedQueue<>();
+    private static volatile boolean stale = true;
+    private static boolean listening;
+
+    private static final Object LOCK = new Object();
+
+    private static List<Row> assessmentSnapshot;
+    private static final Map<String, String[]> ASSESSMENTS = new HashMap<>(); // id -> {moduleId, totalMarks}
+    private static final Map<String, Stats> BY_ASSESSMENT = new HashMap<>();
+    private static final Map<String, Set<String>> GRADED_STUDENTS = new HashMap<>();
+    private static final Map<String, Map<String, Stats>> BY_STUDENT = new HashMap<>();
+    private static final Map<String, Map<String, Integer>> GRADE_COUNTS = new HashMap<>();
+
+    private static final KeyedTable.Listener LISTENER = new KeyedTable.Listener() {
+        @Override
+        public void rowChanged(Row before, Row after) {
+            DELTAS.add(new Row[]{before, after});
+        }
+
+        @Override
+        public void reloaded() {
+            stale = true;
+        }
+    };
+
+    /** Stats for one assessment (exact id). Never null. */
+    public static Stats getAssessmentStats(String assessmentId) {
+        synchronized (LOCK) {
+            refresh();
+            Stats s = BY_ASSESSMENT.get(safe(assessmentId));
+            return s == null ? new Stats() : new Stats(s);
+        }
+    }
+
+    /** Students with at least one grade for the assessment. */
+    public static Set<String> getGradedStudents(String assessmentId) {
+        synchronized (LOCK) {
+            refresh();
+            Set<String> s = GRADED_STUDENTS.get(safe(assessmentId));
+            return s == null ? Collections.<String>emptySet() : new HashSet<>(s);
+        }
+    }
+
+    /**
+     * moduleId -> stats for one student (case-insensitive id).
+     * Grades whose assessment is unknown are under the "" module.
+     */
+    public static Map<String, Stats> getStudentStats(String studentId) {
+        synchronized (LOCK) {
+            refresh();
+            Map<String, Stats> out = new LinkedHashMap<>();
+            Map<String, Stats> m = BY_STUDENT.get(safe(studentId).toUpperCase());
+            if (m != null) {
+                for (Map.Entry<String, Stats> e : m.entrySet()) out.put(e.getKey(), new Stats(e.getValue()));
+            }
+            return out;
+        }
+    }
+
+    /** grade letter -> count for one module ("" for grades of unknown assessments). */
+    public static Map<String, Integer> getGradeCounts(String moduleId) {
+        synchronized (LOCK) {
+            refresh();
+            Map<String, Integer> m = GRADE_COUNTS.get(safe(moduleId));
+            return m == null ? Collections.<String, Integer>emptyMap() : new HashMap<>(m);
+        }
+    }
+
+    /** All module ids that have at least one grade (including "" for unknown assessments). */
+    public static Set<String> getGradedModules() {
+        synchronized (LOCK) {
+            refresh();
+            return new HashSet<>(GRADE_COUNTS.keySet());
+        }
+    }
+
+    // --------------------------
+    // Maintenance
+    // --------------------------
+
+    private static void refresh() {
+        KeyedTable grades = DataStore.grades();
+        if (!listening) {
+            grades.addListener(LISTENER);
+            listening = true;
+        }
+
+        List<Row> assessments = DataStore.assessments().rows();
+        if (stale || assessments != assessmentSnapshot) {
+            rebuild(grades, assessments);
+            return;
+        }
+
+        Row[] d;
+        while ((d = DELTAS.poll()) != null) {
+            if (d[0] != null) apply(d[0], -1);
+            if (d[1] != null) apply(d[1], 1);
+        }
+    }
+
+    private static void rebuild(Table grades, List<Row> assessments) {
+        assessmentSnapshot = assessments;
+        ASSESSMENTS.clear();
+        for (Row a : assessments) {
+            if (a.size() < 2) continue;
+            ASSESSMENTS.put(a.get(0), new String[]{a.get(1), a.size() >= 5 ? a.get(4) : ""});
+        }
+
+        BY_ASSESSMENT.clear();
+        GRADED_STUDENTS.clear();
+        BY_STUDENT.clear();
+        GRADE_COUNTS.clear();
+
+        // Snapshot and queue reset under the table lock, so every event after
+        // the snapshot is in the queue and none before it.
+        List<Row> rows;
+        synchronized (grades) {
+            rows = grades.rows();
+            DELTAS.clear();
+            stale = false;
+        }
+        for (Row g : rows) apply(g, 1);
+    }
+
+    private static void apply(Row g, int sign) {
+        if (g.size() < 5) return;
+
+        String assessmentId = g.get(1);
+        String studentKey = g.get(2).toUpperCase();
+        String[] a = ASSESSMENTS.get(assessmentId);
+        String moduleId = a == null ? "" : a[0];
+
+        boolean hasMarks = true;
+        double marks = 0;
+        try { marks = Double.parseDouble(g.get(3)); } catch (Exception ignored) { hasMarks = false; }
+
+        double total = 0;
+        if (a != null) {
+            try { total = Double.parseDouble(a[1]); } catch (Exception ignored) {}
+        }
+
+        Stats s = BY_ASSESSMENT.computeIfAbsent(assessmentId, k -> new Stats());
+        s.count += sign;
+        if (hasMarks) {
+            s.sum += sign * marks;
+            if (total > 0 && (marks / total * 100) >= 50) s.passed += sign;
+        }
+        if (s.isEmpty()) BY_ASSESSMENT.remove(assessmentId);
+
+        Set<String> graded = GRADED_STUDENTS.computeIfAbsent(assessmentId, k -> new HashSet<>());
+        if (sign > 0) {
+            graded.add(g.get(2));
+        } else {
+            graded.remove(g.get(2));
+            if (graded.isEmpty()) GRADED_STUDENTS.remove(assessmentId);
+        }
+
+        Map<String, Stats> perModule = BY_STUDENT.computeIfAbsent(studentKey, k -> new LinkedHashMap<>());
+        Stats st = perModule.computeIfAbsent(moduleId, k -> new Stats());
+        st.count += sign;
+        if (hasMarks) st.sum += sign * marks;
+        if (st.isEmpty()) perModule.remove(moduleId);
+        if (perModule.isEmpty()) BY_STUDENT.remove(studentKey);
+
+        Map<String, Integer> counts = GRADE_COUNTS.computeIfAbsent(moduleId, k -> new HashMap<>());
+        String letter = g.get(4);
+        int n = counts.getOrDefault(letter, 0) + sign;
+        if (n > 0) counts.put(letter, n); else counts.remove(letter);
+        if (counts.isEmpty()) GRADE_COUNTS.remove(moduleId);
+    }
+
+    private static String safe(String s) {
+        return s == null ? "" : s.trim();
+    }
+}
@@ -0,0 +1,260 @@
+package service;
+
+import repository.DataStore;
+import repository.Row;
+import repository.Table;
+import util.Constants;
+import util.FileManager;
+import util.ProcessLock;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Allocates record IDs (S001, TP000123, M004, CMT001, ...) from per-prefix counters.
+ * - Counters are seeded once from the data files (largest existing number),
+ *   so there is no file scan per new ID.
+ * - IDs are handed out from reserved blocks: allocating inside a block is one
+ *   atomic increment; only reserving the next block takes a lock and writes
+ *   the new high-water mark to data/sequences.txt (Prefix|NextFree).
+ * - release() (called on shutdown) saves how far each block was used; after
+ *   a crash, counting resumes after the whole block, so IDs are skipped but
+ *   never reused.
+ * - Legacy timestamp IDs (e.g. ASS1770929385417) are ignored when seeding.
+ * - Copies of the app sharing the data folder reserve blocks under the
+ *   ProcessLock of sequences.txt and re-read it first, so their blocks never
+ *   overlap.
+ */
+public final class SequenceService {
+
+    private SequenceService() {}
+
+    private static final int BLOCK_SIZE = 32;
+    private static final int MAX_DIGITS = 9;
+
+    public enum Kind {
+        ADMIN("A", 3, Constants.USERS_FILE),
+        LEADER("L", 3, Constants.USERS_FILE),
+        LECTURER("T", 3, Constants.USERS_FILE),
+        STUDENT_USER("S", 3, Constants.USERS_FILE),
+        STUDENT("TP", 6, Constants.STUDENTS_FILE) {
+            @Override
+            String idOf(Row r) {
+                // Legacy extended rows keep the student id in column 7.
+                return r.size() >= 9 ? r.get(7) : r.get(0);
+            }
+        },
+        MODULE("M", 3, Constants.MODULES_FILE),
+        CLASS("C", 3, Constants.CLASSES_FILE),
+        ASSESSMENT("ASS", 3, Constants.ASSESSMENTS_FILE),
+        GRADE("GRD", 3, Constants.GRADES_FILE),
+        FEEDBACK("FDB", 3, Constants.FEEDBACK_FILE),
+        COMMENT("CMT", 3, Constants.COMMENTS_FILE);
+
+        private final String prefix;
+        private final int width;
+        private final String file;
+
+        Kind(String prefix, int width, String file) {
+            this.prefix = prefix;
+            this.width = width;
+            this.file = file;
+        }
+
+        public String getPrefix() {
+            return prefix;
+        }
+
+        String idOf(Row r) {
+            return r.get(0);
+        }
+
+        /** Kind for a user role (ADMIN, LEADER, LECTURER, STUDENT), or null. */
+        public static Kind forRole(String role) {
+            if (role == null) return null;
+            switch (role.trim().toUpperCase()) {
+                case "ADMIN": return ADMIN;
+                case "LEADER": return LEADER;
+                case "LECTURER": return LECTURER;
+                case "STUDENT": return STUDENT_USER;
+                default: return null;
+            }
+        }
+    }
+
+    // [next, limit): next is shared by all threads allocating from this block.
+    private static final class Block {
+        final AtomicLong next;
+        final long limit;
+
+        Block(long start, long limit) {
+            this.next = new AtomicLong(start);
+            this.limit = limit;
+        }
+    }
+
+    private static final Map<Kind, AtomicReference<Block>> BLOCKS = new EnumMap<>(Kind.class);
+    private static final Map<Kind, Long> HIGH_WATER = new EnumMap<>(Kind.class);
+    private static boolean loaded;
+
+    static {
+        for (Kind k : Kind.values()) BLOCKS.put(k, new AtomicReference<>());
+    }
+
+    /** A new, never handed out ID for the kind. */
+    public static String next(Kind kind) {
+        AtomicReference<Block> ref = BLOCKS.get(kind);
+        while (true) {
+            Block b = ref.get();
+            if (b != null) {
+                long n = b.next.getAndIncrement();
+                if (n < b.limit) {
+                    String id = format(kind, n);
+                    // Someone may have typed an ID ahead of the counter; skip it.
+                    if (!taken(kind, id)) return id;
+                    continue;
+                }
+            }
+            reserve(kind, b);
+        }
+    }
+
+    /** The ID next(kind) would most likely return; allocates nothing (for form previews). */
+    public static String peek(Kind kind) {
+        Block b = BLOCKS.get(kind).get();
+        if (b != null) {
+            long n = b.next.get();
+            if (n < b.limit) return format(kind, n);
+        }
+        synchronized (SequenceService.class) {
+            load();
+            return format(kind, Math.max(HIGH_WATER.getOrDefault(kind, 1L), scanNext(kind)));
+        }
+    }
+
+    /**
+     * Give back the unused rest of every block (e.g. on shutdown), so the next
+     * run continues right after the last ID handed out instead of skipping ahead.
+     */
+    public static synchronized void release() {
+        if (!loaded) return;
+        ProcessLock shared = ProcessLock.forFile(Constants.SEQUENCES_FILE);
+        shared.lock();
+        try {
+            load();
+            for (Kind kind : Kind.values()) {
+                Block b = BLOCKS.get(kind).get();
+                if (b == null) continue;
+                // Closing the block first: a late allocation from it lands in reserve().
+                long used = b.next.getAndSet(b.limit);
+                // Only the newest block can be given back; another copy may have reserved after it.
+                if (HIGH_WATER.getOrDefault(kind, 0L) == b.limit) HIGH_WATER.put(kind, Math.min(used, b.limit));
+            }
+            save();
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    // Replace the exhausted block (unless another thread already did).
+    private static synchronized void reserve(Kind kind, Block exhausted) {
+        AtomicReference<Block> ref = BLOCKS.get(kind);
+        if (ref.get() != exhausted) return;
+
+        ProcessLock shared = ProcessLock.forFile(Constants.SEQUENCES_FILE);
+        shared.lock();
+        try {
+            load();
+
+            long start = HIGH_WATER.getOrDefault(kind, 1L);
+            if (exhausted == null) start = Math.max(start, scanNext(kind));
+            long limit = start + BLOCK_SIZE;
+
+            HIGH_WATER.put(kind, limit);
+            save();
+            ref.set(new Block(start, limit));
+        } finally {
+            shared.unlock();
+        }
+    }
+
+    // Re-read on every reservation: other copies of the app may have moved a mark.
+    private static void load() {
+        for (String line : FileManager.readAll(Constants.SEQUENCES_FILE)) {
+            String[] p = line.split("\\|", -1);
+            if (p.length < 2) continue;
+            Kind kind = byPrefix(p[0].trim());
+            if (kind == null) continue;
+            try {
+                HIGH_WATER.merge(kind, Long.parseLong(p[1].trim()), Math::max);
+            } catch (NumberFormatException ignored) {
+                // Reseeded from the data file instead.
+            }
+        }
+        loaded = true;
+    }
+
+    private static void save() {
+        List<String> out = new ArrayList<>();
+        for (Map.Entry<Kind, Long> e : HIGH_WATER.entrySet()) {
+            out.add(e.getKey().prefix + "|" + e.getValue());
+        }
+        FileManager.writeAll(Constants.SEQUENCES_FILE, out);
+    }
+
+    // One past the largest number already used with this prefix.
+    private static long scanNext(Kind kind) {
+        long max = 0;
+        for (Row r : DataStore.table(kind.file).rows()) {
+            long n = numberOf(kind, kind.idOf(r));
+            if (n > max) max = n;
+        }
+        return max + 1;
+    }
+
+    private static long numberOf(Kind kind, String id) {
+        String upper = id.trim().toUpperCase();
+        if (kind == Kind.MODULE && upper.startsWith("MOD")) upper = "M" + upper.substring(3);
+        if (!upper.startsWith(kind.prefix)) return -1;
+
+        int digits = upper.length() - kind.prefix.length();
+        if (digits < 1 || digits > MAX_DIGITS) return -1;
+        long n = 0;
+        for (int i = kind.prefix.length(); i < upper.length(); i++) {
+            char c = upper.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+
+    private static boolean taken(Kind kind, String id) {
+        Table t = DataStore.table(kind.file);
+        if (kind == Kind.STUDENT) {
+            return t.contains(0, id) || t.contains(7, id);
+        }
+        return t.contains(0, id);
+    }
+
+    private static String format(Kind kind, long n) {
+        String digits = Long.toString(n);
+        StringBuilder sb = new StringBuilder(kind.prefix);
+        for (int i = digits.length(); i < kind.width; i++) sb.append('0');
+        return sb.append(digits).toString();
+    }
+
+    private static Kind byPrefix(String prefix) {
+        for (Kind k : Kind.values()) {
+            if (k.prefix.equalsIgnoreCase(prefix)) return k;
+        }
+        return null;
+    }
+}
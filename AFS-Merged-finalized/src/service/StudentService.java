@@ -1,10 +1,19 @@
 package service;
 
+import event.EventBus;
+import event.StudentRegistered;
 import model.Student;
-import util.Constants;
-import util.FileManager;
-
+import repository.DataStore;
+import repository.KeyedTable;
+import repository.Locks;
+import repository.Row;
+import repository.Table;
+import repository.Transaction;
+import util.Metrics;
+
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
@@ -12,43 +21,46 @@ import java.util.Set;
 public class StudentService {
 
     public static Student getStudentProfile(String username) {
+        return Metrics.time("StudentService.getStudentProfile", () -> {
+            // Both files are read under one lock, so a profile save is seen whole or not at all.
+            return Locks.read(profileFiles(), () -> loadProfile(username));
+        });
+    }
+
+    private static Student loadProfile(String username) {
         String uname = safe(username);
         if (uname.isEmpty()) return null;
 
         Student student = null;
-        List<String> userLines = FileManager.readAll(Constants.USERS_FILE);
-        for (String line : userLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-
-            if (p.length >= 9) {
-                String role = safe(p[8]).toUpperCase();
+        for (Row p : DataStore.users().rows()) {
+            if (p.size() >= 9) {
+                String role = p.get(8).toUpperCase();
                 if (!"STUDENT".equals(role)) continue;
-                if (!safe(p[1]).equalsIgnoreCase(uname)) continue;
+                if (!p.get(1).equalsIgnoreCase(uname)) continue;
 
                 student = new Student();
-                student.setUserId(safe(p[0]));
-                student.setUsername(safe(p[1]));
-                student.setPassword(safe(p[2]));
-                student.setName(safe(p[3]));
-                student.setGender(safe(p[4]));
-                student.setEmail(safe(p[5]));
-                student.setPhone(safe(p[6]));
-                student.setAge(parseIntSafe(safe(p[7]), 0));
+                student.setUserId(p.get(0));
+                student.setUsername(p.get(1));
+                student.setPassword(p.get(2));
+                student.setName(p.get(3));
+                student.setGender(p.get(4));
+                student.setEmail(p.get(5));
+                student.setPhone(p.get(6));
+                student.setAge(p.getInt(7, 0));
                 student.setRole("STUDENT");
                 break;
             }
 
-            if (p.length >= 5) {
-                String role = safe(p[4]).toUpperCase();
+            if (p.size() >= 5) {
+                String role = p.get(4).toUpperCase();
                 if (!"STUDENT".equals(role)) continue;
-                if (!safe(p[2]).equalsIgnoreCase(uname)) continue;
+                if (!p.get(2).equalsIgnoreCase(uname)) continue;
 
                 student = new Student();
-                student.setUserId(safe(p[0]));
-                student.setUsername(safe(p[2]));
-                student.setPassword(safe(p[3]));
-                student.setName(safe(p[1]));
+                student.setUserId(p.get(0));
+                student.setUsername(p.get(2));
+                student.setPassword(p.get(3));
+                student.setName(p.get(1));
                 student.setRole("STUDENT");
                 break;
             }
@@ -56,30 +68,26 @@ public class StudentService {
 
         if (student == null) return null;
 
-        List<String> stuLines = FileManager.readAll(Constants.STUDENTS_FILE);
-        for (String line : stuLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-
+        for (Row p : DataStore.students().rows()) {
             // Legacy extended (extra column kept for backward compatibility)
-            if (p.length >= 10 && safe(p[0]).equalsIgnoreCase(uname)) {
-                student.setStudentId(safe(p[7]));
-                student.setModuleId(safe(p[9]));
+            if (p.size() >= 10 && p.get(0).equalsIgnoreCase(uname)) {
+                student.setStudentId(p.get(7));
+                student.setModuleId(p.get(9));
                 break;
             }
 
             // Current extended: username|password|name|gender|email|phone|age|studentId|moduleId
-            if (p.length >= 9 && safe(p[0]).equalsIgnoreCase(uname)) {
-                student.setStudentId(safe(p[7]));
-                student.setModuleId(safe(p[8]));
+            if (p.size() >= 9 && p.get(0).equalsIgnoreCase(uname)) {
+                student.setStudentId(p.get(7));
+                student.setModuleId(p.get(8));
                 break;
             }
 
             // Compact schemas: studentId|userId (or a legacy line with one extra trailing column)
-            if (p.length >= 2 && !safe(student.getUserId()).isEmpty()
-                    && safe(p[1]).equalsIgnoreCase(student.getUserId())) {
-                student.setStudentId(safe(p[0]));
-                student.setModuleId(findModuleForStudentFromClasses(safe(p[0])));
+            if (p.size() >= 2 && !safe(student.getUserId()).isEmpty()
+                    && p.get(1).equalsIgnoreCase(student.getUserId())) {
+                student.setStudentId(p.get(0));
+                student.setModuleId(findModuleForStudentFromClasses(p.get(0)));
                 break;
             }
         }
@@ -92,18 +100,26 @@ public class StudentService {
     }
 
     public static void updateProfile(Student student) {
-        if (student == null) return;
+        Metrics.time("StudentService.updateProfile", () -> {
+            if (student == null) return;
+            Locks.write(profileFiles(), () -> saveProfile(student));
+        });
+    }
+
+    private static List<Table> profileFiles() {
+        return Arrays.asList(DataStore.users(), DataStore.students());
+    }
+
+    private static void saveProfile(Student student) {
 
         String userId = safe(student.getUserId());
         String username = safe(student.getUsername());
         if (userId.isEmpty() && username.isEmpty()) return;
 
-        List<String> userLines = FileManager.readAll(Constants.USERS_FILE);
         List<String> userOut = new ArrayList<>();
         boolean userUpdated = false;
 
-        for (String line : userLines) {
-            if (line == null || line.trim().isEmpty()) continue;
+        for (String line : DataStore.users().lines()) {
             String[] p = line.split("\\|");
 
             if (p.length >= 9) {
@@ -138,18 +154,14 @@ public class StudentService {
                     safe(student.getEmail()) + "|" + safe(student.getPhone()) + "|" +
                     student.getAge() + "|STUDENT");
         }
-        FileManager.writeAll(Constants.USERS_FILE, userOut);
-
         String studentId = safe(student.getStudentId());
-        if (studentId.isEmpty()) studentId = generateNextStudentRecordId();
+        if (studentId.isEmpty()) studentId = SequenceService.next(SequenceService.Kind.STUDENT);
         String moduleId = safe(student.getModuleId());
 
-        List<String> stuLines = FileManager.readAll(Constants.STUDENTS_FILE);
         List<String> stuOut = new ArrayList<>();
         boolean matched = false;
 
-        for (String line : stuLines) {
-            if (line == null || line.trim().isEmpty()) continue;
+        for (String line : DataStore.students().lines()) {
             String[] p = line.split("\\|", -1);
 
             boolean isExtended = p.length >= 9 && safe(p[0]).equalsIgnoreCase(username);
@@ -178,45 +190,55 @@ public class StudentService {
         if (!matched && !userId.isEmpty()) {
             stuOut.add(buildStudentCompactLine(studentId, userId));
         }
-        FileManager.writeAll(Constants.STUDENTS_FILE, stuOut);
+        // users.txt and students.txt change together or not at all.
+        try {
+            Transaction.begin()
+                    .writeAll(DataStore.users(), userOut)
+                    .writeAll(DataStore.students(), stuOut)
+                    .commit();
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not save profile: " + e.getMessage(), e);
+        }
     }
 
     public static List<String[]> getAvailableClasses(String studentModuleId) {
-        List<String[]> classes = new ArrayList<>();
-        String filterModule = safe(studentModuleId);
-
-        List<String> lines = FileManager.readAll(Constants.CLASSES_FILE);
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] parts = line.split("\\|");
-            if (parts.length < 3) continue;
-
-            String moduleId = safe(parts[2]);
-            if (!filterModule.isEmpty() && !moduleId.equalsIgnoreCase(filterModule)) continue;
-
-            classes.add(new String[]{safe(parts[0]), safe(parts[1]), moduleId});
-        }
-        return classes;
+        return Metrics.time("StudentService.getAvailableClasses", () -> {
+            List<String[]> classes = new ArrayList<>();
+            String filterModule = safe(studentModuleId);
+
+            List<Row> rows = filterModule.isEmpty()
+                    ? DataStore.classes().rows()
+                    : DataStore.classes().where(2, filterModule);
+            for (Row parts : rows) {
+                if (parts.size() < 3) continue;
+                classes.add(new String[]{parts.get(0), parts.get(1), parts.get(2)});
+            }
+            return classes;
+        });
     }
 
+    /** Registers once; a second registration for the same class is ignored. */
     public static void registerForClass(String studentId, String classId) {
-        FileManager.append(Constants.STUDENT_CLASSES_FILE, safe(studentId) + "|" + safe(classId));
+        Metrics.time("StudentService.registerForClass", () -> Locks.write(DataStore.studentClasses(), () -> {
+            if (isAlreadyRegistered(studentId, classId)) return;
+            DataStore.studentClasses().append(safe(studentId) + "|" + safe(classId));
+            EventBus.publish(new StudentRegistered(studentId, classId));
+        }));
     }
 
     public static List<String[]> getRegisteredClasses(String studentId) {
-        List<String[]> registered = new ArrayList<>();
-        String sid = safe(studentId);
-        if (sid.isEmpty()) return registered;
-
-        List<String> lines = FileManager.readAll(Constants.STUDENT_CLASSES_FILE);
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-            if (p.length >= 2 && safe(p[0]).equalsIgnoreCase(sid)) {
-                registered.add(new String[]{safe(p[0]), safe(p[1])});
+        return Metrics.time("StudentService.getRegisteredClasses", () -> {
+            List<String[]> registered = new ArrayList<>();
+            String sid = safe(studentId);
+            if (sid.isEmpty()) return registered;
+
+            for (Row p : DataStore.studentClasses().where(0, sid)) {
+                if (p.size() >= 2) {
+                    registered.add(new String[]{p.get(0), p.get(1)});
+                }
             }
-        }
-        return registered;
+            return registered;
+        });
     }
 
     public static boolean isAlreadyRegistered(String studentId, String classId) {
@@ -227,125 +249,103 @@ public class StudentService {
     }
 
     public static List<String[]> getMyResults(String studentId) {
-        List<String[]> results = new ArrayList<>();
-        String sid = safe(studentId);
-        if (sid.isEmpty()) return results;
-
-        List<String> gradeLines = FileManager.readAll(Constants.GRADES_FILE);
-        List<String> assessmentLines = FileManager.readAll(Constants.ASSESSMENTS_FILE);
-        List<String> feedbackLines = FileManager.readAll(Constants.FEEDBACK_FILE);
-
-        for (String gLine : gradeLines) {
-            if (gLine == null || gLine.trim().isEmpty()) continue;
-            String[] gParts = gLine.split("\\|");
-            if (gParts.length < 7) continue;
-            if (!safe(gParts[2]).equalsIgnoreCase(sid)) continue;
-
-            String assessmentId = safe(gParts[1]);
-            String marks = safe(gParts[3]);
-            String grade = safe(gParts[4]);
-
-            String assessmentName = assessmentId;
-            String moduleId = "";
-            for (String aLine : assessmentLines) {
-                if (aLine == null || aLine.trim().isEmpty()) continue;
-                String[] aParts = aLine.split("\\|");
-                if (aParts.length >= 7 && safe(aParts[0]).equalsIgnoreCase(assessmentId)) {
-                    assessmentName = safe(aParts[2]);
-                    moduleId = safe(aParts[1]);
-                    break;
+        return Metrics.time("StudentService.getMyResults", () -> {
+            List<String[]> results = new ArrayList<>();
+            String sid = safe(studentId);
+            if (sid.isEmpty()) return results;
+
+            // Hash joins: assessments by id (column index) and feedback by
+            // assessmentId+studentId (KeyedTable key), both cached in DataStore.
+            Table assessments = DataStore.assessments();
+            KeyedTable feedbackTable = DataStore.feedback();
+
+            for (Row gParts : DataStore.grades().where(2, sid)) {
+                if (gParts.size() < 7) continue;
+
+                String assessmentId = gParts.get(1);
+                String marks = gParts.get(3);
+                String grade = gParts.get(4);
+
+                String assessmentName = assessmentId;
+                String moduleId = "";
+                for (Row aParts : assessments.where(0, assessmentId)) {
+                    if (aParts.size() >= 7) {
+                        assessmentName = aParts.get(2);
+                        moduleId = aParts.get(1);
+                        break;
+                    }
                 }
-            }
 
-            String feedback = "";
-            for (String fLine : feedbackLines) {
-                if (fLine == null || fLine.trim().isEmpty()) continue;
-                String[] fParts = fLine.split("\\|");
-                if (fParts.length >= 6
-                        && safe(fParts[1]).equalsIgnoreCase(assessmentId)
-                        && safe(fParts[2]).equalsIgnoreCase(sid)) {
-                    feedback = safe(fParts[4]);
-                    break;
-                }
-            }
+                Row fParts = feedbackTable.find(assessmentId, sid);
+                String feedback = fParts == null ? "" : fParts.get(4);
 
-            results.add(new String[]{moduleId, assessmentName, marks, grade, feedback});
-        }
-        return results;
+                results.add(new String[]{moduleId, assessmentName, marks, grade, feedback});
+            }
+            return results;
+        });
     }
 
     public static List<String[]> getModulesForComment(String studentId) {
-        Set<String> allowedModules = new LinkedHashSet<>();
-        String sid = safe(studentId);
-
-        if (!sid.isEmpty()) {
-            List<String> registrations = FileManager.readAll(Constants.STUDENT_CLASSES_FILE);
-            List<String> classLines = FileManager.readAll(Constants.CLASSES_FILE);
-
-            for (String line : registrations) {
-                if (line == null || line.trim().isEmpty()) continue;
-                String[] p = line.split("\\|");
-                if (p.length < 2 || !safe(p[0]).equalsIgnoreCase(sid)) continue;
-
-                String classId = safe(p[1]);
-                for (String cLine : classLines) {
-                    if (cLine == null || cLine.trim().isEmpty()) continue;
-                    String[] cp = cLine.split("\\|");
-                    if (cp.length >= 3 && safe(cp[0]).equalsIgnoreCase(classId)) {
-                        allowedModules.add(safe(cp[2]));
+        return Metrics.time("StudentService.getModulesForComment", () -> {
+            Set<String> allowedModules = new LinkedHashSet<>();
+            String sid = safe(studentId);
+
+            if (!sid.isEmpty()) {
+                for (Row p : DataStore.studentClasses().where(0, sid)) {
+                    if (p.size() < 2) continue;
+
+                    for (Row cp : DataStore.classes().where(0, p.get(1))) {
+                        if (cp.size() >= 3) {
+                            allowedModules.add(cp.get(2));
+                        }
                     }
                 }
             }
-        }
 
-        List<String[]> modules = new ArrayList<>();
-        List<String> moduleLines = FileManager.readAll(Constants.MODULES_FILE);
-        for (String line : moduleLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-            if (p.length < 6) continue;
+            List<String[]> modules = new ArrayList<>();
+            List<Row> moduleRows = DataStore.modules().rows();
+            for (Row p : moduleRows) {
+                if (p.size() < 6) continue;
 
-            String moduleId = safe(p[0]);
-            if (!allowedModules.isEmpty() && !allowedModules.contains(moduleId)) continue;
+                String moduleId = p.get(0);
+                if (!allowedModules.isEmpty() && !allowedModules.contains(moduleId)) continue;
 
-            modules.add(new String[]{moduleId, safe(p[1]), safe(p[5])});
-        }
+                modules.add(new String[]{moduleId, p.get(1), p.get(5)});
+            }
 
-        // Fallback: if student has no registrations yet, show all modules.
-        if (modules.isEmpty() && allowedModules.isEmpty()) {
-            for (String line : moduleLines) {
-                if (line == null || line.trim().isEmpty()) continue;
-                String[] p = line.split("\\|");
-                if (p.length < 6) continue;
-                modules.add(new String[]{safe(p[0]), safe(p[1]), safe(p[5])});
+            // Fallback: if student has no registrations yet, show all modules.
+            if (modules.isEmpty() && allowedModules.isEmpty()) {
+                for (Row p : moduleRows) {
+                    if (p.size() < 6) continue;
+                    modules.add(new String[]{p.get(0), p.get(1), p.get(5)});
+                }
             }
-        }
 
-        return modules;
+            return modules;
+        });
     }
 
     public static void submitComment(String studentId, String lecturerId, String moduleId, String comment) {
-        String sid = safe(studentId);
-        String mid = safe(moduleId);
-        if (sid.isEmpty() || mid.isEmpty() || safe(comment).isEmpty()) return;
-
-        String lid = safe(lecturerId);
-        if (lid.isEmpty()) {
-            List<String> moduleLines = FileManager.readAll(Constants.MODULES_FILE);
-            for (String line : moduleLines) {
-                if (line == null || line.trim().isEmpty()) continue;
-                String[] p = line.split("\\|");
-                if (p.length >= 6 && safe(p[0]).equalsIgnoreCase(mid)) {
-                    lid = safe(p[5]);
-                    break;
+        Metrics.time("StudentService.submitComment", () -> {
+            String sid = safe(studentId);
+            String mid = safe(moduleId);
+            if (sid.isEmpty() || mid.isEmpty() || safe(comment).isEmpty()) return;
+
+            String lid = safe(lecturerId);
+            if (lid.isEmpty()) {
+                for (Row p : DataStore.modules().where(0, mid)) {
+                    if (p.size() >= 6) {
+                        lid = p.get(5);
+                        break;
+                    }
                 }
             }
-        }
 
-        String commentId = "CMT" + System.currentTimeMillis();
-        String date = java.time.LocalDate.now().toString();
-        FileManager.append(Constants.COMMENTS_FILE,
-                commentId + "|" + sid + "|" + lid + "|" + mid + "|" + safe(comment) + "|" + date);
+            String commentId = SequenceService.next(SequenceService.Kind.COMMENT);
+            String date = java.time.LocalDate.now().toString();
+            DataStore.comments().append(
+                    commentId + "|" + sid + "|" + lid + "|" + mid + "|" + safe(comment) + "|" + date);
+        });
     }
 
     // Backward-compatible method signature.
@@ -354,27 +354,25 @@ public class StudentService {
     }
 
     public static List<String[]> getComments(String studentId) {
-        List<String[]> comments = new ArrayList<>();
-        String sid = safe(studentId);
-        if (sid.isEmpty()) return comments;
-
-        List<String> lines = FileManager.readAll(Constants.COMMENTS_FILE);
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-
-            // commentId|studentId|lecturerId|moduleId|comment|date
-            if (p.length >= 6 && safe(p[1]).equalsIgnoreCase(sid)) {
-                comments.add(new String[]{safe(p[0]), safe(p[3]), safe(p[4]), safe(p[5])});
-                continue;
-            }
+        return Metrics.time("StudentService.getComments", () -> {
+            List<String[]> comments = new ArrayList<>();
+            String sid = safe(studentId);
+            if (sid.isEmpty()) return comments;
+
+            for (Row p : DataStore.comments().where(1, sid)) {
+                // commentId|studentId|lecturerId|moduleId|comment|date
+                if (p.size() >= 6) {
+                    comments.add(new String[]{p.get(0), p.get(3), p.get(4), p.get(5)});
+                    continue;
+                }
 
-            // Legacy: commentId|studentId|moduleId|comment|date
-            if (p.length >= 5 && safe(p[1]).equalsIgnoreCase(sid)) {
-                comments.add(new String[]{safe(p[0]), safe(p[2]), safe(p[3]), safe(p[4])});
+                // Legacy: commentId|studentId|moduleId|comment|date
+                if (p.size() >= 5) {
+                    comments.add(new String[]{p.get(0), p.get(2), p.get(3), p.get(4)});
+                }
             }
-        }
-        return comments;
+            return comments;
+        });
     }
 
     public static String getStudentIdByUserId(String userId) {
@@ -382,26 +380,19 @@ public class StudentService {
         if (uid.isEmpty()) return "";
 
         String username = "";
-        List<String> userLines = FileManager.readAll(Constants.USERS_FILE);
-        for (String line : userLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-            if (p.length >= 9 && safe(p[0]).equalsIgnoreCase(uid)) {
-                username = safe(p[1]);
+        for (Row p : DataStore.users().where(0, uid)) {
+            if (p.size() >= 9) {
+                username = p.get(1);
                 break;
             }
         }
 
-        List<String> stuLines = FileManager.readAll(Constants.STUDENTS_FILE);
-        for (String line : stuLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-
-            if (p.length >= 9 && !username.isEmpty() && safe(p[0]).equalsIgnoreCase(username)) {
-                return safe(p[7]);
+        for (Row p : DataStore.students().rows()) {
+            if (p.size() >= 9 && !username.isEmpty() && p.get(0).equalsIgnoreCase(username)) {
+                return p.get(7);
             }
-            if (p.length >= 2 && safe(p[1]).equalsIgnoreCase(uid)) {
-                return safe(p[0]);
+            if (p.size() >= 2 && p.get(1).equalsIgnoreCase(uid)) {
+                return p.get(0);
             }
         }
 
@@ -412,20 +403,12 @@ public class StudentService {
         String sid = safe(studentId);
         if (sid.isEmpty()) return "";
 
-        List<String> regLines = FileManager.readAll(Constants.STUDENT_CLASSES_FILE);
-        List<String> classLines = FileManager.readAll(Constants.CLASSES_FILE);
+        for (Row p : DataStore.studentClasses().where(0, sid)) {
+            if (p.size() < 2) continue;
 
-        for (String line : regLines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-            if (p.length < 2 || !safe(p[0]).equalsIgnoreCase(sid)) continue;
-
-            String classId = safe(p[1]);
-            for (String cLine : classLines) {
-                if (cLine == null || cLine.trim().isEmpty()) continue;
-                String[] cp = cLine.split("\\|");
-                if (cp.length >= 3 && safe(cp[0]).equalsIgnoreCase(classId)) {
-                    return safe(cp[2]);
+            for (Row cp : DataStore.classes().where(0, p.get(1))) {
+                if (cp.size() >= 3) {
+                    return cp.get(2);
                 }
             }
         }
@@ -449,32 +432,7 @@ public class StudentService {
         return safe(studentId) + "|" + safe(userId);
     }
 
-    private static String generateNextStudentRecordId() {
-        int max = 0;
-        List<String> lines = FileManager.readAll(Constants.STUDENTS_FILE);
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            String sid = "";
-            if (p.length >= 9) sid = safe(p[7]);
-            else if (p.length >= 1) sid = safe(p[0]);
-
-            String upper = sid.toUpperCase();
-            if (!upper.startsWith("TP") || upper.length() <= 2) continue;
-            try {
-                int n = Integer.parseInt(upper.substring(2));
-                if (n > max) max = n;
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        return String.format("TP%06d", max + 1);
-    }
-
     private static String safe(String s) {
         return s == null ? "" : s.trim();
     }
-
-    private static int parseIntSafe(String s, int def) {
-        try { return Integer.parseInt(s.trim()); } catch (Exception ignored) { return def; }
-    }
 }
@@ -19,6 +19,7 @@ public class AdminDashboard extends JFrame {
     private static final String CARD_CLASSES = "classes";
     private static final String CARD_GRADING = "grading";
     private static final String CARD_ASSIGN = "assign";
+    private static final String CARD_DIAGNOSTICS = "diagnostics";
 
     private JLabel pageTitle;
     private JLabel pageSub;
@@ -69,6 +70,7 @@ public class AdminDashboard extends JFrame {
         JButton btnClasses = UIUtils.ghostButton("Manage Classes");
         JButton btnGrading = UIUtils.ghostButton("Manage Grading");
         JButton btnAssign = UIUtils.ghostButton("Assign Lecturers");
+        JButton btnDiagnostics = UIUtils.ghostButton("Diagnostics");
         JButton btnLogout = UIUtils.dangerButton("Logout");
 
         nav.add(btnDashboard);
@@ -76,6 +78,7 @@ public class AdminDashboard extends JFrame {
         nav.add(btnClasses);
         nav.add(btnGrading);
         nav.add(btnAssign);
+        nav.add(btnDiagnostics);
 
         sidebar.add(brandBox, BorderLayout.NORTH);
         sidebar.add(nav, BorderLayout.CENTER);
@@ -114,12 +117,14 @@ public class AdminDashboard extends JFrame {
         JPanel classesPanel = new ManageClassesFrame();
         JPanel gradingPanel = new ManageGradingFrame();
         JPanel assignPanel = new ManageAssignLecturersFrame();
+        JPanel diagnosticsPanel = new DiagnosticsPanel();
 
         centerCards.add(homePanel, CARD_HOME);
         centerCards.add(usersPanel, CARD_USERS);
         centerCards.add(classesPanel, CARD_CLASSES);
         centerCards.add(gradingPanel, CARD_GRADING);
         centerCards.add(assignPanel, CARD_ASSIGN);
+        centerCards.add(diagnosticsPanel, CARD_DIAGNOSTICS);
 
         contentWrapper.add(centerCards, BorderLayout.CENTER);
 
@@ -131,6 +136,7 @@ public class AdminDashboard extends JFrame {
         btnClasses.addActionListener(e -> showCenter(CARD_CLASSES, "Manage Classes", "Manage classes for modules (classes.txt)"));
         btnGrading.addActionListener(e -> showCenter(CARD_GRADING, "Manage Grading", "Define grading rules (grading.txt)"));
         btnAssign.addActionListener(e -> showCenter(CARD_ASSIGN, "Assign Lecturers", "Assign Lecturer to Academic Leader (leader_lecturer.txt)"));
+        btnDiagnostics.addActionListener(e -> showCenter(CARD_DIAGNOSTICS, "Diagnostics", "File and service call counts and timings"));
 
         btnLogout.addActionListener(e -> {
             new LoginFrame().setVisible(true);
@@ -150,7 +156,7 @@ public class AdminDashboard extends JFrame {
         JPanel wrapper = new JPanel(new BorderLayout());
         wrapper.setOpaque(false);
 
-        JPanel grid = new JPanel(new GridLayout(2, 2, 14, 14));
+        JPanel grid = new JPanel(new GridLayout(3, 2, 14, 14));
         grid.setOpaque(false);
 
         grid.add(statCard("Users", "Create / update / delete users (users.txt)", "Open Users",
@@ -161,6 +167,8 @@ public class AdminDashboard extends JFrame {
                 () -> showCenter(CARD_GRADING, "Manage Grading", "Define grading rules (grading.txt)")));
         grid.add(statCard("Assign Lecturers", "Assign Lecturer to Academic Leader (leader_lecturer.txt)", "Open Assign",
                 () -> showCenter(CARD_ASSIGN, "Assign Lecturers", "Assign Lecturer to Academic Leader (leader_lecturer.txt)")));
+        grid.add(statCard("Diagnostics", "File and service call counts and timings", "Open Diagnostics",
+                () -> showCenter(CARD_DIAGNOSTICS, "Diagnostics", "File and service call counts and timings")));
 
         wrapper.add(grid, BorderLayout.CENTER);
         return wrapper;
@@ -3,6 +3,7 @@ package ui;
 import model.Module;
 import model.User;
 import service.ModuleService;
+import util.Constants;
 import util.FileManager;
 
 import javax.swing.*;
@@ -32,8 +33,8 @@ public class AssignLecturersFrame extends JFrame {
     private JButton btnAssign;
     private JButton btnUnassign;
 
-    private static final String LEADER_LECTURER_FILE = "data/leader_lecturer.txt";
-    private static final String USERS_FILE = "data/users.txt";
+    private static final String LEADER_LECTURER_FILE = Constants.LEADER_LECTURER_FILE;
+    private static final String USERS_FILE = Constants.USERS_FILE;
 
     public AssignLecturersFrame() {
         this(null);
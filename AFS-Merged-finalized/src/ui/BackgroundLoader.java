@@ -0,0 +1,158 @@
+package ui;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.function.Consumer;
+
+/**
+ * Runs data loads for a screen on a background thread (SwingWorker) and
+ * hands the result back on the EDT.
+ * - Starting a new load cancels the previous one; a stale result is dropped.
+ * - While a load runs, the owner shows a wait cursor and the optional
+ *   progress bar is visible (indeterminate unless the task reports steps).
+ */
+public class BackgroundLoader {
+
+    public interface Task<T> {
+        T run(Progress progress) throws Exception;
+    }
+
+    public interface Progress {
+        /** 0..100; switches the bar from indeterminate to determinate. */
+        void update(int percent);
+
+        boolean isCancelled();
+    }
+
+    private final Component owner;
+    private final JProgressBar progressBar;
+    private SwingWorker<?, ?> current;
+
+    public BackgroundLoader(Component owner) {
+        this(owner, null);
+    }
+
+    public BackgroundLoader(Component owner, JProgressBar progressBar) {
+        this.owner = owner;
+        this.progressBar = progressBar;
+    }
+
+    /** Small hidden bar for placing in a header; shown while loads run. */
+    public static JProgressBar progressBar() {
+        JProgressBar bar = new JProgressBar(0, 100);
+        bar.setIndeterminate(true);
+        bar.setVisible(false);
+        bar.setPreferredSize(new Dimension(160, 6));
+        bar.setBorderPainted(false);
+        return bar;
+    }
+
+    /** Must be called on the EDT. onDone also runs on the EDT, only for the latest load. */
+    public <T> void load(Task<T> task, Consumer<T> onDone) {
+        load(task, onDone, null);
+    }
+
+    /**
+     * Like load(task, onDone), plus after: run on the EDT when the load ends,
+     * before onDone or the error dialog, whether or not the task failed
+     * (e.g. to re-enable a button). Not run for a load that was cancelled.
+     */
+    public <T> void load(Task<T> task, Consumer<T> onDone, Runnable after) {
+        cancel();
+
+        SwingWorker<T, Void> worker = new SwingWorker<T, Void>() {
+            @Override
+            protected T doInBackground() throws Exception {
+                SwingWorker<T, Void> self = this;
+                return task.run(new Progress() {
+                    @Override
+                    public void update(int percent) {
+                        setProgress(Math.max(0, Math.min(100, percent)));
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+            }
+
+            @Override
+            protected void done() {
+                if (current != this) return;
+                current = null;
+                setBusy(false);
+                if (isCancelled()) return;
+                if (after != null) after.run();
+                try {
+                    onDone.accept(get());
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    JOptionPane.showMessageDialog(owner, "Failed to load data: " + rootMessage(e),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        if (progressBar != null) {
+            worker.addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName()) && current == worker) {
+                    progressBar.setIndeterminate(false);
+                    progressBar.setValue((Integer) evt.getNewValue());
+                }
+            });
+        }
+
+        current = worker;
+        setBusy(true);
+        worker.execute();
+    }
+
+    /** Drop the running load, if any. Must be called on the EDT. */
+    public void cancel() {
+        if (current == null) return;
+        SwingWorker<?, ?> w = current;
+        current = null;
+        w.cancel(true);
+        setBusy(false);
+    }
+
+    public boolean isLoading() {
+        return current != null;
+    }
+
+    /**
+     * Replace all rows of the model with a single change event, so a large
+     * result does not fire one event (and one repaint) per row.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void fill(DefaultTableModel model, List<Object[]> rows) {
+        Vector data = model.getDataVector();
+        data.clear();
+        for (Object[] r : rows) data.add(new Vector<>(Arrays.asList(r)));
+        model.fireTableDataChanged();
+    }
+
+    private void setBusy(boolean busy) {
+        if (owner != null) {
+            owner.setCursor(busy ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR) : null);
+        }
+        if (progressBar != null) {
+            if (busy) {
+                progressBar.setIndeterminate(true);
+                progressBar.setValue(0);
+            }
+            progressBar.setVisible(busy);
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable t = e;
+        while (t.getCause() != null) t = t.getCause();
+        return t.getMessage() == null ? t.getClass().getSimpleName() : t.getMessage();
+    }
+}
@@ -0,0 +1,198 @@
+package ui;
+
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.HierarchyEvent;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.DefaultTableModel;
+import util.Metrics;
+
+/**
+ * Admin view of util.Metrics: one row per operation and data file, slowest
+ * total time first. Refreshes every 2 seconds while it is on screen.
+ */
+public class DiagnosticsPanel extends JPanel {
+
+    private static final int REFRESH_MS = 2000;
+
+    private JLabel lblFileCalls;
+    private JLabel lblServiceCalls;
+    private JLabel lblBytes;
+
+    private DefaultTableModel tableModel;
+    private final Timer timer = new Timer(REFRESH_MS, e -> reload());
+
+    public DiagnosticsPanel() {
+        setLayout(new BorderLayout());
+        setBackground(Theme.BG);
+
+        JPanel root = new JPanel(new BorderLayout());
+        root.setBackground(Theme.BG);
+        root.setBorder(new EmptyBorder(18, 18, 18, 18));
+        add(root, BorderLayout.CENTER);
+
+        // ===== Header =====
+        JPanel header = new JPanel(new BorderLayout(12, 0));
+        header.setOpaque(false);
+
+        JPanel titles = new JPanel(new GridLayout(2, 1));
+        titles.setOpaque(false);
+        titles.add(UIUtils.title("Diagnostics"));
+        titles.add(UIUtils.muted(Metrics.isEnabled()
+                ? "Calls since start-up or the last reset; also served at /metrics"
+                : "Metrics are off (-Dafs.metrics=false)"));
+
+        JPanel rightTop = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        rightTop.setOpaque(false);
+
+        JButton btnRefresh = UIUtils.primaryButton("Refresh");
+        JButton btnCopy = UIUtils.ghostButton("Copy Prometheus");
+        JButton btnReset = UIUtils.dangerButton("Reset");
+
+        rightTop.add(btnRefresh);
+        rightTop.add(btnCopy);
+        rightTop.add(btnReset);
+
+        header.add(titles, BorderLayout.WEST);
+        header.add(rightTop, BorderLayout.EAST);
+
+        root.add(header, BorderLayout.NORTH);
+
+        // ===== Content =====
+        JPanel content = new JPanel(new BorderLayout(0, 14));
+        content.setOpaque(false);
+        content.setBorder(new EmptyBorder(14, 0, 0, 0));
+        root.add(content, BorderLayout.CENTER);
+
+        JPanel stats = new JPanel(new GridLayout(1, 3, 14, 14));
+        stats.setOpaque(false);
+
+        lblFileCalls = new JLabel("0");
+        lblServiceCalls = new JLabel("0");
+        lblBytes = new JLabel("0 / 0");
+        stats.add(statCard("File Calls", "FileManager reads and writes", lblFileCalls));
+        stats.add(statCard("Service Calls", "Public service methods", lblServiceCalls));
+        stats.add(statCard("KB Read / Written", "Data files", lblBytes));
+
+        content.add(stats, BorderLayout.NORTH);
+        content.add(buildTableCard(), BorderLayout.CENTER);
+
+        // Events
+        btnRefresh.addActionListener(e -> reload());
+        btnCopy.addActionListener(e -> {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(Metrics.prometheus()), null);
+            JOptionPane.showMessageDialog(this, "Prometheus text copied to the clipboard.");
+        });
+        btnReset.addActionListener(e -> {
+            int ok = JOptionPane.showConfirmDialog(this, "Clear all counters?", "Reset", JOptionPane.YES_NO_OPTION);
+            if (ok != JOptionPane.YES_OPTION) return;
+            Metrics.reset();
+            reload();
+        });
+
+        // Poll only while on screen; the timer would otherwise keep the panel alive.
+        addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0) return;
+            if (isShowing()) {
+                reload();
+                timer.start();
+            } else {
+                timer.stop();
+            }
+        });
+
+        reload();
+    }
+
+    private JPanel statCard(String title, String desc, JLabel valueLabel) {
+        JPanel card = UIUtils.cardPanel();
+        card.setLayout(new BorderLayout(0, 8));
+
+        JLabel t = new JLabel(title);
+        t.setForeground(Theme.TEXT);
+        t.setFont(UIUtils.font(14, Font.BOLD));
+
+        JLabel d = new JLabel(desc);
+        d.setForeground(Theme.MUTED);
+        d.setFont(UIUtils.font(12, Font.PLAIN));
+
+        valueLabel.setForeground(Theme.TEXT);
+        valueLabel.setFont(UIUtils.font(26, Font.BOLD));
+
+        JPanel top = new JPanel(new GridLayout(2, 1));
+        top.setOpaque(false);
+        top.add(t);
+        top.add(d);
+
+        card.add(top, BorderLayout.NORTH);
+        card.add(valueLabel, BorderLayout.CENTER);
+        return card;
+    }
+
+    private JPanel buildTableCard() {
+        JPanel card = UIUtils.cardPanel();
+        card.setLayout(new BorderLayout(0, 10));
+
+        JLabel t = new JLabel("Operations");
+        t.setForeground(Theme.TEXT);
+        t.setFont(UIUtils.font(16, Font.BOLD));
+        card.add(t, BorderLayout.NORTH);
+
+        String[] cols = {"Operation", "File", "Calls", "Total ms", "Avg ms", "p95 ms", "Max ms",
+                "Bytes Read", "Bytes Written", "Rows"};
+        tableModel = new DefaultTableModel(cols, 0) {
+            public boolean isCellEditable(int r, int c) { return false; }
+        };
+
+        JTable table = new JTable(tableModel);
+        UIUtils.applyTableStyle(table);
+        table.getColumnModel().getColumn(0).setPreferredWidth(240);
+
+        JScrollPane sp = new JScrollPane(table);
+        UIUtils.styleScrollPane(sp);
+        card.add(sp, BorderLayout.CENTER);
+
+        return card;
+    }
+
+    private void reload() {
+        List<Metrics.Op> ops = Metrics.snapshot();
+        ops.sort((a, b) -> Long.compare(b.getTotalNanos(), a.getTotalNanos()));
+
+        long fileCalls = 0, serviceCalls = 0, read = 0, written = 0;
+        tableModel.setRowCount(0);
+        for (Metrics.Op op : ops) {
+            long calls = op.getCount();
+            if (op.getFile().isEmpty()) serviceCalls += calls;
+            else fileCalls += calls;
+            read += op.getBytesRead();
+            written += op.getBytesWritten();
+
+            double p95 = op.quantile(0.95);
+            tableModel.addRow(new Object[]{
+                    op.getName(),
+                    op.getFile(),
+                    calls,
+                    ms(op.getTotalNanos()),
+                    ms(calls == 0 ? 0 : op.getTotalNanos() / calls),
+                    Double.isInfinite(p95) ? "> " + ms((long) (Metrics.BUCKETS[Metrics.BUCKETS.length - 1] * 1e9))
+                            : "<= " + ms((long) (p95 * 1e9)),
+                    ms(op.getMaxNanos()),
+                    op.getBytesRead(),
+                    op.getBytesWritten(),
+                    op.getRows()
+            });
+        }
+
+        lblFileCalls.setText(String.valueOf(fileCalls));
+        lblServiceCalls.setText(String.valueOf(serviceCalls));
+        lblBytes.setText((read / 1024) + " / " + (written / 1024));
+    }
+
+    private static String ms(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+}
@@ -1,6 +1,7 @@
 package ui;
 
 import model.User;
+import repository.DataWatcher;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -8,8 +9,12 @@ import java.awt.*;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * LeaderDashboardFrame
@@ -19,6 +24,7 @@ import java.util.Map;
  * - Left sidebar navigation
  * - Right side uses CardLayout to switch between screens
  * - Logout + Window close returns to LoginFrame
+ * - Cached screens are rebuilt when a file they show changes on disk (DataWatcher)
  *
  * NOTE:
  * We embed screens by trying:
@@ -34,6 +40,10 @@ public class LeaderDashboardFrame extends JFrame {
     private CardLayout cardLayout;
     private JPanel rightHost;
     private final Map<String, JPanel> cachedScreens = new HashMap<>();
+    private final Set<String> staleScreens = new HashSet<>();
+    private String currentCard;
+    private final DataWatcher.Listener dataListener =
+            files -> SwingUtilities.invokeLater(() -> dataChanged(files));
 
     // Card keys
     private static final String CARD_DASHBOARD = "DASHBOARD";
@@ -48,6 +58,17 @@ public class LeaderDashboardFrame extends JFrame {
     private static final String SCREEN_ASSIGN  = "ui.AssignLecturersFrame";     // ✅ NEW NAME
     private static final String SCREEN_REPORTS = "ui.LeaderReportsFrame";
 
+    // Data files each screen shows (directly or through its services)
+    private static final Map<String, List<String>> SCREEN_FILES = new HashMap<>();
+
+    static {
+        SCREEN_FILES.put(CARD_PROFILE, Arrays.asList("users.txt"));
+        SCREEN_FILES.put(CARD_MODULES, Arrays.asList("modules.txt", "lecturers.txt", "leader_lecturer.txt"));
+        SCREEN_FILES.put(CARD_ASSIGN, Arrays.asList("modules.txt", "users.txt", "leader_lecturer.txt"));
+        SCREEN_FILES.put(CARD_REPORTS, Arrays.asList("modules.txt", "classes.txt", "student_classes.txt",
+                "assessments.txt", "grades.txt", "feedback.txt", "users.txt", "students.txt"));
+    }
+
     // Keep no-arg constructor for your routeByRole usage
     public LeaderDashboardFrame() {
         this(null);
@@ -134,6 +155,8 @@ public class LeaderDashboardFrame extends JFrame {
 
         // Default view
         cardLayout.show(rightHost, CARD_DASHBOARD);
+        currentCard = CARD_DASHBOARD;
+        DataWatcher.subscribe(dataListener);
 
         // ---------- Actions ----------
         btnDashboard.addActionListener(e -> showDashboard());
@@ -249,11 +272,14 @@ public class LeaderDashboardFrame extends JFrame {
     // ====================================
     private void showDashboard() {
         cardLayout.show(rightHost, CARD_DASHBOARD);
+        currentCard = CARD_DASHBOARD;
     }
 
     private void showOrBuildEmbedded(String cardKey, String className) {
+        if (staleScreens.remove(cardKey)) dropScreen(cardKey);
         if (cachedScreens.containsKey(cardKey)) {
             cardLayout.show(rightHost, cardKey);
+            currentCard = cardKey;
             return;
         }
 
@@ -263,6 +289,37 @@ public class LeaderDashboardFrame extends JFrame {
         rightHost.add(embeddedPanel, cardKey);
         cachedScreens.put(cardKey, embeddedPanel);
         cardLayout.show(rightHost, cardKey);
+        currentCard = cardKey;
+    }
+
+    private void dropScreen(String cardKey) {
+        JPanel old = cachedScreens.remove(cardKey);
+        if (old != null) rightHost.remove(old);
+    }
+
+    // A file changed outside this window. Hidden screens are rebuilt when next
+    // opened; the open one is rebuilt now only if it is read-only (Reports), so
+    // half-typed input on a form is never thrown away.
+    private void dataChanged(Set<String> files) {
+        for (Map.Entry<String, List<String>> e : SCREEN_FILES.entrySet()) {
+            String cardKey = e.getKey();
+            if (!cachedScreens.containsKey(cardKey) || !intersects(e.getValue(), files)) continue;
+            if (!cardKey.equals(currentCard)) {
+                dropScreen(cardKey);
+            } else if (cardKey.equals(CARD_REPORTS)) {
+                dropScreen(cardKey);
+                showOrBuildEmbedded(CARD_REPORTS, SCREEN_REPORTS);
+            } else {
+                staleScreens.add(cardKey);
+            }
+        }
+    }
+
+    private static boolean intersects(List<String> a, Set<String> b) {
+        for (String s : a) {
+            if (b.contains(s)) return true;
+        }
+        return false;
     }
 
     private JPanel buildEmbeddedPanel(String fullyQualifiedClassName) {
@@ -357,4 +414,10 @@ public class LeaderDashboardFrame extends JFrame {
         new LoginFrame().setVisible(true);
         dispose();
     }
+
+    @Override
+    public void dispose() {
+        DataWatcher.unsubscribe(dataListener);
+        super.dispose();
+    }
 }
@@ -1,6 +1,7 @@
 package ui;
 
 import model.User;
+import util.Constants;
 import util.FileManager;
 
 import javax.swing.*;
@@ -9,7 +10,7 @@ import java.awt.*;
 
 public class LeaderProfileFrame extends JFrame {
 
-    private static final String USERS_FILE = "data/users.txt";
+    private static final String USERS_FILE = Constants.USERS_FILE;
     private static final int FIELD_HEIGHT = 45;
 
     private final User loggedInUser;
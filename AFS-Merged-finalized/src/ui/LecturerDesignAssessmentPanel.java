@@ -150,9 +150,13 @@ public class LecturerDesignAssessmentPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "Total weightage cannot exceed 100", "Validation Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        String assessmentId = "ASS" + System.currentTimeMillis();
-        Assessment assessment = new Assessment(assessmentId, lecturer.getAssignedModuleId(), name, type, totalMarks, weightage, lecturer.getUsername());
-        controller.addAssessment(assessment);
+        Assessment assessment = new Assessment("", lecturer.getAssignedModuleId(), name, type, totalMarks, weightage, lecturer.getUsername());
+        try {
+            controller.addAssessment(assessment);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         refreshTable();
         nameField.setText(""); totalMarksField.setText(""); weightageField.setText("");
     }
@@ -201,7 +205,12 @@ public class LecturerDesignAssessmentPanel extends JPanel {
             return;
         }
         Assessment updated = new Assessment(id, lecturer.getAssignedModuleId(), name, type, totalMarks, weightage, lecturer.getUsername());
-        controller.updateAssessment(updated);
+        try {
+            controller.updateAssessment(updated);
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         refreshTable();
         nameField.setText(""); totalMarksField.setText(""); weightageField.setText("");
     }
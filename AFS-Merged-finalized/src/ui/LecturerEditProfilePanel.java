@@ -165,7 +165,12 @@ public class LecturerEditProfilePanel extends JPanel {
         lecturer.setAge(age);
         lecturer.setGender(gender);
 
-        controller.updateProfile(lecturer);
+        try {
+            controller.updateProfile(lecturer);
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         JOptionPane.showMessageDialog(this, "Profile updated successfully", "Success", JOptionPane.INFORMATION_MESSAGE);
         parent.showDashboard();
     }
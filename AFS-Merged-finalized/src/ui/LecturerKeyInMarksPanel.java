@@ -2,10 +2,13 @@ package ui;
 
 import controller.LecturerController;
 import controller.ValidationUtil;
+import event.DomainEvent;
+import event.GradeSaved;
 import model.Assessment;
 import model.Grade;
 import model.Lecturer;
 import model.Student;
+import service.GradingScheme;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -13,8 +16,10 @@ import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class LecturerKeyInMarksPanel extends JPanel {
     private final Lecturer lecturer;
@@ -25,6 +30,10 @@ public class LecturerKeyInMarksPanel extends JPanel {
     private final DefaultTableModel tableModel;
     private final JTable table;
     private List<Student> loadedStudents = new ArrayList<>();
+    // Sheet on screen, and the marks it showed per student (upper-cased id) when loaded or saved.
+    private String loadedAssessmentId = "";
+    private final Map<String, String> shownMarks = new HashMap<>();
+    private final BackgroundLoader loader = new BackgroundLoader(this);
 
     public LecturerKeyInMarksPanel(Lecturer lecturer, LecturerController controller, LecturerDashboardFrame parent) {
         this.lecturer = lecturer;
@@ -92,6 +101,7 @@ public class LecturerKeyInMarksPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         populateAssessments();
+        UIUtils.listenWhileDisplayed(this, this::gradesSaved, GradeSaved.class);
     }
 
     private void populateAssessments() {
@@ -117,8 +127,40 @@ public class LecturerKeyInMarksPanel extends JPanel {
             }
         }
 
+        loader.cancel();
         tableModel.setRowCount(0);
         loadedStudents = new ArrayList<>();
+        loadedAssessmentId = "";
+        shownMarks.clear();
+    }
+
+    // Marks saved elsewhere (the API, another window, a regrade) for the sheet
+    // on screen are updated in place; rows the lecturer has typed over are kept.
+    private void gradesSaved(List<DomainEvent> events) {
+        if (loadedAssessmentId.isEmpty()) return;
+        Set<String> changed = new HashSet<>();
+        for (DomainEvent e : events) {
+            GradeSaved g = (GradeSaved) e;
+            if (loadedAssessmentId.equalsIgnoreCase(g.getAssessmentId())) changed.add(g.getStudentId().toUpperCase());
+        }
+        if (changed.isEmpty()) return;
+
+        Map<String, Grade> stored = new HashMap<>();
+        for (Grade g : controller.getGradesByAssessment(loadedAssessmentId)) {
+            stored.put(g.getStudentId().toUpperCase(), g);
+        }
+        for (int i = 0; i < tableModel.getRowCount() && i < loadedStudents.size(); i++) {
+            String sid = String.valueOf(loadedStudents.get(i).getStudentId()).toUpperCase();
+            Grade g = stored.get(sid);
+            if (g == null || !changed.contains(sid)) continue;
+            if (table.isEditing() && table.getEditingRow() == i) continue;
+            if (!String.valueOf(tableModel.getValueAt(i, 2)).equals(shownMarks.get(sid))) continue;
+
+            String marks = String.valueOf(g.getMarks());
+            tableModel.setValueAt(marks, i, 2);
+            tableModel.setValueAt(g.getGrade(), i, 3);
+            shownMarks.put(sid, marks);
+        }
     }
 
     private void loadStudents() {
@@ -134,19 +176,44 @@ public class LecturerKeyInMarksPanel extends JPanel {
         }
 
         tableModel.setRowCount(0);
-        loadedStudents = controller.getStudentsByModuleForLecturer(lecturerId(), lecturer.getAssignedModuleId());
-        Map<String, Grade> existingByStudentId = new HashMap<>();
-        if (assessment != null) {
-            for (Grade g : controller.getGradesByAssessment(assessment.getAssessmentId())) {
-                existingByStudentId.put(g.getStudentId(), g);
+        loadedStudents = new ArrayList<>();
+        String lecturerId = lecturerId();
+        String moduleId = lecturer.getAssignedModuleId();
+
+        // File reads run in the background; the table is filled on the EDT when done.
+        loader.load(progress -> {
+            List<Student> students = controller.getStudentsByModuleForLecturer(lecturerId, moduleId);
+            Map<String, Grade> existingByStudentId = new HashMap<>();
+            if (assessment != null) {
+                for (Grade g : controller.getGradesByAssessment(assessment.getAssessmentId())) {
+                    existingByStudentId.put(g.getStudentId(), g);
+                }
             }
-        }
 
-        for (Student s : loadedStudents) {
-            Grade existing = existingByStudentId.get(s.getStudentId());
-            String marks = (existing == null) ? "" : String.valueOf(existing.getMarks());
-            String grade = (existing == null) ? "" : existing.getGrade();
-            tableModel.addRow(new Object[]{s.getStudentId(), s.getName(), marks, grade});
+            List<Object[]> rows = new ArrayList<>(students.size());
+            for (Student s : students) {
+                Grade existing = existingByStudentId.get(s.getStudentId());
+                String marks = (existing == null) ? "" : String.valueOf(existing.getMarks());
+                String grade = (existing == null) ? "" : existing.getGrade();
+                rows.add(new Object[]{s.getStudentId(), s.getName(), marks, grade});
+            }
+            return new LoadedRows(students, rows);
+        }, loaded -> {
+            loadedStudents = loaded.students;
+            BackgroundLoader.fill(tableModel, loaded.rows);
+            loadedAssessmentId = assessment == null ? "" : assessment.getAssessmentId();
+            shownMarks.clear();
+            for (Object[] row : loaded.rows) shownMarks.put(String.valueOf(row[0]).toUpperCase(), String.valueOf(row[2]));
+        });
+    }
+
+    private static final class LoadedRows {
+        final List<Student> students;
+        final List<Object[]> rows;
+
+        LoadedRows(List<Student> students, List<Object[]> rows) {
+            this.students = students;
+            this.rows = rows;
         }
     }
 
@@ -168,7 +235,9 @@ public class LecturerKeyInMarksPanel extends JPanel {
         if (table.isEditing() && table.getCellEditor() != null) {
             table.getCellEditor().stopCellEditing();
         }
+        GradingScheme scheme = controller.getGradingScheme();
         List<Grade> grades = new ArrayList<>();
+        Map<String, String> typed = new HashMap<>();
         for (int i = 0; i < tableModel.getRowCount(); i++) {
             if (i >= loadedStudents.size()) continue;
             // Always use authoritative loaded student IDs (never editable table cell value).
@@ -188,16 +257,18 @@ public class LecturerKeyInMarksPanel extends JPanel {
                 JOptionPane.showMessageDialog(this, "Marks must be between 0 and " + assessment.getTotalMarks(), "Validation Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
-            String gradeLabel = controller.calculateGrade(marks, assessment.getTotalMarks());
+            String gradeLabel = scheme.gradeFor(marks, assessment.getTotalMarks());
             tableModel.setValueAt(gradeLabel, i, 3);
-            Grade grade = new Grade("GRD" + System.currentTimeMillis() + i, assessment.getAssessmentId(), studentId, marks, gradeLabel, lecturerId(), controller.today());
+            Grade grade = new Grade("", assessment.getAssessmentId(), studentId, marks, gradeLabel, lecturerId(), controller.today());
             grades.add(grade);
+            typed.put(String.valueOf(studentId).toUpperCase(), marksText);
         }
         if (grades.isEmpty()) {
             JOptionPane.showMessageDialog(this, "No marks entered", "Info", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
         controller.saveGrades(grades);
+        shownMarks.putAll(typed);
         JOptionPane.showMessageDialog(this, "Grades saved", "Success", JOptionPane.INFORMATION_MESSAGE);
     }
 
@@ -2,6 +2,9 @@ package ui;
 
 import controller.LecturerController;
 import controller.ValidationUtil;
+import event.DomainEvent;
+import event.FeedbackSaved;
+import event.GradeSaved;
 import model.Assessment;
 import model.Feedback;
 import model.Grade;
@@ -23,6 +26,7 @@ public class LecturerProvideFeedbackPanel extends JPanel {
     private final JTextArea feedbackArea = new JTextArea(6, 30);
     private final JLabel marksLabel = new JLabel("Student Marks: -");
     private final JLabel gradeLabel = new JLabel("Grade: -");
+    private String loadedFeedback = "";  // text as last loaded or saved, to tell if the lecturer has typed since
 
     public LecturerProvideFeedbackPanel(Lecturer lecturer, LecturerController controller, LecturerDashboardFrame parent) {
         this.lecturer = lecturer;
@@ -95,6 +99,26 @@ public class LecturerProvideFeedbackPanel extends JPanel {
         populateAssessments();
         assessmentBox.addActionListener(e -> updateStudentInfo());
         studentBox.addActionListener(e -> updateStudentInfo());
+        UIUtils.listenWhileDisplayed(this, this::resultsSaved, GradeSaved.class, FeedbackSaved.class);
+    }
+
+    // A mark or feedback for the student on screen was saved elsewhere (another
+    // window, the API). Feedback the lecturer is typing is never replaced.
+    private void resultsSaved(List<DomainEvent> events) {
+        Assessment assessment = (Assessment) assessmentBox.getSelectedItem();
+        Student student = (Student) studentBox.getSelectedItem();
+        if (assessment == null || student == null) return;
+        for (DomainEvent e : events) {
+            String aid = e instanceof GradeSaved ? ((GradeSaved) e).getAssessmentId() : ((FeedbackSaved) e).getAssessmentId();
+            String sid = e instanceof GradeSaved ? ((GradeSaved) e).getStudentId() : ((FeedbackSaved) e).getStudentId();
+            if (!aid.equalsIgnoreCase(assessment.getAssessmentId()) || !sid.equalsIgnoreCase(student.getStudentId())) continue;
+            if (feedbackArea.getText().equals(loadedFeedback)) {
+                updateStudentInfo();
+            } else {
+                showGrade(assessment, student);
+            }
+            return;
+        }
     }
 
     private void populateAssessments() {
@@ -182,8 +206,9 @@ public class LecturerProvideFeedbackPanel extends JPanel {
             JOptionPane.showMessageDialog(this, "You can only provide feedback to students enrolled in your assigned module.", "Authorization Error", JOptionPane.ERROR_MESSAGE);
             return;
         }
-        Feedback feedback = new Feedback("FDB" + System.currentTimeMillis(), assessment.getAssessmentId(), student.getStudentId(), lecturerId(), feedbackText, controller.today());
+        Feedback feedback = new Feedback("", assessment.getAssessmentId(), student.getStudentId(), lecturerId(), feedbackText, controller.today());
         controller.saveFeedback(feedback);
+        loadedFeedback = feedbackArea.getText();
         JOptionPane.showMessageDialog(this, "Feedback saved", "Success", JOptionPane.INFORMATION_MESSAGE);
     }
 
@@ -199,9 +224,20 @@ public class LecturerProvideFeedbackPanel extends JPanel {
                 || !controller.canLecturerAssessStudent(lecturerId(), lecturer.getAssignedModuleId(), student.getStudentId())) {
             marksLabel.setText("Student Marks: -");
             gradeLabel.setText("Grade: -");
-            feedbackArea.setText("");
+            setFeedbackText("");
             return;
         }
+        showGrade(assessment, student);
+        Feedback existing = controller.getFeedback(assessment.getAssessmentId(), student.getStudentId());
+        setFeedbackText(existing != null ? existing.getFeedbackText() : "");
+    }
+
+    private void setFeedbackText(String text) {
+        feedbackArea.setText(text);
+        loadedFeedback = feedbackArea.getText();
+    }
+
+    private void showGrade(Assessment assessment, Student student) {
         Grade matched = null;
         for (Grade g : controller.getGradesByAssessment(assessment.getAssessmentId())) {
             if (student.getStudentId().equals(g.getStudentId())) {
@@ -216,12 +252,6 @@ public class LecturerProvideFeedbackPanel extends JPanel {
             marksLabel.setText("Student Marks: -");
             gradeLabel.setText("Grade: -");
         }
-        Feedback existing = controller.getFeedback(assessment.getAssessmentId(), student.getStudentId());
-        if (existing != null) {
-            feedbackArea.setText(existing.getFeedbackText());
-        } else {
-            feedbackArea.setText("");
-        }
     }
 
     private boolean hasAssignedModule() {
@@ -12,6 +12,7 @@ public class LoginFrame extends JFrame {
     private JTextField txtUsername;
     private JPasswordField txtPassword;
     private JButton btnLogin;
+    private final BackgroundLoader loader = new BackgroundLoader(this);
 
     public LoginFrame() {
         setTitle("AFS - Login");
@@ -87,14 +88,17 @@ public class LoginFrame extends JFrame {
             return;
         }
 
-        User user = AuthService.login(username, password);
-
-        if (user == null) {
-            JOptionPane.showMessageDialog(this, "Invalid username or password.");
-            return;
-        }
-
-        routeByRole(user);
+        if (loader.isLoading()) return;
+
+        // Credential check reads users.txt, so it runs off the EDT.
+        btnLogin.setEnabled(false);
+        loader.load(progress -> AuthService.login(username, password), user -> {
+            if (user == null) {
+                JOptionPane.showMessageDialog(this, "Invalid username or password.");
+                return;
+            }
+            routeByRole(user);
+        }, () -> btnLogin.setEnabled(true));
     }
 
     private void routeByRole(User user) {
@@ -8,8 +8,11 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.table.DefaultTableModel;
 import model.ClassRecord;
 import model.Module;
+import repository.ReferenceIndex;
+import service.CascadeService;
 import service.ClassService;
 import service.ModuleService;
+import service.SequenceService;
 
 public class ManageClassesFrame extends JPanel {
 
@@ -247,7 +250,7 @@ public class ManageClassesFrame extends JPanel {
         String module = selectedModuleId();
 
         if (id.isEmpty()) {
-            id = generateNextClassId();
+            id = SequenceService.next(SequenceService.Kind.CLASS);
             txtClassId.setText(id);
         }
 
@@ -321,7 +324,10 @@ public class ManageClassesFrame extends JPanel {
         }
 
         String id = String.valueOf(tableModel.getValueAt(row, 0));
-        int ok = JOptionPane.showConfirmDialog(this, "Delete class " + id + " ?", "Confirm", JOptionPane.YES_NO_OPTION);
+        String affected = CascadeService.planDelete(ReferenceIndex.Entity.CLASS, id).summary();
+        int ok = JOptionPane.showConfirmDialog(this,
+                "Delete class " + id + " ?" + (affected.isEmpty() ? "" : "\n\n" + affected),
+                "Confirm", JOptionPane.YES_NO_OPTION);
         if (ok != JOptionPane.YES_OPTION) return;
 
         ClassService.delete(id);
@@ -341,7 +347,7 @@ public class ManageClassesFrame extends JPanel {
 
     private void clearForm() {
         selectedClassKey = "";
-        txtClassId.setText(generateNextClassId());
+        txtClassId.setText(SequenceService.peek(SequenceService.Kind.CLASS));
         txtClassName.setText("");
         if (cmbModuleId.getItemCount() > 0) {
             cmbModuleId.setSelectedIndex(0);
@@ -383,21 +389,6 @@ public class ManageClassesFrame extends JPanel {
         }
     }
 
-    private String generateNextClassId() {
-        int max = 0;
-        for (ClassRecord c : allClasses) {
-            String id = c.getClassId() == null ? "" : c.getClassId().trim().toUpperCase();
-            String digits = id.replaceAll("\\D+", "");
-            if (digits.isEmpty()) continue;
-            try {
-                int value = Integer.parseInt(digits);
-                if (value > max) max = value;
-            } catch (NumberFormatException ignored) {
-            }
-        }
-        return String.format("C%03d", max + 1);
-    }
-
     private static class ModuleOption {
         private final String moduleId;
         private final String moduleName;
@@ -1,7 +1,9 @@
 package ui;
 
 import model.GradingRule;
+import service.GradingScheme;
 import service.GradingService;
+import service.RegradeService;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -18,6 +20,7 @@ public class ManageGradingFrame extends JPanel {
     private static final int MIN_SCORE = 0;
     private static final int MAX_SCORE = 100;
 
+    private JComboBox<String> cmbScheme;
     private JComboBox<String> cmbGrade;
     private JTextField txtMin, txtMax;
     private JTextField txtSearch;
@@ -29,6 +32,8 @@ public class ManageGradingFrame extends JPanel {
 
     private List<GradingRule> allRules = new ArrayList<>();
 
+    private BackgroundLoader loader;
+
     public ManageGradingFrame() {
         setLayout(new BorderLayout());
         setBackground(Theme.BG);
@@ -45,7 +50,7 @@ public class ManageGradingFrame extends JPanel {
         JPanel titles = new JPanel(new GridLayout(2, 1));
         titles.setOpaque(false);
         titles.add(UIUtils.title("Manage Grading Rules"));
-        titles.add(UIUtils.muted("CRUD grading rules stored in data/grading.txt (Grade|Min|Max)"));
+        titles.add(UIUtils.muted("CRUD grading rules stored in data/grading.txt or data/grading_<scheme>.txt (Grade|Min|Max)"));
 
         JPanel rightTop = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
         rightTop.setOpaque(false);
@@ -57,6 +62,25 @@ public class ManageGradingFrame extends JPanel {
         JButton btnSearch = UIUtils.primaryButton("Search");
         JButton btnClearSearch = UIUtils.ghostButton("Clear");
 
+        cmbScheme = new JComboBox<>();
+        cmbScheme.setBackground(Theme.CARD);
+        cmbScheme.setForeground(Theme.TEXT);
+        cmbScheme.setFont(UIUtils.font(13, Font.BOLD));
+        cmbScheme.setPreferredSize(new Dimension(160, 38));
+        cmbScheme.setToolTipText("Grading scheme");
+        for (String name : GradingService.getSchemeNames()) cmbScheme.addItem(name);
+
+        JButton btnNewScheme = UIUtils.ghostButton("New Scheme");
+        JButton btnRegrade = UIUtils.ghostButton("Re-grade Marks");
+        btnRegrade.setToolTipText("Recompute the letter of every stored grade with the default scheme");
+
+        JProgressBar progress = BackgroundLoader.progressBar();
+        loader = new BackgroundLoader(this, progress);
+
+        rightTop.add(progress);
+        rightTop.add(btnRegrade);
+        rightTop.add(cmbScheme);
+        rightTop.add(btnNewScheme);
         rightTop.add(txtSearch);
         rightTop.add(btnSearch);
         rightTop.add(btnClearSearch);
@@ -89,6 +113,9 @@ public class ManageGradingFrame extends JPanel {
         main.add(buildTableCard());
 
         // Events
+        cmbScheme.addActionListener(e -> reload());
+        btnNewScheme.addActionListener(e -> createScheme());
+        btnRegrade.addActionListener(e -> regradeAll());
         btnSearch.addActionListener(e -> applySearch());
         btnClearSearch.addActionListener(e -> {
             txtSearch.setText("");
@@ -228,8 +255,42 @@ public class ManageGradingFrame extends JPanel {
     }
 
 
+    private String selectedScheme() {
+        Object s = cmbScheme.getSelectedItem();
+        return s == null ? null : s.toString();
+    }
+
+    private void createScheme() {
+        String name = JOptionPane.showInputDialog(this,
+                "New scheme name (letters, digits, - or _). It starts as a copy of \"" + selectedScheme() + "\".");
+        if (name == null || name.trim().isEmpty()) return;
+
+        if (!GradingService.createScheme(name, selectedScheme())) {
+            JOptionPane.showMessageDialog(this, "Invalid or existing scheme name.");
+            return;
+        }
+        cmbScheme.addItem(name.trim().toLowerCase());
+        cmbScheme.setSelectedItem(name.trim().toLowerCase());
+    }
+
+    private void regradeAll() {
+        if (loader.isLoading()) return;
+        int ok = JOptionPane.showConfirmDialog(this,
+                "Recompute the letter grade of every stored mark with the \"" + GradingScheme.DEFAULT + "\" scheme?",
+                "Re-grade Marks", JOptionPane.YES_NO_OPTION);
+        if (ok != JOptionPane.YES_OPTION) return;
+
+        loader.load(progress -> RegradeService.regradeAll(progress::update), r ->
+                JOptionPane.showMessageDialog(this,
+                        "Grades checked: " + r.getScanned()
+                                + "\nLetters changed: " + r.getChanged()
+                                + "\nNot covered by any band (kept): " + r.getUncovered()
+                                + "\nSkipped (unknown assessment or marks): " + r.getSkipped()
+                                + "\nTime: " + r.getMillis() + " ms"));
+    }
+
     private void reload() {
-        allRules = GradingService.getAll();
+        allRules = GradingService.getAll(selectedScheme());
         refreshTable(allRules);
         lblTotal.setText(String.valueOf(allRules.size()));
         clearForm();
@@ -264,14 +325,14 @@ public class ManageGradingFrame extends JPanel {
         ParsedRule parsed = parseInputs();
         if (parsed == null) return;
 
-        if (GradingService.existsGrade(parsed.grade)) {
+        if (GradingService.existsGrade(selectedScheme(), parsed.grade)) {
             JOptionPane.showMessageDialog(this, "Grade already exists. Use Update.");
             return;
         }
 
         if (!validateNoOverlap(parsed.grade, parsed.min, parsed.max, null)) return;
 
-        GradingService.add(new GradingRule(parsed.grade, parsed.min, parsed.max));
+        GradingService.add(selectedScheme(), new GradingRule(parsed.grade, parsed.min, parsed.max));
         reload();
         JOptionPane.showMessageDialog(this, "Rule added successfully.");
     }
@@ -296,7 +357,7 @@ public class ManageGradingFrame extends JPanel {
 
         if (!validateNoOverlap(parsed.grade, parsed.min, parsed.max, oldGradeKey)) return;
 
-        GradingService.update(oldGradeKey, new GradingRule(parsed.grade, parsed.min, parsed.max));
+        GradingService.update(selectedScheme(), oldGradeKey, new GradingRule(parsed.grade, parsed.min, parsed.max));
         reload();
         JOptionPane.showMessageDialog(this, "Rule updated successfully.");
     }
@@ -313,7 +374,7 @@ public class ManageGradingFrame extends JPanel {
         int ok = JOptionPane.showConfirmDialog(this, "Delete rule " + grade + " ?", "Confirm", JOptionPane.YES_NO_OPTION);
         if (ok != JOptionPane.YES_OPTION) return;
 
-        GradingService.delete(grade);
+        GradingService.delete(selectedScheme(), grade);
         reload();
         JOptionPane.showMessageDialog(this, "Rule deleted.");
     }
@@ -384,16 +445,14 @@ public class ManageGradingFrame extends JPanel {
     }
 
     private boolean validateNoOverlap(String grade, int min, int max, String excludeKey) {
-        for (GradingRule r : allRules) {
-            if (excludeKey != null && r.getGrade().equalsIgnoreCase(excludeKey)) continue;
+        List<GradingRule> conflicts = GradingService.findOverlaps(selectedScheme(), min, max, excludeKey);
+        if (conflicts.isEmpty()) return true;
 
-            boolean overlap = !(max < r.getMin() || min > r.getMax());
-            if (overlap) {
-                JOptionPane.showMessageDialog(this,
-                        "Range overlaps with grade " + r.getGrade() + " (" + r.getMin() + "-" + r.getMax() + ").");
-                return false;
-            }
+        StringBuilder sb = new StringBuilder("Range overlaps with:");
+        for (GradingRule r : conflicts) {
+            sb.append("\n  ").append(r.getGrade()).append(" (").append(r.getMin()).append("-").append(r.getMax()).append(")");
         }
-        return true;
+        JOptionPane.showMessageDialog(this, sb.toString());
+        return false;
     }
 }
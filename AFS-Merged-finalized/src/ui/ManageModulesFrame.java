@@ -2,7 +2,10 @@ package ui;
 
 import model.Module;
 import model.User;
+import repository.ReferenceIndex;
+import service.CascadeService;
 import service.ModuleService;
+import util.Constants;
 import util.FileManager;
 
 import javax.swing.*;
@@ -32,7 +35,7 @@ public class ManageModulesFrame extends JFrame {
     private JButton btnUpdate;
     private JButton btnDelete;
 
-    private static final String LEADER_LECTURER_FILE = "data/leader_lecturer.txt";
+    private static final String LEADER_LECTURER_FILE = Constants.LEADER_LECTURER_FILE;
 
     // ✅ Your height stays the same
     private static final int FIELD_HEIGHT = 45;
@@ -319,8 +322,10 @@ public class ManageModulesFrame extends JFrame {
         int r = table.getSelectedRow();
         if (r < 0) return;
         String moduleId = valueAt(r, 0);
+        String affected = CascadeService.planDelete(ReferenceIndex.Entity.MODULE, moduleId).summary();
         int confirm = JOptionPane.showConfirmDialog(embedded ? mainPanel : this,
-                "Delete module " + moduleId + "?", "Confirm delete", JOptionPane.YES_NO_OPTION);
+                "Delete module " + moduleId + "?" + (affected.isEmpty() ? "" : "\n\n" + affected),
+                "Confirm delete", JOptionPane.YES_NO_OPTION);
         if (confirm != JOptionPane.YES_OPTION) return;
 
         try {
@@ -1,6 +1,12 @@
 package ui;
 
 import model.User;
+import repository.DataStore;
+import repository.ReferenceIndex;
+import repository.Row;
+import service.CascadeService;
+import service.SequenceService;
+import util.Constants;
 import util.FileManager;
 
 import javax.swing.*;
@@ -10,21 +16,14 @@ import javax.swing.table.TableCellRenderer;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 
 public class ManageUsersFrame extends JPanel {
 
-    private static final String USERS_FILE = "data/users.txt";
-    private static final String STUDENTS_FILE = "data/students.txt";
-    private static final String LECTURERS_FILE = "data/lecturers.txt";
-    private static final String MODULES_FILE = "data/modules.txt";
-    private static final String LEADER_LECTURER_FILE = "data/leader_lecturer.txt";
-    private static final String STUDENT_CLASSES_FILE = "data/student_classes.txt";
-    private static final String GRADES_FILE = "data/grades.txt";
-    private static final String FEEDBACK_FILE = "data/feedback.txt";
-    private static final String COMMENTS_FILE = "data/comments.txt";
+    private static final String USERS_FILE = Constants.USERS_FILE;
+    private static final String STUDENTS_FILE = Constants.STUDENTS_FILE;
+    private static final String LECTURERS_FILE = Constants.LECTURERS_FILE;
 
     private DefaultTableModel tableModel;
     private JTable table;
@@ -41,6 +40,7 @@ public class ManageUsersFrame extends JPanel {
     private JLabel lblAdmins;
 
     private final List<User> allUsers = new ArrayList<>();
+    private final BackgroundLoader loader = new BackgroundLoader(this);
 
     public ManageUsersFrame() {
         setLayout(new BorderLayout());
@@ -117,9 +117,7 @@ public class ManageUsersFrame extends JPanel {
         });
 
         // Load
-        loadUsersFromFile();
-        refreshTable(allUsers);
-        updateStats();
+        reloadUsers();
     }
 
     private JPanel statCard(String title, String desc, JLabel valueLabel) {
@@ -322,8 +320,18 @@ public class ManageUsersFrame extends JPanel {
     }
 
     // ---------- Data ----------
-    private void loadUsersFromFile() {
-        allUsers.clear();
+    // Reads users.txt off the EDT, then refreshes the table and stats.
+    private void reloadUsers() {
+        loader.load(progress -> loadUsersFromFile(), users -> {
+            allUsers.clear();
+            allUsers.addAll(users);
+            refreshTable(allUsers);
+            updateStats();
+        });
+    }
+
+    private List<User> loadUsersFromFile() {
+        List<User> users = new ArrayList<>();
         List<String> lines = FileManager.readAll(USERS_FILE);
 
         for (String line : lines) {
@@ -344,15 +352,16 @@ public class ManageUsersFrame extends JPanel {
                 int age = parseIntSafe(safe(p, 7), 0);
                 String role = safe(p, 8);
 
-                allUsers.add(User.create(id, username, password, name, gender, email, phone, age, role));
+                users.add(User.create(id, username, password, name, gender, email, phone, age, role));
             }
         }
+        return users;
     }
 
     private void refreshTable(List<User> list) {
-        tableModel.setRowCount(0);
+        List<Object[]> rows = new ArrayList<>(list.size());
         for (User u : list) {
-            tableModel.addRow(new Object[]{
+            rows.add(new Object[]{
                     u.getUserId(),
                     u.getUsername(),
                     u.getName(),
@@ -363,6 +372,7 @@ public class ManageUsersFrame extends JPanel {
                     u.getRole()
             });
         }
+        BackgroundLoader.fill(tableModel, rows);
         applyColumnWidths();
     }
 
@@ -396,7 +406,7 @@ public class ManageUsersFrame extends JPanel {
 
     private void addUser() {
         String role = (String) cmbRole.getSelectedItem();
-        String id = generateNextId(role);
+        String id = allocateId(role);
         String username = txtUsername.getText().trim();
         String password = new String(txtPassword.getPassword()).trim();
         String name = txtName.getText().trim();
@@ -437,9 +447,7 @@ public class ManageUsersFrame extends JPanel {
         if ("STUDENT".equalsIgnoreCase(role)) upsertStudentFromUser(newUser);
         if ("LECTURER".equalsIgnoreCase(role)) upsertLecturerFromUser(newUser);
 
-        loadUsersFromFile();
-        refreshTable(allUsers);
-        updateStats();
+        reloadUsers();
         clearForm();
 
         JOptionPane.showMessageDialog(this, "User added successfully (ID: " + id + ").");
@@ -523,9 +531,7 @@ public class ManageUsersFrame extends JPanel {
         FileManager.updateById(USERS_FILE, id, updated.toString());
         syncRoleFilesOnUpdate(existing, updated);
 
-        loadUsersFromFile();
-        refreshTable(allUsers);
-        updateStats();
+        reloadUsers();
         clearForm();
 
         JOptionPane.showMessageDialog(this, "User updated successfully.");
@@ -539,24 +545,32 @@ public class ManageUsersFrame extends JPanel {
         }
 
         User existing = findById(id);
+        CascadeService.Plan linked = null;
         if (existing != null) {
             String dependencyError = buildDependencyBlock(existing);
             if (!dependencyError.isEmpty()) {
-                JOptionPane.showMessageDialog(this,
-                        "Cannot delete user " + id + ".\n" + dependencyError,
-                        "Blocked: Linked Records",
-                        JOptionPane.WARNING_MESSAGE);
-                return;
+                linked = planLinkedRecords(existing, dependencyError);
+                if (linked == null) return;
             }
         }
 
+        String affected = linked == null ? "" : linked.summary();
         int confirm = JOptionPane.showConfirmDialog(this,
-                "Delete selected user: " + id + " ?",
+                "Delete selected user: " + id + " ?" + (affected.isEmpty() ? "" : "\n\n" + affected),
                 "Confirm Delete",
                 JOptionPane.YES_NO_OPTION);
 
         if (confirm != JOptionPane.YES_OPTION) return;
 
+        if (linked != null) {
+            try {
+                CascadeService.apply(linked);
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Blocked: Linked Records", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+        }
+
         FileManager.deleteById(USERS_FILE, id);
 
         if (existing != null) {
@@ -564,9 +578,7 @@ public class ManageUsersFrame extends JPanel {
             if ("LECTURER".equalsIgnoreCase(existing.getRole())) removeLecturerByUsername(existing.getUsername());
         }
 
-        loadUsersFromFile();
-        refreshTable(allUsers);
-        updateStats();
+        reloadUsers();
         clearForm();
 
         JOptionPane.showMessageDialog(this, "User deleted successfully.");
@@ -605,27 +617,13 @@ public class ManageUsersFrame extends JPanel {
 
     // ---------- ID Generation ----------
     private String generateNextId(String role) {
-        if (role == null) return "";
-        String prefix;
-        switch (role.trim().toUpperCase()) {
-            case "ADMIN": prefix = "A"; break;
-            case "LEADER": prefix = "L"; break;
-            case "LECTURER": prefix = "T"; break;
-            case "STUDENT": prefix = "S"; break;
-            default: return "";
-        }
+        SequenceService.Kind kind = SequenceService.Kind.forRole(role);
+        return kind == null ? "" : SequenceService.peek(kind);
+    }
 
-        int max = 0;
-        for (User u : allUsers) {
-            String uid = safeStr(u.getUserId()).toUpperCase();
-            if (uid.startsWith(prefix) && uid.length() > 1) {
-                try {
-                    int val = Integer.parseInt(uid.substring(prefix.length()));
-                    if (val > max) max = val;
-                } catch (NumberFormatException ignored) {}
-            }
-        }
-        return String.format("%s%03d", prefix, max + 1);
+    private String allocateId(String role) {
+        SequenceService.Kind kind = SequenceService.Kind.forRole(role);
+        return kind == null ? "" : SequenceService.next(kind);
     }
 
     private boolean isExistingUser(String id) {
@@ -635,6 +633,57 @@ public class ManageUsersFrame extends JPanel {
         return false;
     }
 
+    /**
+     * Ask how to handle a user's linked records: reassign them to another user
+     * with the same role, or delete them. Returns the plan, or null when cancelled/blocked.
+     */
+    private CascadeService.Plan planLinkedRecords(User user, String dependencyError) {
+        String role = safeStr(user.getRole()).toUpperCase();
+        ReferenceIndex.Entity entity;
+        String[] ids;
+        switch (role) {
+            case "LEADER": entity = ReferenceIndex.Entity.LEADER; ids = new String[]{user.getUserId()}; break;
+            case "LECTURER": entity = ReferenceIndex.Entity.LECTURER; ids = new String[]{user.getUserId(), user.getUsername()}; break;
+            case "STUDENT": entity = ReferenceIndex.Entity.STUDENT; ids = new String[]{findStudentIdForUser(user)}; break;
+            default: return null;
+        }
+
+        boolean canReassign = !"STUDENT".equals(role);
+        Object[] options = canReassign
+                ? new Object[]{"Reassign", "Delete Linked Records", "Cancel"}
+                : new Object[]{"Delete Linked Records", "Cancel"};
+        int choice = JOptionPane.showOptionDialog(this,
+                "User " + user.getUserId() + " has linked records.\n" + dependencyError,
+                "Linked Records", JOptionPane.DEFAULT_OPTION, JOptionPane.WARNING_MESSAGE,
+                null, options, options[options.length - 1]);
+        if (choice < 0 || choice == options.length - 1) return null;
+
+        try {
+            if (canReassign && choice == 0) {
+                String target = JOptionPane.showInputDialog(this, "Reassign to which " + role.toLowerCase() + " (user ID)?");
+                if (target == null || target.trim().isEmpty()) return null;
+                User to = findById(target.trim());
+                if (to == null || !role.equalsIgnoreCase(safeStr(to.getRole())) || to.getUserId().equalsIgnoreCase(user.getUserId())) {
+                    JOptionPane.showMessageDialog(this, "Pick another existing " + role.toLowerCase() + ".");
+                    return null;
+                }
+                return CascadeService.planReassign(entity, to.getUserId(), ids);
+            }
+
+            CascadeService.Plan plan = CascadeService.planDelete(entity, ids);
+            if (plan.isBlocked()) {
+                JOptionPane.showMessageDialog(this,
+                        "These records are kept and must be reassigned first:\n- " + String.join("\n- ", plan.getBlockers()),
+                        "Blocked: Linked Records", JOptionPane.WARNING_MESSAGE);
+                return null;
+            }
+            return plan;
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Linked Records", JOptionPane.ERROR_MESSAGE);
+            return null;
+        }
+    }
+
     private String buildDependencyBlock(User user) {
         if (user == null) return "";
 
@@ -645,44 +694,44 @@ public class ManageUsersFrame extends JPanel {
         List<String> dependencies = new ArrayList<>();
 
         if ("LEADER".equals(role)) {
-            if (fileHasValueInColumn(MODULES_FILE, 4, userId, false)) {
-                dependencies.add("data/modules.txt -> leaderId references this user");
+            if (ReferenceIndex.MODULE_LEADER.isUsed(userId)) {
+                dependencies.add(Constants.MODULES_FILE + " -> leaderId references this user");
             }
-            if (fileHasValueInColumn(LEADER_LECTURER_FILE, 0, userId, true)) {
-                dependencies.add("data/leader_lecturer.txt -> leader assignments exist");
+            if (ReferenceIndex.LEADER_ASSIGNMENT.isUsed(userId)) {
+                dependencies.add(Constants.LEADER_LECTURER_FILE + " -> leader assignments exist");
             }
         }
 
         if ("LECTURER".equals(role)) {
-            if (fileHasValueInColumn(MODULES_FILE, 5, userId, false)) {
-                dependencies.add("data/modules.txt -> lecturer is assigned to module(s)");
+            if (ReferenceIndex.MODULE_LECTURER.isUsed(userId)) {
+                dependencies.add(Constants.MODULES_FILE + " -> lecturer is assigned to module(s)");
             }
-            if (fileHasValueInColumn(LEADER_LECTURER_FILE, 1, userId, true)) {
-                dependencies.add("data/leader_lecturer.txt -> lecturer is assigned to leader");
+            if (ReferenceIndex.LECTURER_ASSIGNMENT.isUsed(userId)) {
+                dependencies.add(Constants.LEADER_LECTURER_FILE + " -> lecturer is assigned to leader");
             }
-            if (fileHasAnyValueInColumn(GRADES_FILE, 5, userId, username, false)) {
-                dependencies.add("data/grades.txt -> lecturer has keyed-in marks");
+            if (ReferenceIndex.GRADE_LECTURER.isUsed(userId, username)) {
+                dependencies.add(Constants.GRADES_FILE + " -> lecturer has keyed-in marks");
             }
-            if (fileHasAnyValueInColumn(FEEDBACK_FILE, 3, userId, username, false)) {
-                dependencies.add("data/feedback.txt -> lecturer has feedback records");
+            if (ReferenceIndex.FEEDBACK_LECTURER.isUsed(userId, username)) {
+                dependencies.add(Constants.FEEDBACK_FILE + " -> lecturer has feedback records");
             }
-            if (fileHasAnyValueInColumn(COMMENTS_FILE, 2, userId, username, false)) {
-                dependencies.add("data/comments.txt -> lecturer has student comments");
+            if (ReferenceIndex.COMMENT_LECTURER.isUsed(userId, username)) {
+                dependencies.add(Constants.COMMENTS_FILE + " -> lecturer has student comments");
             }
         }
 
         if ("STUDENT".equals(role)) {
-            if (!studentId.isEmpty() && fileHasValueInColumn(STUDENT_CLASSES_FILE, 0, studentId, false)) {
-                dependencies.add("data/student_classes.txt -> class registrations exist");
+            if (ReferenceIndex.STUDENT_CLASS.isUsed(studentId)) {
+                dependencies.add(Constants.STUDENT_CLASSES_FILE + " -> class registrations exist");
             }
-            if (!studentId.isEmpty() && fileHasValueInColumn(GRADES_FILE, 2, studentId, false)) {
-                dependencies.add("data/grades.txt -> result records exist");
+            if (ReferenceIndex.GRADE_STUDENT.isUsed(studentId)) {
+                dependencies.add(Constants.GRADES_FILE + " -> result records exist");
             }
-            if (!studentId.isEmpty() && fileHasValueInColumn(FEEDBACK_FILE, 2, studentId, false)) {
-                dependencies.add("data/feedback.txt -> feedback records exist");
+            if (ReferenceIndex.FEEDBACK_STUDENT.isUsed(studentId)) {
+                dependencies.add(Constants.FEEDBACK_FILE + " -> feedback records exist");
             }
-            if (!studentId.isEmpty() && fileHasValueInColumn(COMMENTS_FILE, 1, studentId, false)) {
-                dependencies.add("data/comments.txt -> submitted comments exist");
+            if (ReferenceIndex.COMMENT_STUDENT.isUsed(studentId)) {
+                dependencies.add(Constants.COMMENTS_FILE + " -> submitted comments exist");
             }
         }
 
@@ -696,67 +745,17 @@ public class ManageUsersFrame extends JPanel {
         return sb.toString().trim();
     }
 
-    private boolean fileHasValueInColumn(String filePath, int columnIndex, String targetValue, boolean skipHeader) {
-        String value = safeStr(targetValue);
-        if (value.isEmpty()) return false;
-
-        List<String> lines = FileManager.readAll(filePath);
-        boolean first = true;
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            if (skipHeader && first) {
-                first = false;
-                continue;
-            }
-            first = false;
-
-            String[] p = line.split("\\|", -1);
-            if (columnIndex < p.length && safe(p, columnIndex).equalsIgnoreCase(value)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    private boolean fileHasAnyValueInColumn(String filePath, int columnIndex, String value1, String value2, boolean skipHeader) {
-        Set<String> targets = new LinkedHashSet<>();
-        if (!safeStr(value1).isEmpty()) targets.add(safeStr(value1).toUpperCase());
-        if (!safeStr(value2).isEmpty()) targets.add(safeStr(value2).toUpperCase());
-        if (targets.isEmpty()) return false;
-
-        List<String> lines = FileManager.readAll(filePath);
-        boolean first = true;
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            if (skipHeader && first) {
-                first = false;
-                continue;
-            }
-            first = false;
-
-            String[] p = line.split("\\|", -1);
-            if (columnIndex >= p.length) continue;
-            String cell = safe(p, columnIndex).toUpperCase();
-            if (targets.contains(cell)) return true;
-        }
-        return false;
-    }
-
+    // Legacy extended rows are matched by username, compact rows (studentId|userId) by userId.
     private String findStudentIdForUser(User user) {
         if (user == null) return "";
         String userId = safeStr(user.getUserId());
         String username = safeStr(user.getUsername());
-        if (userId.isEmpty() && username.isEmpty()) return "";
 
-        for (String line : FileManager.readAll(STUDENTS_FILE)) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            if (p.length >= 9 && !username.isEmpty() && username.equalsIgnoreCase(safe(p, 0))) {
-                return safe(p, 7);
-            }
-            if (p.length >= 2 && p.length < 9 && !userId.isEmpty() && userId.equalsIgnoreCase(safe(p, 1))) {
-                return safe(p, 0);
-            }
+        for (Row p : DataStore.students().where(0, username)) {
+            if (p.size() >= 9) return p.get(7);
+        }
+        for (Row p : DataStore.students().where(1, userId)) {
+            if (p.size() >= 2 && p.size() < 9) return p.get(0);
         }
         return "";
     }
@@ -816,21 +815,21 @@ public class ManageUsersFrame extends JPanel {
                 matchedExtended = true;
                 existingStudentId = safe(p, 7);
                 existingModuleId = (p.length >= 10) ? safe(p, 9) : safe(p, 8);
-                if (existingStudentId.isEmpty()) existingStudentId = generateNextStudentRecordId();
+                if (existingStudentId.isEmpty()) existingStudentId = SequenceService.next(SequenceService.Kind.STUDENT);
                 out.add(buildStudentExtendedLine(user, existingStudentId, existingModuleId));
             } else {
                 existingStudentId = safe(p, 0);
-                if (existingStudentId.isEmpty()) existingStudentId = generateNextStudentRecordId();
+                if (existingStudentId.isEmpty()) existingStudentId = SequenceService.next(SequenceService.Kind.STUDENT);
                 out.add(buildStudentCompactLine(existingStudentId, userId));
             }
         }
 
         if (!matched) {
-            String studentId = generateNextStudentRecordId();
+            String studentId = SequenceService.next(SequenceService.Kind.STUDENT);
             out.add(buildStudentCompactLine(studentId, userId));
         } else if (!matchedExtended && existingStudentId.isEmpty()) {
             // Safety: compact schema still needs a stable studentId.
-            out.add(buildStudentCompactLine(generateNextStudentRecordId(), userId));
+            out.add(buildStudentCompactLine(SequenceService.next(SequenceService.Kind.STUDENT), userId));
         }
 
         FileManager.writeAll(STUDENTS_FILE, out);
@@ -955,24 +954,4 @@ public class ManageUsersFrame extends JPanel {
         try { return Integer.parseInt(s.trim()); }
         catch (Exception e) { return def; }
     }
-
-    private String generateNextStudentRecordId() {
-        int max = 0;
-        List<String> lines = FileManager.readAll(STUDENTS_FILE);
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|", -1);
-            String sid = "";
-            if (p.length >= 9) sid = safe(p, 7);
-            else if (p.length >= 1) sid = safe(p, 0);
-
-            String upper = sid.toUpperCase();
-            if (!upper.startsWith("TP") || upper.length() <= 2) continue;
-            try {
-                int n = Integer.parseInt(upper.substring(2));
-                if (n > max) max = n;
-            } catch (NumberFormatException ignored) {}
-        }
-        return String.format("TP%06d", max + 1);
-    }
 }
@@ -133,7 +133,12 @@ public class StudentEditProfilePanel extends JPanel {
         student.setGender(gender);
         student.setAge(age);
 
-        StudentService.updateProfile(student);
+        try {
+            StudentService.updateProfile(student);
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
         JOptionPane.showMessageDialog(this, "Profile updated successfully.", "Success", JOptionPane.INFORMATION_MESSAGE);
         parent.showDashboard();
     }
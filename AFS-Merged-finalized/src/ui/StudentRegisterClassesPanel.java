@@ -1,5 +1,7 @@
 package ui;
 
+import event.DomainEvent;
+import event.StudentRegistered;
 import model.Student;
 import service.StudentService;
 
@@ -94,6 +96,18 @@ public class StudentRegisterClassesPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         loadData();
+        UIUtils.listenWhileDisplayed(this, this::registrationsSaved, StudentRegistered.class);
+    }
+
+    // Registered from another window or the API: move the class to the lower table.
+    private void registrationsSaved(List<DomainEvent> events) {
+        String stuId = student.getStudentId() == null ? "" : student.getStudentId().trim();
+        for (DomainEvent e : events) {
+            if (!stuId.isEmpty() && stuId.equalsIgnoreCase(((StudentRegistered) e).getStudentId())) {
+                loadData();
+                return;
+            }
+        }
     }
 
     private void styleTable(JTable table) {
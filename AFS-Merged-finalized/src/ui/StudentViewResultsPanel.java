@@ -1,5 +1,8 @@
 package ui;
 
+import event.DomainEvent;
+import event.FeedbackSaved;
+import event.GradeSaved;
 import model.Student;
 import service.StudentService;
 
@@ -71,6 +74,19 @@ public class StudentViewResultsPanel extends JPanel {
         add(buttonPanel, BorderLayout.SOUTH);
 
         loadResults();
+        UIUtils.listenWhileDisplayed(this, this::resultsSaved, GradeSaved.class, FeedbackSaved.class);
+    }
+
+    // A lecturer saved a mark or feedback; reload only if it is this student's.
+    private void resultsSaved(List<DomainEvent> events) {
+        String stuId = student.getStudentId() == null ? "" : student.getStudentId().trim();
+        for (DomainEvent e : events) {
+            String sid = e instanceof GradeSaved ? ((GradeSaved) e).getStudentId() : ((FeedbackSaved) e).getStudentId();
+            if (!stuId.isEmpty() && stuId.equalsIgnoreCase(sid)) {
+                loadResults();
+                return;
+            }
+        }
     }
 
     private void loadResults() {
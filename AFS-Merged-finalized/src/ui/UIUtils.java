@@ -1,11 +1,15 @@
 package ui;
 
+import event.DomainEvent;
+import event.EventBus;
+
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import javax.swing.plaf.basic.BasicScrollBarUI;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
+import java.awt.event.HierarchyEvent;
 
 public class UIUtils {
 
@@ -162,4 +166,22 @@ public class UIUtils {
             }
         });
     }
+
+    /**
+     * Delivers EventBus events to l on the EDT while c is on screen in a
+     * window; a screen that is removed or whose window is disposed stops
+     * listening by itself.
+     */
+    @SafeVarargs
+    public static void listenWhileDisplayed(JComponent c, EventBus.Listener l, Class<? extends DomainEvent>... types) {
+        c.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.DISPLAYABILITY_CHANGED) == 0) return;
+            if (c.isDisplayable()) {
+                EventBus.subscribe(l, SwingUtilities::invokeLater, types);
+            } else {
+                EventBus.unsubscribe(l);
+            }
+        });
+        if (c.isDisplayable()) EventBus.subscribe(l, SwingUtilities::invokeLater, types);
+    }
 }
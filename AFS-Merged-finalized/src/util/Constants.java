@@ -3,7 +3,8 @@ package util;
 import java.nio.file.Paths;
 
 public final class Constants {
-    public static final String DATA_DIR = "data";
+    // Override with -Dafs.dataDir=... to run against another data folder (e.g. benchmarks).
+    public static final String DATA_DIR = System.getProperty("afs.dataDir", "data");
     public static final String DELIMITER = "|";
 
     public static final String USERS_FILE = Paths.get(DATA_DIR, "users.txt").toString();
@@ -18,6 +19,9 @@ public final class Constants {
     public static final String CLASSES_FILE = Paths.get(DATA_DIR, "classes.txt").toString();
     public static final String STUDENT_CLASSES_FILE = Paths.get(DATA_DIR, "student_classes.txt").toString();
     public static final String COMMENTS_FILE = Paths.get(DATA_DIR, "comments.txt").toString();
+    public static final String LEADER_LECTURER_FILE = Paths.get(DATA_DIR, "leader_lecturer.txt").toString();
+    public static final String SEQUENCES_FILE = Paths.get(DATA_DIR, "sequences.txt").toString();
+    public static final String COMMIT_LOG_FILE = Paths.get(DATA_DIR, "commit.log").toString();
 
     private Constants() {
     }
@@ -1,19 +1,66 @@
 package util;
 
+import repository.DataStore;
+import repository.Locks;
+
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * All data files are read and written as UTF-8, whatever the platform default.
+ */
 public class FileManager {
 
+    /**
+     * How hard writeAll pushes data to disk before the rename:
+     * NONE - rely on the OS cache (fastest; a power loss can lose the last write),
+     * FILE - fsync the new file (default; the file is complete or the old one remains),
+     * FULL - also fsync the folder so the rename itself survives a power loss.
+     * Set with -Dafs.fsync=none|file|full or setSyncPolicy.
+     */
+    public enum SyncPolicy { NONE, FILE, FULL }
+
+    private static volatile SyncPolicy syncPolicy = parsePolicy(System.getProperty("afs.fsync"));
+
+    public static SyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public static void setSyncPolicy(SyncPolicy policy) {
+        syncPolicy = policy == null ? SyncPolicy.FILE : policy;
+    }
+
+    private static SyncPolicy parsePolicy(String value) {
+        if (value == null) return SyncPolicy.FILE;
+        try {
+            return SyncPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return SyncPolicy.FILE;
+        }
+    }
+
     public static List<String> readAll(String filePath) {
+        long t = Metrics.start();
         List<String> lines = new ArrayList<>();
         File file = new File(filePath);
-        if (!file.exists()) return lines;
+        if (!file.exists()) {
+            Metrics.io("FileManager.readAll", filePath, t, 0, 0, 0);
+            return lines;
+        }
 
         BufferedReader br = null;
         try {
-            br = new BufferedReader(new FileReader(file));
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
             String line;
             while ((line = br.readLine()) != null) {
                 lines.add(line);
@@ -24,47 +71,83 @@ public class FileManager {
             if (br != null) {
                 try { br.close(); } catch (IOException ignored) {}
             }
+            Metrics.io("FileManager.readAll", filePath, t, file.length(), 0, lines.size());
         }
         return lines;
     }
 
+    /**
+     * Bytes from..to of the file, for reading only what was appended since
+     * the last load. Null if the file is missing or now shorter than to.
+     */
+    public static byte[] readRange(String filePath, long from, long to) {
+        long t = Metrics.start();
+        int length = (int) (to - from);
+        byte[] bytes = new byte[length];
+        int read = 0;
+        try (FileChannel ch = FileChannel.open(new File(filePath).toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            while (buf.hasRemaining()) {
+                if (ch.read(buf, from + buf.position()) < 0) return null;
+            }
+            read = length;
+            return bytes;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            Metrics.io("FileManager.readRange", filePath, t, read, 0, 0);
+        }
+    }
+
     public static void append(String filePath, String line) {
-        PrintWriter pw = null;
         try {
-            File file = new File(filePath);
-            file.getParentFile().mkdirs();
-            pw = new PrintWriter(new FileWriter(file, true));
-            pw.println(line);
-        } catch (Exception e) {
+            appendLine(filePath, line);
+        } catch (IOException e) {
             e.printStackTrace();
+        }
+    }
+
+    /** Like append, but a failed write is thrown, so callers can keep their copy unchanged. */
+    public static void appendLine(String filePath, String line) throws IOException {
+        long t = Metrics.start();
+        byte[] bytes = (line + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+        long written = 0;
+        try {
+            File file = new File(filePath).getAbsoluteFile();
+            file.getParentFile().mkdirs();
+            Files.write(file.toPath(), bytes, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            written = bytes.length;
         } finally {
-            if (pw != null) {
-                pw.close();
-            }
+            DataStore.invalidate(filePath);
+            Metrics.io("FileManager.append", filePath, t, 0, written, 0);
         }
     }
 
+    // updateById and deleteById read and rewrite the file under its write lock,
+    // so they cannot lose an update made through the tables meanwhile.
     public static void updateById(String filePath, String idKey, String newLine) {
-        List<String> lines = readAll(filePath);
-        List<String> out = new ArrayList<>();
-
-        for (String line : lines) {
-            if (line == null || line.trim().isEmpty()) continue;
-            String[] p = line.split("\\|");
-            if (p.length == 0) continue;
-
-            String key = p[0].trim();
-            if (key.equalsIgnoreCase(idKey)) {
-                out.add(newLine);
-            } else {
-                out.add(line);
-            }
+        long t = Metrics.start();
+        try {
+            Locks.write(DataStore.table(filePath), () -> rewriteById(filePath, idKey, newLine));
+        } finally {
+            Metrics.io("FileManager.updateById", filePath, t, 0, 0, 0);
         }
-
-        writeAll(filePath, out);
     }
 
     public static void deleteById(String filePath, String idKey) {
+        long t = Metrics.start();
+        try {
+            Locks.write(DataStore.table(filePath), () -> rewriteById(filePath, idKey, null));
+        } finally {
+            Metrics.io("FileManager.deleteById", filePath, t, 0, 0, 0);
+        }
+    }
+
+    // newLine null deletes the matching lines.
+    private static void rewriteById(String filePath, String idKey, String newLine) {
         List<String> lines = readAll(filePath);
         List<String> out = new ArrayList<>();
 
@@ -76,6 +159,8 @@ public class FileManager {
             String key = p[0].trim();
             if (!key.equalsIgnoreCase(idKey)) {
                 out.add(line);
+            } else if (newLine != null) {
+                out.add(newLine);
             }
         }
 
@@ -83,20 +168,61 @@ public class FileManager {
     }
 
     public static void writeAll(String filePath, List<String> lines) {
-        PrintWriter pw = null;
+        long t = Metrics.start();
         try {
-            File file = new File(filePath);
-            file.getParentFile().mkdirs();
-            pw = new PrintWriter(new FileWriter(file, false));
-            for (String s : lines) {
-                pw.println(s);
-            }
+            replaceFile(filePath, lines);
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            if (pw != null) {
-                pw.close();
+            Metrics.io("FileManager.writeAll", filePath, t, 0, 0, 0);  // bytes counted by replaceFile
+        }
+    }
+
+    /**
+     * Crash-safe rewrite: the lines go to a temp file in the same folder, which
+     * is synced (per the SyncPolicy) and then atomically moved over the original.
+     * On failure the original file is left untouched and the error is thrown.
+     */
+    public static void replaceFile(String filePath, List<String> lines) throws IOException {
+        File file = new File(filePath).getAbsoluteFile();
+        File dir = file.getParentFile();
+        dir.mkdirs();
+
+        long t = Metrics.start();
+        long written = 0;
+        SyncPolicy policy = syncPolicy;
+        Path tmp = Files.createTempFile(dir.toPath(), file.getName() + ".", ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(tmp.toFile());
+                 BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8))) {
+                for (String s : lines) {
+                    bw.write(s);
+                    bw.newLine();
+                }
+                bw.flush();
+                if (policy != SyncPolicy.NONE) out.getFD().sync();
             }
+            written = Files.size(tmp);
+
+            try {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            if (policy == SyncPolicy.FULL) syncDirectory(dir.toPath());
+        } finally {
+            Files.deleteIfExists(tmp);
+            DataStore.invalidate(filePath);
+            Metrics.io("FileManager.replaceFile", filePath, t, 0, written, 0);
+        }
+    }
+
+    // Makes the rename itself durable. Not supported on every platform (e.g. Windows); skipped there.
+    private static void syncDirectory(Path dir) {
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        } catch (IOException ignored) {
         }
     }
 }
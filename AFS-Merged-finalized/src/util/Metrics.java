@@ -0,0 +1,224 @@
+package util;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Call counts and timings for FileManager and the service entry points.
+ * - One Op per operation name and data file ("" for service calls), e.g.
+ *   FileManager.readAll on users.txt, so a screen's reads can be counted.
+ * - Each Op keeps a latency histogram (BUCKETS, in seconds), bytes read and
+ *   written, and rows parsed. All counters are lock-free adders.
+ * - Services time their entry points (what the screens, the API and Batch
+ *   call) with time(); overloads that only delegate, per-row helpers and
+ *   accessors are not timed, so one call is one sample. Timings are
+ *   inclusive: an entry point calling another is counted under both.
+ * - Off with -Dafs.metrics=false; start() then returns 0 and nothing is recorded.
+ * Shown by DiagnosticsPanel; prometheus() is served at /metrics (ApiServer).
+ */
+public final class Metrics {
+
+    /** Upper bounds of the latency buckets, in seconds; the last bucket is +Inf. */
+    public static final double[] BUCKETS = {0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5};
+
+    private static final Map<String, Op> OPS = new ConcurrentHashMap<>();
+    private static volatile boolean enabled = !"false".equalsIgnoreCase(System.getProperty("afs.metrics"));
+
+    private Metrics() {
+    }
+
+    public static final class Op {
+        private final String name;
+        private final String file;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+
+        private Op(String name, String file) {
+            this.name = name;
+            this.file = file;
+            for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+        }
+
+        private void record(long elapsed) {
+            count.increment();
+            nanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            double seconds = elapsed / 1e9;
+            int b = 0;
+            while (b < BUCKETS.length && seconds > BUCKETS[b]) b++;
+            buckets[b].increment();
+        }
+
+        public String getName() { return name; }
+        public String getFile() { return file; }
+        public long getCount() { return count.sum(); }
+        public long getTotalNanos() { return nanos.sum(); }
+        public long getMaxNanos() { return maxNanos.get(); }
+        public long getBytesRead() { return bytesRead.sum(); }
+        public long getBytesWritten() { return bytesWritten.sum(); }
+        public long getRows() { return rows.sum(); }
+
+        /** Calls per bucket (not cumulative); the last entry counts calls over the largest bound. */
+        public long[] getBuckets() {
+            long[] out = new long[buckets.length];
+            for (int i = 0; i < out.length; i++) out[i] = buckets[i].sum();
+            return out;
+        }
+
+        /** Upper bound (seconds) of the bucket holding quantile q; +Inf if it is the last one. */
+        public double quantile(double q) {
+            long[] b = getBuckets();
+            long total = 0;
+            for (long n : b) total += n;
+            if (total == 0) return 0;
+            long target = (long) Math.ceil(q * total);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS.length; i++) {
+                seen += b[i];
+                if (seen >= target) return BUCKETS[i];
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    // --------------------------
+    // Recording
+    // --------------------------
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /** Runs call and records it under name. */
+    public static <T> T time(String name, Supplier<T> call) {
+        long start = start();
+        try {
+            return call.get();
+        } finally {
+            stop(name, start);
+        }
+    }
+
+    public static void time(String name, Runnable call) {
+        long start = start();
+        try {
+            call.run();
+        } finally {
+            stop(name, start);
+        }
+    }
+
+    /** Start of a timed call; pass the result to stop() or io(). */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /** A service call that started at start. */
+    public static void stop(String name, long start) {
+        if (start == 0 || !enabled) return;
+        op(name, "").record(System.nanoTime() - start);
+    }
+
+    /** A file call that started at start; filePath is reduced to its file name. */
+    public static void io(String name, String filePath, long start, long bytesRead, long bytesWritten, long rows) {
+        if (start == 0 || !enabled) return;
+        Op op = op(name, fileName(filePath));
+        op.record(System.nanoTime() - start);
+        if (bytesRead > 0) op.bytesRead.add(bytesRead);
+        if (bytesWritten > 0) op.bytesWritten.add(bytesWritten);
+        if (rows > 0) op.rows.add(rows);
+    }
+
+    /** Every op recorded so far, sorted by name then file. */
+    public static List<Op> snapshot() {
+        List<Op> out = new ArrayList<>(OPS.values());
+        out.sort((a, b) -> a.name.equals(b.name) ? a.file.compareTo(b.file) : a.name.compareTo(b.name));
+        return out;
+    }
+
+    public static void reset() {
+        OPS.clear();
+    }
+
+    private static Op op(String name, String file) {
+        return OPS.computeIfAbsent(name + "|" + file, k -> new Op(name, file));
+    }
+
+    private static String fileName(String filePath) {
+        if (filePath == null || filePath.isEmpty()) return "";
+        try {
+            return Paths.get(filePath).getFileName().toString();
+        } catch (RuntimeException e) {
+            return filePath;
+        }
+    }
+
+    // --------------------------
+    // Export
+    // --------------------------
+
+    /** Prometheus text exposition format (version 0.0.4). */
+    public static String prometheus() {
+        List<Op> ops = snapshot();
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("# HELP afs_op_duration_seconds Latency of FileManager and service calls.\n");
+        sb.append("# TYPE afs_op_duration_seconds histogram\n");
+        for (Op op : ops) {
+            String labels = labels(op);
+            long[] b = op.getBuckets();
+            long cumulative = 0;
+            for (int i = 0; i < b.length; i++) {
+                cumulative += b[i];
+                String le = i < BUCKETS.length ? number(BUCKETS[i]) : "+Inf";
+                sb.append("afs_op_duration_seconds_bucket{").append(labels).append(",le=\"").append(le)
+                        .append("\"} ").append(cumulative).append('\n');
+            }
+            sb.append("afs_op_duration_seconds_sum{").append(labels).append("} ")
+                    .append(number(op.getTotalNanos() / 1e9)).append('\n');
+            sb.append("afs_op_duration_seconds_count{").append(labels).append("} ").append(op.getCount()).append('\n');
+        }
+        counter(sb, ops, "afs_file_read_bytes_total", "Bytes read from data files.", 0);
+        counter(sb, ops, "afs_file_written_bytes_total", "Bytes written to data files.", 1);
+        counter(sb, ops, "afs_rows_parsed_total", "Data file lines read.", 2);
+        return sb.toString();
+    }
+
+    private static void counter(StringBuilder sb, List<Op> ops, String metric, String help, int which) {
+        sb.append("# HELP ").append(metric).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(metric).append(" counter\n");
+        for (Op op : ops) {
+            long v = which == 0 ? op.getBytesRead() : which == 1 ? op.getBytesWritten() : op.getRows();
+            if (v == 0) continue;  // e.g. bytes read by an append
+            sb.append(metric).append('{').append(labels(op)).append("} ").append(v).append('\n');
+        }
+    }
+
+    private static String labels(Op op) {
+        return "op=\"" + escape(op.name) + "\",file=\"" + escape(op.file) + "\"";
+    }
+
+    private static String escape(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String number(double d) {
+        return String.format(Locale.ROOT, "%s", d);
+    }
+}
@@ -0,0 +1,191 @@
+package util;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Advisory lock on a data file shared with other copies of the app
+ * (e.g. several lab PCs on one network data folder).
+ * - data/x.txt is guarded by an OS lock (FileChannel.tryLock) on
+ *   data/.locks/x.txt.lock. The lock file itself is never deleted on unlock.
+ * - Waits are bounded: tryLock is retried with growing, jittered sleeps for up
+ *   to afs.lockWaitMs (default 10000), then IllegalStateException names the owner.
+ * - The holder writes "pid|host|since" into the lock file and clears it on
+ *   unlock; the timeout message shows it. A lock is never forced: the OS
+ *   drops the lock of a process that exits or crashes, and deleting the file
+ *   under a live holder would let two writers in at once.
+ * - Inside one JVM the lock is reentrant and shared per file, so threads take
+ *   turns on it; in-process readers and writers are coordinated by Locks.
+ * Disable with -Dafs.processLocks=false.
+ */
+public final class ProcessLock {
+
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("afs.processLocks"));
+    private static final long WAIT_MS = Long.getLong("afs.lockWaitMs", 10_000L);
+    private static final long MAX_BACKOFF_MS = 200;
+
+    private static final Map<Path, ProcessLock> LOCKS = new ConcurrentHashMap<>();
+    private static final long PID = ProcessHandle.current().pid();
+    private static final String HOST = hostName();
+
+    private final Path dataFile;
+    private final Path lockFile;
+    private final ReentrantLock guard = new ReentrantLock();
+
+    private FileChannel channel;
+    private FileLock held;
+
+    private ProcessLock(Path dataFile) {
+        this.dataFile = dataFile;
+        this.lockFile = dataFile.resolveSibling(".locks").resolve(dataFile.getFileName() + ".lock");
+    }
+
+    /** The lock for a data file; the same instance for every spelling of the path. */
+    public static ProcessLock forFile(String filePath) {
+        Path p = Paths.get(filePath).toAbsolutePath().normalize();
+        return LOCKS.computeIfAbsent(p, ProcessLock::new);
+    }
+
+    public static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    public void lock() {
+        if (!ENABLED) return;
+        guard.lock();
+        if (guard.getHoldCount() > 1) return;
+        try {
+            acquire();
+        } catch (RuntimeException e) {
+            guard.unlock();
+            throw e;
+        }
+    }
+
+    public void unlock() {
+        if (!ENABLED) return;
+        try {
+            if (guard.getHoldCount() == 1) release();
+        } finally {
+            guard.unlock();
+        }
+    }
+
+    // --------------------------
+    // Helpers
+    // --------------------------
+
+    private void acquire() {
+        long deadline = System.currentTimeMillis() + WAIT_MS;
+        long backoff = 5;
+        while (true) {
+            try {
+                Files.createDirectories(lockFile.getParent());
+                FileChannel ch = FileChannel.open(lockFile,
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                try {
+                    FileLock l = null;
+                    try {
+                        l = ch.tryLock();
+                    } catch (OverlappingFileLockException ignored) {
+                        // Only possible if another class locked the same file; treat as busy.
+                    }
+                    if (l != null) {
+                        writeOwner(ch, PID + "|" + HOST + "|" + System.currentTimeMillis());
+                        channel = ch;
+                        held = l;
+                        return;
+                    }
+                } finally {
+                    if (channel != ch) ch.close();  // releases the OS lock too, if taken
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot lock " + dataFile.getFileName() + ": " + e.getMessage(), e);
+            }
+
+            if (System.currentTimeMillis() >= deadline) {
+                throw new IllegalStateException(dataFile.getFileName()
+                        + " is being saved by another copy of the app (" + describeOwner() + "). Please try again.");
+            }
+            sleep(backoff + ThreadLocalRandom.current().nextLong(backoff + 1));
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+        }
+    }
+
+    private void release() {
+        try {
+            writeOwner(channel, "");
+            held.release();
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            try {
+                channel.close();  // also drops the OS lock if release() failed
+            } catch (IOException ignored) {
+            }
+            channel = null;
+            held = null;
+        }
+    }
+
+    private String[] readOwner() {
+        try {
+            String s = new String(Files.readAllBytes(lockFile), StandardCharsets.UTF_8).trim();
+            String[] p = s.split("\\|", -1);
+            return p.length == 3 ? p : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private String describeOwner() {
+        String[] owner = readOwner();
+        if (owner == null) return "owner unknown";
+        long since = parseLong(owner[2]);
+        long secs = since > 0 ? (System.currentTimeMillis() - since) / 1000 : -1;
+        return "process " + owner[0] + " on " + owner[1] + (secs >= 0 ? ", for " + secs + "s" : "");
+    }
+
+    private static void writeOwner(FileChannel ch, String owner) throws IOException {
+        ch.truncate(0);
+        ch.write(ByteBuffer.wrap(owner.getBytes(StandardCharsets.UTF_8)), 0);
+    }
+
+    private static long parseLong(String s) {
+        try {
+            return Long.parseLong(s.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a file lock.", e);
+        }
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "localhost";
+        }
+    }
+}